@@ -0,0 +1,172 @@
+package com.example.cloudplaylistmanager.Downloader;
+
+import android.util.Log;
+
+import com.example.cloudplaylistmanager.Utils.DataManager;
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+import com.example.cloudplaylistmanager.Utils.SettingsHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads many audios concurrently on a bounded pool of worker threads.
+ * The pool is shared by every caller, so the number of concurrent yt-dlp executions never
+ * exceeds the configured concurrency, no matter how many playlists are downloading.
+ */
+public class DownloadEngine {
+    private static final String LOG_TAG = "DownloadEngine";
+    private static final String THREAD_NAME = "DownloadEngine-";
+    private static final long IDLE_WORKER_TIMEOUT_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Instantiates a new DownloadEngine object.
+     * @param concurrency Maximum number of audios that are downloaded at the same time.
+     */
+    public DownloadEngine(int concurrency) {
+        int workers = ClampConcurrency(concurrency);
+        AtomicInteger threadCount = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(workers, workers, IDLE_WORKER_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Changes the maximum number of audios that are downloaded at the same time.
+     * Downloads that are already running are not interrupted.
+     * @param concurrency New concurrency.
+     */
+    public synchronized void SetConcurrency(int concurrency) {
+        int workers = ClampConcurrency(concurrency);
+        //The core size can never be larger than the maximum size, so the order depends on the direction.
+        if(workers > this.executor.getMaximumPoolSize()) {
+            this.executor.setMaximumPoolSize(workers);
+            this.executor.setCorePoolSize(workers);
+        }
+        else {
+            this.executor.setCorePoolSize(workers);
+            this.executor.setMaximumPoolSize(workers);
+        }
+    }
+
+    /**
+     * Starts downloading a single url on the pool without waiting for it.
+     * @param url Url of the audio source.
+     * @param listener Listener that is called from the worker thread as the download progresses.
+     * @return Future that completes once the download finished or failed.
+     */
+    public Future<?> Submit(String url, DownloadListener listener) {
+        return this.executor.submit(() -> DataManager.getInstance().DownloadSongToDirectoryFromUrlBlocking(url, listener));
+    }
+
+    /**
+     * Downloads every given url and blocks until all of them finished or failed.
+     * Must not be called from the Main Thread or from a worker of this engine.
+     * @param urls Urls of the audio sources.
+     * @param listener Listener that is called from the worker threads as each download progresses.
+     * @return Downloaded audios in the same order as the urls. Failed downloads are left out.
+     */
+    public ArrayList<PlaybackAudioInfo> DownloadAll(List<String> urls, DownloadEngineListener listener) {
+        int total = urls.size();
+        PlaybackAudioInfo[] results = new PlaybackAudioInfo[total];
+        float[] trackProgress = new float[total];
+        AtomicInteger completed = new AtomicInteger(0);
+        AtomicInteger reportedPercent = new AtomicInteger(-1);
+
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for(int index = 0; index < total; index++) {
+            final int trackIndex = index;
+            final String url = urls.get(index);
+            futures.add(this.executor.submit(() -> {
+                DataManager.getInstance().DownloadSongToDirectoryFromUrlBlocking(url, new DownloadListener() {
+                    @Override
+                    public void onComplete(PlaybackAudioInfo audio) {
+                        results[trackIndex] = audio;
+                        listener.onTrackComplete(trackIndex, audio);
+                    }
+
+                    @Override
+                    public void onProgressUpdate(float progress, long etaSeconds) {
+                        synchronized(trackProgress) {
+                            trackProgress[trackIndex] = progress;
+                        }
+                        //Only whole percent changes are reported, since yt-dlp reports progress many times a second.
+                        float aggregateProgress = GetAggregateProgress(trackProgress);
+                        if(reportedPercent.getAndSet((int) aggregateProgress) != (int) aggregateProgress) {
+                            listener.onProgressUpdate(completed.get(), total, aggregateProgress);
+                        }
+                    }
+
+                    @Override
+                    public void onError(int attempt, String error) {
+                        listener.onTrackError(trackIndex, attempt, error);
+                    }
+                });
+
+                //A finished track counts as fully progressed, whether it succeeded or not.
+                synchronized(trackProgress) {
+                    trackProgress[trackIndex] = 100;
+                }
+                listener.onProgressUpdate(completed.incrementAndGet(), total, GetAggregateProgress(trackProgress));
+            }));
+        }
+
+        //Waits for every download, in order.
+        for(int index = 0; index < futures.size(); index++) {
+            try {
+                futures.get(index).get();
+            } catch(ExecutionException | InterruptedException e) {
+                Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "A download was interrupted.");
+                e.printStackTrace();
+                listener.onTrackError(index, -1, urls.get(index) + " download was interrupted.");
+            }
+        }
+
+        ArrayList<PlaybackAudioInfo> downloadedAudios = new ArrayList<>();
+        for(PlaybackAudioInfo audio : results) {
+            if(audio != null) {
+                downloadedAudios.add(audio);
+            }
+        }
+        return downloadedAudios;
+    }
+
+    /**
+     * Computes the progress of a batch of downloads.
+     * @param trackProgress Progress of every track of the batch, from 0 to 100.
+     * @return Progress of the batch, from 0 to 100.
+     */
+    private static float GetAggregateProgress(float[] trackProgress) {
+        if(trackProgress.length == 0) {
+            return 100;
+        }
+        float sum = 0;
+        synchronized(trackProgress) {
+            for(float progress : trackProgress) {
+                sum += progress;
+            }
+        }
+        return sum / trackProgress.length;
+    }
+
+    /**
+     * Keeps a concurrency value within the supported range.
+     * @param concurrency Requested concurrency.
+     * @return Supported concurrency.
+     */
+    private static int ClampConcurrency(int concurrency) {
+        return Math.max(SettingsHolder.MIN_DOWNLOAD_CONCURRENCY, Math.min(SettingsHolder.MAX_DOWNLOAD_CONCURRENCY, concurrency));
+    }
+}
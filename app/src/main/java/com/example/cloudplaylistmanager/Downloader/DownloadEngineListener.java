@@ -0,0 +1,9 @@
+package com.example.cloudplaylistmanager.Downloader;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+
+public interface DownloadEngineListener {
+    void onTrackComplete(int index, PlaybackAudioInfo audio);
+    void onTrackError(int index, int attempt, String error);
+    void onProgressUpdate(int completed, int total, float progress);
+}
@@ -0,0 +1,542 @@
+package com.example.cloudplaylistmanager.Downloader;
+
+import android.util.Log;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Durable queue of download jobs that survives the process being killed.
+ * Every change to a job, including the state of each track of a playlist job, is appended to a
+ * log on disk before the method that made it returns, so that {@link DownloadService} can resume
+ * the queue where it stopped when it is restarted. Only the change itself is written, so the cost
+ * of a change does not grow with the number of tracks in the queue.
+ * The log is replayed and compacted when the queue is loaded, and deleted once the queue is empty.
+ * The queue is loaded on first use, which must not be on the Main Thread.
+ */
+public class DownloadQueue {
+    private static final String LOG_TAG = "DownloadQueue";
+    private static final String LOG_FILE_NAME = "download-queue.log";
+    private static final String LOG_TEMP_FILE_NAME = "download-queue.log.tmp";
+    public static final int MAX_ATTEMPTS = 3;
+
+    public enum TrackState {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    //Enum to indicate the type of change that a log entry describes.
+    private enum ChangeType {
+        ENQUEUE,            //A job was added, along with any tracks it already has.
+        REMOVE,             //A job was removed.
+        ADD_TRACKS,         //Tracks were added to a playlist job.
+        TRACKS_COMPLETE,    //Every track of a playlist job was fetched.
+        PLAYLIST_KEY,       //The playlist of a playlist job was created.
+        TRACK,              //The state or attempts of a track changed.
+        JOB_ATTEMPTS        //A single audio job failed an attempt.
+    }
+
+    private final File directory;
+    private final Gson gson;
+    private ArrayList<Job> jobs; //Null until the queue is loaded.
+    private FileOutputStream logStream;
+    private BufferedWriter logWriter;
+
+    /**
+     * Instantiates a new DownloadQueue object. The jobs left from a previous process are loaded
+     * on first use.
+     * @param directory Directory where the queue is persisted.
+     */
+    public DownloadQueue(File directory) {
+        this.directory = directory;
+        this.gson = new Gson();
+        this.jobs = null;
+        this.logStream = null;
+        this.logWriter = null;
+    }
+
+    /**
+     * Adds a new job to the end of the queue. If the same download is already queued, such as
+     * when a request is sent twice, the queued job is returned instead.
+     * @param url Url of the audio or playlist.
+     * @param isPlaylist If the url is of a playlist.
+     * @param parentKey Key of the playlist that the download is added to. May be null.
+     * @return The new or already queued job.
+     */
+    public synchronized Job Enqueue(String url, boolean isPlaylist, String parentKey) {
+        for(Job queuedJob : GetJobs()) {
+            if(queuedJob.isPlaylist == isPlaylist && queuedJob.url.equals(url) &&
+                    ((queuedJob.parentKey == null) ? parentKey == null : queuedJob.parentKey.equals(parentKey))) {
+                return queuedJob;
+            }
+        }
+        Job job = new Job();
+        job.id = UUID.randomUUID().toString();
+        job.url = url;
+        job.isPlaylist = isPlaylist;
+        job.parentKey = parentKey;
+        this.jobs.add(job);
+        Change change = new Change(ChangeType.ENQUEUE, job.id);
+        change.job = job;
+        Append(change);
+        return job;
+    }
+
+    /**
+     * Returns the job at the front of the queue.
+     * @return First job. Null if the queue is empty.
+     */
+    public synchronized Job Peek() {
+        return GetJobs().isEmpty() ? null : this.jobs.get(0);
+    }
+
+    /**
+     * Removes a finished job from the queue.
+     * @param job Finished job.
+     */
+    public synchronized void Remove(Job job) {
+        GetJobs().remove(job);
+        if(this.jobs.isEmpty()) {
+            //Nothing is left to resume, so the whole log is dropped.
+            CloseLog();
+            new File(this.directory, LOG_FILE_NAME).delete();
+            return;
+        }
+        Append(new Change(ChangeType.REMOVE, job.id));
+    }
+
+    /**
+     * Adds the tracks of a page of fetched playlist items to a playlist job. Tracks whose url is
+     * already part of the job are skipped, so a page that is fetched again is harmless.
+     * @param job Playlist job.
+     * @param origins Url of every track of the page.
+     * @param positions Position of every track in the playlist.
+     * @return The tracks that were added.
+     */
+    public synchronized ArrayList<Track> AddTracks(Job job, List<String> origins, List<Integer> positions) {
+        if(job.tracks == null) {
+            job.tracks = new ArrayList<>();
+        }
+        HashSet<String> existingOrigins = new HashSet<>();
+        for(Track track : job.tracks) {
+            existingOrigins.add(track.origin);
+        }
+        ArrayList<Track> addedTracks = new ArrayList<>();
+        for(int index = 0; index < origins.size(); index++) {
+            if(!existingOrigins.add(origins.get(index))) {
+                continue;
+            }
+            Track track = new Track();
+            track.origin = origins.get(index);
+            track.position = positions.get(index);
+            track.state = TrackState.PENDING;
+            job.tracks.add(track);
+            addedTracks.add(track);
+        }
+        if(!addedTracks.isEmpty()) {
+            Change change = new Change(ChangeType.ADD_TRACKS, job.id);
+            change.tracks = addedTracks;
+            Append(change);
+        }
+        return addedTracks;
+    }
+
+    /**
+     * Marks every track of a playlist job as fetched, along with the metadata of the playlist.
+     * @param job Playlist job.
+     * @param title Title of the playlist.
+     * @param linkSource Link to the source of the playlist.
+     */
+    public synchronized void SetTracksComplete(Job job, String title, String linkSource) {
+        job.title = title;
+        job.linkSource = linkSource;
+        job.tracksComplete = true;
+        if(job.tracks == null) {
+            job.tracks = new ArrayList<>();
+        }
+        Change change = new Change(ChangeType.TRACKS_COMPLETE, job.id);
+        change.title = title;
+        change.linkSource = linkSource;
+        Append(change);
+    }
+
+    /**
+     * Stores the key of the playlist that a playlist job commits its tracks to.
+     * @param job Playlist job.
+     * @param playlistKey Key of the created playlist.
+     */
+    public synchronized void SetPlaylistKey(Job job, String playlistKey) {
+        job.playlistKey = playlistKey;
+        Change change = new Change(ChangeType.PLAYLIST_KEY, job.id);
+        change.playlistKey = playlistKey;
+        Append(change);
+    }
+
+    /**
+     * Marks a track as downloaded.
+     * @param job Job of the track.
+     * @param track Downloaded track.
+     * @param audio Downloaded audio.
+     */
+    public synchronized void CompleteTrack(Job job, Track track, PlaybackAudioInfo audio) {
+        track.audio = audio;
+        track.state = TrackState.COMPLETED;
+        AppendTrack(job, track);
+    }
+
+    /**
+     * Marks a track as failed for good, such as when its audio can never be downloaded.
+     * @param job Job of the track.
+     * @param track Failed track.
+     */
+    public synchronized void FailTrack(Job job, Track track) {
+        track.state = TrackState.FAILED;
+        AppendTrack(job, track);
+    }
+
+    /**
+     * Counts a failed attempt of a track. The track fails for good after {@link #MAX_ATTEMPTS} attempts.
+     * @param job Job of the track.
+     * @param track Failed track.
+     */
+    public synchronized void FailTrackAttempt(Job job, Track track) {
+        track.attempts++;
+        if(track.attempts >= MAX_ATTEMPTS) {
+            track.state = TrackState.FAILED;
+        }
+        AppendTrack(job, track);
+    }
+
+    /**
+     * Counts a failed attempt of a single audio job.
+     * @param job Failed job.
+     * @return If the job may be attempted again.
+     */
+    public synchronized boolean FailJobAttempt(Job job) {
+        job.attempts++;
+        Change change = new Change(ChangeType.JOB_ATTEMPTS, job.id);
+        change.attempts = job.attempts;
+        Append(change);
+        return job.attempts < MAX_ATTEMPTS;
+    }
+
+    /**
+     * Returns the tracks of a playlist job that are in a given state.
+     * @param job Playlist job.
+     * @param state State of the tracks.
+     * @return List of tracks, in the order of the playlist.
+     */
+    public synchronized ArrayList<Track> GetTracks(Job job, TrackState state) {
+        ArrayList<Track> tracks = new ArrayList<>();
+        if(job.tracks != null) {
+            for(Track track : job.tracks) {
+                if(track.state == state) {
+                    tracks.add(track);
+                }
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * Returns the jobs of the queue, loading them on first use.
+     * Must be called while holding the lock of this instance.
+     * @return List of jobs.
+     */
+    private ArrayList<Job> GetJobs() {
+        if(this.jobs == null) {
+            this.jobs = Load();
+        }
+        return this.jobs;
+    }
+
+    /**
+     * Reads the jobs persisted by a previous process, then rewrites the log with a single entry
+     * per job, so that the log never grows past a single run of the queue.
+     * @return List of jobs. Empty if there are none or they are unreadable.
+     */
+    private ArrayList<Job> Load() {
+        ArrayList<Job> loadedJobs = Replay(new File(this.directory, LOG_FILE_NAME));
+        if(loadedJobs.isEmpty()) {
+            new File(this.directory, LOG_FILE_NAME).delete();
+        }
+        else {
+            Compact(loadedJobs);
+        }
+        return loadedJobs;
+    }
+
+    /**
+     * Replays every change in the log.
+     * Reading stops at the first malformed change, which can only be a partially written
+     * change at the end of the file.
+     * @param logFile Log file.
+     * @return List of jobs, in the order they were queued.
+     */
+    private ArrayList<Job> Replay(File logFile) {
+        ArrayList<Job> loadedJobs = new ArrayList<>();
+        if(!logFile.exists()) {
+            return loadedJobs;
+        }
+        HashMap<String, Job> jobsById = new HashMap<>();
+        HashMap<String, HashMap<String, Track>> tracksById = new HashMap<>(); //Tracks of each job by origin.
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.isEmpty()) {
+                    continue;
+                }
+                Change change;
+                try {
+                    change = this.gson.fromJson(line, Change.class);
+                } catch(JsonParseException e) {
+                    Log.e(LOG_TAG, "Stopped replaying at a malformed change.");
+                    break;
+                }
+                if(change == null || change.type == null) {
+                    break;
+                }
+                Apply(change, loadedJobs, jobsById, tracksById);
+            }
+        } catch(IOException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to read download queue.");
+            e.printStackTrace();
+        }
+        return loadedJobs;
+    }
+
+    /**
+     * Applies a single change of the log onto the loaded jobs.
+     * @param change Change that will be applied.
+     * @param loadedJobs List of jobs, in the order they were queued.
+     * @param jobsById Map of every job by its id.
+     * @param tracksById Map of the tracks of every job by their origin.
+     */
+    private static void Apply(Change change, ArrayList<Job> loadedJobs, HashMap<String, Job> jobsById,
+                              HashMap<String, HashMap<String, Track>> tracksById) {
+        if(change.type == ChangeType.ENQUEUE) {
+            if(change.job != null && !jobsById.containsKey(change.jobId)) {
+                loadedJobs.add(change.job);
+                jobsById.put(change.jobId, change.job);
+                HashMap<String, Track> tracks = new HashMap<>();
+                if(change.job.tracks != null) {
+                    for(Track track : change.job.tracks) {
+                        tracks.put(track.origin, track);
+                    }
+                }
+                tracksById.put(change.jobId, tracks);
+            }
+            return;
+        }
+
+        Job job = jobsById.get(change.jobId);
+        if(job == null) {
+            return;
+        }
+        HashMap<String, Track> tracks = tracksById.get(change.jobId);
+        switch(change.type) {
+            case REMOVE:
+                loadedJobs.remove(job);
+                jobsById.remove(change.jobId);
+                tracksById.remove(change.jobId);
+                break;
+            case ADD_TRACKS:
+                if(change.tracks != null) {
+                    if(job.tracks == null) {
+                        job.tracks = new ArrayList<>();
+                    }
+                    for(Track track : change.tracks) {
+                        if(!tracks.containsKey(track.origin)) {
+                            job.tracks.add(track);
+                            tracks.put(track.origin, track);
+                        }
+                    }
+                }
+                break;
+            case TRACKS_COMPLETE:
+                job.title = change.title;
+                job.linkSource = change.linkSource;
+                job.tracksComplete = true;
+                if(job.tracks == null) {
+                    job.tracks = new ArrayList<>();
+                }
+                break;
+            case PLAYLIST_KEY:
+                job.playlistKey = change.playlistKey;
+                break;
+            case TRACK:
+                Track track = tracks.get(change.origin);
+                if(track != null) {
+                    track.state = change.state;
+                    track.attempts = change.attempts;
+                    if(change.audio != null) {
+                        track.audio = change.audio;
+                    }
+                }
+                break;
+            case JOB_ATTEMPTS:
+                job.attempts = change.attempts;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes a single entry per job to a temporary file and renames it into place of the log.
+     * A partially written change at the end of the previous log is dropped along with it.
+     * @param loadedJobs Every job of the queue.
+     */
+    private void Compact(ArrayList<Job> loadedJobs) {
+        CloseLog();
+        File tempFile = new File(this.directory, LOG_TEMP_FILE_NAME);
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            for(Job job : loadedJobs) {
+                Change change = new Change(ChangeType.ENQUEUE, job.id);
+                change.job = job;
+                writer.write(this.gson.toJson(change));
+                writer.newLine();
+            }
+            writer.flush();
+            outputStream.getFD().sync();
+            writer.close();
+            outputStream = null;
+        } catch(Exception e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to compact download queue.");
+            e.printStackTrace();
+            if(outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch(IOException ignored) {}
+            }
+            tempFile.delete();
+            return;
+        }
+        if(!tempFile.renameTo(new File(this.directory, LOG_FILE_NAME))) {
+            Log.e(LOG_TAG, "Failed to move download queue into place.");
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Appends the current state of a track to the log.
+     * Must be called while holding the lock of this instance.
+     * @param job Job of the track.
+     * @param track Changed track.
+     */
+    private void AppendTrack(Job job, Track track) {
+        Change change = new Change(ChangeType.TRACK, job.id);
+        change.origin = track.origin;
+        change.state = track.state;
+        change.attempts = track.attempts;
+        //The audio is only written once, when the track completes.
+        change.audio = (track.state == TrackState.COMPLETED) ? track.audio : null;
+        Append(change);
+    }
+
+    /**
+     * Appends a change to the end of the log and syncs it to disk.
+     * Must be called while holding the lock of this instance.
+     * @param change Change of the queue.
+     */
+    private void Append(Change change) {
+        try {
+            if(this.logWriter == null) {
+                this.logStream = new FileOutputStream(new File(this.directory, LOG_FILE_NAME), true);
+                this.logWriter = new BufferedWriter(new OutputStreamWriter(this.logStream, StandardCharsets.UTF_8));
+            }
+            this.logWriter.write(this.gson.toJson(change));
+            this.logWriter.newLine();
+            this.logWriter.flush();
+            this.logStream.getFD().sync();
+        } catch(IOException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to write download queue.");
+            e.printStackTrace();
+            CloseLog();
+        }
+    }
+
+    /**
+     * Closes the log writer if it is open.
+     */
+    private void CloseLog() {
+        if(this.logWriter != null) {
+            try {
+                this.logWriter.close();
+            } catch(IOException ignored) {}
+        }
+        this.logWriter = null;
+        this.logStream = null;
+    }
+
+    /**
+     * A single requested download of an audio or of a playlist.
+     */
+    public static class Job {
+        public String id;
+        public String url;
+        public boolean isPlaylist;
+        public String parentKey;
+        public int attempts;
+
+        //Only used by playlist jobs. Tracks are added as pages of the playlist are fetched.
+        public String title;
+        public String linkSource;
+        public String playlistKey;
+        public ArrayList<Track> tracks;
+        public boolean tracksComplete;
+    }
+
+    /**
+     * A single track of a playlist job.
+     */
+    public static class Track {
+        public String origin;
+        public int position;
+        public int attempts;
+        public TrackState state;
+        public PlaybackAudioInfo audio; //Set once the track is downloaded.
+    }
+
+    /**
+     * A single change of the queue in the log. Only the fields of its type are set.
+     */
+    private static class Change {
+        ChangeType type;
+        String jobId;
+        Job job;
+        ArrayList<Track> tracks;
+        String origin;
+        TrackState state;
+        int attempts;
+        PlaybackAudioInfo audio;
+        String title;
+        String linkSource;
+        String playlistKey;
+
+        private Change(ChangeType type, String jobId) {
+            this.type = type;
+            this.jobId = jobId;
+        }
+    }
+}
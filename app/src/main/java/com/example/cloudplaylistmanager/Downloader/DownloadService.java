@@ -10,14 +10,24 @@ import android.util.Log;
 
 import androidx.annotation.Nullable;
 
+import com.example.cloudplaylistmanager.Platforms.YoutubeUtilities;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlatformCompatUtility;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 /**
  * Preforms download operations on a service.
+ * Requests are run in order from a persistent {@link DownloadQueue}.
  * Extends {@link Service}.
  * TODO: Make it a foreground service (implies implementing notification)
  */
@@ -38,8 +48,14 @@ public class DownloadService extends Service {
     public static final String BROADCAST_NOTIFICATION_ERROR_MESSAGE = "download_broadcast_error_message";
 
 
+    private static final long WAKE_LOCK_TIMEOUT_MILLISECONDS = 120*60*1000L; /*120 minutes*/
+
     private PowerManager.WakeLock wakeLock;
     private WifiManager.WifiLock wifiLock;
+    private DownloadQueue downloadQueue;
+    private ExecutorService requestExecutor; //Adds requests to the queue in the order they arrive, off the Main Thread.
+    private boolean draining;
+    private int lastStartId;
 
 
     /**
@@ -47,92 +63,283 @@ public class DownloadService extends Service {
      * INTENT_URL_TAG must be defined as the download url.
      * INTENT_PARENT_UUID_TAG must be defined as the parent uuid of the playlist.
      * INTENT_PLAYLIST_TAG must be defined as if the download parameter is of a playlist or not.
+     * The request is added to the {@link DownloadQueue} on a background thread, since the queue
+     * writes to disk. When the service is restarted after the process was killed, the intent is
+     * null and the jobs left in the queue are resumed.
      * @param intent Intent that is being passed.
      */
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        String url = intent.getStringExtra(INTENT_URL_TAG);
-        String parentUUID = intent.getStringExtra(INTENT_PARENT_UUID_TAG);
-        boolean isPlaylist = intent.getBooleanExtra(INTENT_PLAYLIST_TAG,false);
-        if(isPlaylist) {
-            StartPlaylistDownload(url, parentUUID);
-        }
-        else {
-            StartAudioDownload(url, parentUUID);
-        }
+        String url = (intent != null) ? intent.getStringExtra(INTENT_URL_TAG) : null;
+        String parentUUID = (intent != null) ? intent.getStringExtra(INTENT_PARENT_UUID_TAG) : null;
+        boolean isPlaylist = intent != null && intent.getBooleanExtra(INTENT_PLAYLIST_TAG,false);
+        this.requestExecutor.execute(() -> {
+            if(url != null) {
+                this.downloadQueue.Enqueue(url, isPlaylist, (parentUUID != null && !parentUUID.isEmpty()) ? parentUUID : null);
+            }
+            synchronized(this) {
+                this.lastStartId = startId;
+            }
+            DrainQueue();
+        });
         return START_STICKY;
     }
 
     /**
-     * Downloads a given playlist using the PlatformCompatUtility.
-     * @param urlInput URL link to playlist
+     * Starts running the jobs of the queue one after the other on a background thread,
+     * unless they are already being run. The service stops itself once the queue is empty.
      */
-    public void StartPlaylistDownload(String urlInput, String uuid) {
+    private synchronized void DrainQueue() {
+        if(this.draining) {
+            return;
+        }
+        this.draining = true;
+
         //Starts wake and wifi lock.
         if(this.wakeLock != null && !this.wakeLock.isHeld()) {
-            this.wakeLock.acquire(120*60*1000L /*120 minutes*/);
+            this.wakeLock.acquire(WAKE_LOCK_TIMEOUT_MILLISECONDS);
         }
         if(this.wifiLock != null && !this.wifiLock.isHeld()) {
             this.wifiLock.acquire();
         }
 
-        //Downloads the playlist.
-        Log.d(LOG_TAG,"Downloading Playlist.");
-        PlatformCompatUtility.DownloadPlaylist(urlInput, new DownloadPlaylistListener() {
-            @Override
-            public void onComplete(PlaylistInfo playlist) {
-                //When the playlist is successfully downloaded, add the playlist to DataManager.
-                if(uuid != null && !uuid.isEmpty()) {
-                    DataManager.getInstance().CreateNewPlaylist(playlist,false,uuid);
+        Thread thread = new Thread(() -> {
+            while(true) {
+                DownloadQueue.Job job;
+                synchronized(this) {
+                    job = this.downloadQueue.Peek();
+                    if(job == null) {
+                        //Only stops if no request arrived since the last one that was queued.
+                        this.draining = false;
+                        ReleaseLocks();
+                        stopSelfResult(this.lastStartId);
+                        break;
+                    }
+                }
+                if(job.isPlaylist) {
+                    RunPlaylistJob(job);
                 }
                 else {
-                    DataManager.getInstance().CreateNewPlaylist(playlist,false,null);
+                    RunAudioJob(job);
                 }
+            }
+        });
+        thread.start();
+    }
+
+    /**
+     * Downloads a playlist job. The playlist is created before its items are fetched, every page
+     * of items starts downloading as soon as it is fetched, and every track is committed to the
+     * playlist as soon as it is downloaded, so a job that is interrupted keeps the tracks that it finished.
+     * @param job Playlist job.
+     */
+    private void RunPlaylistJob(DownloadQueue.Job job) {
+        Log.d(LOG_TAG,(job.tracks == null) ? "Downloading Playlist." : "Resuming Playlist Download.");
+
+        //Creates the playlist that the tracks are committed to. It is named after its url until the title is fetched.
+        if(job.playlistKey == null || DataManager.getInstance().GetPlaylistFromKey(job.playlistKey) == null) {
+            PlaylistInfo playlist = new PlaylistInfo();
+            playlist.setTitle((job.title != null) ? job.title : job.url);
+            playlist.setLinkSource((job.linkSource != null) ? job.linkSource : job.url);
+            String key = DataManager.getInstance().CreateNewPlaylist(playlist, false, job.parentKey);
+            //The playlist must be saved before the queue refers to it.
+            DataManager.getInstance().FlushPendingWrites();
+            this.downloadQueue.SetPlaylistKey(job, key);
+        }
+
+        //Re-commits the finished tracks, in case the process was killed before they were saved.
+        for(DownloadQueue.Track track : this.downloadQueue.GetTracks(job, DownloadQueue.TrackState.COMPLETED)) {
+            CommitTrack(job, track, track.audio);
+        }
 
-                BroadcastComplete();
-                stopSelf();
+        //Fetches the playlist items, unless an earlier run of the job already fetched all of them.
+        if(!job.tracksComplete) {
+            PlaylistInfo fetchedPlaylist = FetchAndDownloadTracks(job);
+            if(fetchedPlaylist != null) {
+                this.downloadQueue.SetTracksComplete(job, fetchedPlaylist.getTitle(), fetchedPlaylist.getLinkSource());
+                if(fetchedPlaylist.getTitle() != null) {
+                    DataManager.getInstance().RenamePlaylist(job.playlistKey, fetchedPlaylist.getTitle());
+                }
+            }
+            else if(job.tracks == null || job.tracks.isEmpty()) {
+                BroadcastError(-1, "Failed to fetch Playlist Items from API.");
+                DataManager.getInstance().RemovePlaylist(job.playlistKey, null);
+                this.downloadQueue.Remove(job);
+                return;
             }
+            else {
+                //Keeps the items of the pages that were fetched.
+                BroadcastError(0, "Failed to fetch every Playlist Item. Downloading the fetched items.");
+                this.downloadQueue.SetTracksComplete(job, job.title, job.linkSource);
+            }
+        }
 
-            @Override
-            public void onProgressUpdate(String message) {
-                BroadcastProgress(message);
+        //Downloads the remaining tracks, retrying failed ones until they run out of attempts.
+        ArrayList<DownloadQueue.Track> pendingTracks;
+        while(!(pendingTracks = this.downloadQueue.GetTracks(job, DownloadQueue.TrackState.PENDING)).isEmpty()) {
+            ArrayList<String> origins = new ArrayList<>();
+            for(DownloadQueue.Track track : pendingTracks) {
+                origins.add(track.origin);
             }
+            final ArrayList<DownloadQueue.Track> tracks = pendingTracks;
+            DataManager.getInstance().GetDownloadEngine().DownloadAll(origins, new DownloadEngineListener() {
+                @Override
+                public void onTrackComplete(int index, PlaybackAudioInfo audio) {
+                    DownloadQueue.Track track = tracks.get(index);
+                    CommitTrack(job, track, audio);
+                    downloadQueue.CompleteTrack(job, track, audio);
+                    BroadcastProgress("Downloaded: " + audio.getTitle());
+                }
 
-            @Override
-            public void onError(int attempt, String error) {
-                BroadcastError(attempt, error);
-                if(attempt == -1) {
-                    stopSelf();
+                @Override
+                public void onTrackError(int index, int attempt, String error) {
+                    if(attempt == DataManager.DOWNLOAD_UNAVAILABLE) {
+                        //Retrying an audio that can never be downloaded is pointless.
+                        downloadQueue.FailTrack(job, tracks.get(index));
+                        BroadcastError(0, tracks.get(index).origin + " is unavailable: " + error);
+                    }
+                    else if(attempt == -1) {
+                        BroadcastError(0, tracks.get(index).origin + " failed to download. Moving onto next song.");
+                    }
+                    else {
+                        BroadcastError(attempt, error);
+                    }
+                }
+
+                @Override
+                public void onProgressUpdate(int completed, int total, float progress) {
+                    BroadcastProgress("[" + completed + "/" + total + "] Download Progress: " + Math.round(progress) + "%");
+                }
+            });
+            for(DownloadQueue.Track track : tracks) {
+                if(track.state == DownloadQueue.TrackState.PENDING) {
+                    this.downloadQueue.FailTrackAttempt(job, track);
                 }
             }
-        });
+        }
+
+        //Failed tracks are retried by the next sync of the playlist, so it must not be skipped.
+        if(!this.downloadQueue.GetTracks(job, DownloadQueue.TrackState.FAILED).isEmpty()) {
+            YoutubeUtilities.InvalidatePlaylistCache(job.url);
+        }
+
+        DataManager.getInstance().FlushPendingWrites();
+        this.downloadQueue.Remove(job);
+        BroadcastComplete();
     }
 
     /**
-     * Downloads a given song using the PlatformCompatUtility.
-     * @param urlInput URL link to playlist
+     * Fetches the items of a playlist job page by page, and starts downloading the tracks of each
+     * page on the {@link DownloadEngine} as soon as the page is fetched. Waits for every started
+     * download, and counts a failed attempt for every track that did not download.
+     * @param job Playlist job.
+     * @return Fetched playlist. Null if fetching failed, in which case the tracks of the pages
+     * that were fetched are still part of the job.
      */
-    public void StartAudioDownload(String urlInput, String uuid) {
-        //Starts wake and wifi lock.
-        if(this.wakeLock != null && !this.wakeLock.isHeld()) {
-            this.wakeLock.acquire(10*60*1000L /*10 minutes*/);
+    private PlaylistInfo FetchAndDownloadTracks(DownloadQueue.Job job) {
+        DownloadEngine downloadEngine = DataManager.getInstance().GetDownloadEngine();
+        ArrayList<Future<?>> downloads = new ArrayList<>();
+        ArrayList<DownloadQueue.Track> startedTracks = new ArrayList<>();
+        AtomicInteger completed = new AtomicInteger(0);
+        final int[] fetchedCount = new int[1];
+
+        PlaylistInfo fetchedPlaylist = PlatformCompatUtility.FetchPlaylistFromUrl(job.url, page -> {
+            ArrayList<String> origins = new ArrayList<>();
+            ArrayList<Integer> positions = new ArrayList<>();
+            HashMap<String, Integer> order = page.GetItemsOrder();
+            for(PlaybackAudioInfo entry : page.getAllVideos()) {
+                Integer position = order.get(entry.getTitle());
+                origins.add(entry.getOrigin());
+                positions.add((position != null) ? position : fetchedCount[0] + origins.size() - 1);
+            }
+            fetchedCount[0] += origins.size();
+
+            //Tracks that an earlier run of the job already knows are downloaded later with the pending tracks.
+            for(DownloadQueue.Track track : this.downloadQueue.AddTracks(job, origins, positions)) {
+                startedTracks.add(track);
+                downloads.add(downloadEngine.Submit(track.origin, new DownloadListener() {
+                    @Override
+                    public void onComplete(PlaybackAudioInfo audio) {
+                        CommitTrack(job, track, audio);
+                        downloadQueue.CompleteTrack(job, track, audio);
+                        BroadcastProgress("[" + completed.incrementAndGet() + "/" + fetchedCount[0] + "] Downloaded: " + audio.getTitle());
+                    }
+
+                    @Override
+                    public void onProgressUpdate(float progress, long etaSeconds) {}
+
+                    @Override
+                    public void onError(int attempt, String error) {
+                        if(attempt == DataManager.DOWNLOAD_UNAVAILABLE) {
+                            //Retrying an audio that can never be downloaded is pointless.
+                            downloadQueue.FailTrack(job, track);
+                            BroadcastError(0, track.origin + " is unavailable: " + error);
+                        }
+                        else if(attempt == -1) {
+                            BroadcastError(0, track.origin + " failed to download. It will be retried.");
+                        }
+                        else {
+                            BroadcastError(attempt, error);
+                        }
+                    }
+                }));
+            }
+            BroadcastProgress("Fetched " + fetchedCount[0] + " Playlist Items.");
+        });
+
+        //Waits for the downloads of every fetched page.
+        for(Future<?> download : downloads) {
+            try {
+                download.get();
+            } catch(ExecutionException | InterruptedException e) {
+                Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "A download was interrupted.");
+                e.printStackTrace();
+            }
         }
-        if(this.wifiLock != null && !this.wifiLock.isHeld()) {
-            this.wifiLock.acquire();
+        for(DownloadQueue.Track track : startedTracks) {
+            if(track.state == DownloadQueue.TrackState.PENDING) {
+                this.downloadQueue.FailTrackAttempt(job, track);
+            }
+        }
+        return fetchedPlaylist;
+    }
+
+    /**
+     * Adds a downloaded track to the playlist of its job, at its position in the original playlist.
+     * @param job Playlist job.
+     * @param track Downloaded track.
+     * @param audio Downloaded audio.
+     */
+    private void CommitTrack(DownloadQueue.Job job, DownloadQueue.Track track, PlaybackAudioInfo audio) {
+        if(audio == null || audio.getTitle() == null) {
+            return;
         }
+        DataManager.getInstance().AddSongToPlaylist(job.playlistKey, audio, track.position);
+    }
 
-        //Downloads the song.
+    /**
+     * Downloads a single audio job.
+     * @param job Audio job.
+     */
+    private void RunAudioJob(DownloadQueue.Job job) {
         Log.d(LOG_TAG,"Downloading Audio.");
-        PlatformCompatUtility.DownloadSong(urlInput, new DownloadListener() {
+        String processedUrl = PlatformCompatUtility.ProcessUrl(job.url);
+        if(processedUrl == null) {
+            BroadcastError(-1, "Failed to Fetch URL.");
+            this.downloadQueue.Remove(job);
+            return;
+        }
+
+        final boolean[] completed = new boolean[1];
+        final boolean[] unavailable = new boolean[1];
+        DataManager.getInstance().DownloadSongToDirectoryFromUrlBlocking(processedUrl, new DownloadListener() {
             @Override
             public void onComplete(PlaybackAudioInfo audio) {
                 //Add the audio to the playlist.
-                if(uuid != null && !uuid.isEmpty()) {
-                    DataManager.getInstance().AddSongToPlaylist(uuid,audio);
+                if(job.parentKey != null) {
+                    DataManager.getInstance().AddSongToPlaylist(job.parentKey,audio);
                 }
-
-                BroadcastComplete();
-                stopSelf();
+                completed[0] = true;
             }
 
             @Override
@@ -142,12 +349,25 @@ public class DownloadService extends Service {
 
             @Override
             public void onError(int attempt, String error) {
-                BroadcastError(attempt, error);
-                if(attempt == -1) {
-                    stopSelf();
-                }
+                unavailable[0] = attempt == DataManager.DOWNLOAD_UNAVAILABLE;
+                BroadcastError((attempt < 0) ? 0 : attempt, error);
             }
         });
+
+        if(completed[0]) {
+            DataManager.getInstance().FlushPendingWrites();
+            this.downloadQueue.Remove(job);
+            BroadcastComplete();
+        }
+        else if(unavailable[0]) {
+            //Retrying an audio that can never be downloaded is pointless.
+            this.downloadQueue.Remove(job);
+            BroadcastError(-1, "Audio is unavailable.");
+        }
+        else if(!this.downloadQueue.FailJobAttempt(job)) {
+            this.downloadQueue.Remove(job);
+            BroadcastError(-1, "Download Attempts exceeded threshold.");
+        }
     }
 
     @Override
@@ -155,6 +375,12 @@ public class DownloadService extends Service {
         super.onCreate();
         Log.d(LOG_TAG,"Created");
 
+        //The service can be restarted without any activity, after the process was killed.
+        DataManager.Initialize(getApplicationContext());
+        this.downloadQueue = new DownloadQueue(getFilesDir());
+        this.requestExecutor = Executors.newSingleThreadExecutor();
+        this.draining = false;
+
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         this.wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,WAKE_LOCK_TAG);
         this.wifiLock = ((WifiManager)getApplicationContext().getSystemService(Context.WIFI_SERVICE)).createWifiLock(WifiManager.WIFI_MODE_FULL,WIFI_LOCK_TAG);
@@ -162,7 +388,11 @@ public class DownloadService extends Service {
 
     @Override
     public void onDestroy() {
+        this.requestExecutor.shutdown();
         ReleaseLocks();
+        if(DataManager.getInstance() != null) {
+            DataManager.getInstance().FlushPendingWrites();
+        }
         Log.d(LOG_TAG,"Destructor");
         super.onDestroy();
     }
@@ -0,0 +1,106 @@
+package com.example.cloudplaylistmanager.Downloader;
+
+import android.util.Log;
+
+import com.example.cloudplaylistmanager.Platforms.YoutubeUtilities;
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A download that is currently running, which later requests for the same origin attach to
+ * instead of starting their own. The request that started the download reports to it as a
+ * {@link DownloadListener}; progress and retries are forwarded to every attached request, and
+ * each of them receives the final result once the download finishes.
+ */
+public class InFlightDownload implements DownloadListener {
+    private static final String LOG_TAG = "InFlightDownload";
+
+    private final CopyOnWriteArrayList<DownloadListener> followers;
+    private final CountDownLatch finished;
+    private volatile PlaybackAudioInfo audio;
+    private volatile String error;
+    private volatile int errorCode;
+
+    /**
+     * Instantiates a new InFlightDownload object.
+     */
+    public InFlightDownload() {
+        this.followers = new CopyOnWriteArrayList<>();
+        this.finished = new CountDownLatch(1);
+        this.audio = null;
+        this.error = null;
+        this.errorCode = -1;
+    }
+
+    /**
+     * Returns the key that identifies downloads of the same audio. Youtube urls of the same
+     * video are written in many ways, so they are keyed by the video ID.
+     * @param url Url of the Audio source.
+     * @return Key of the download.
+     */
+    public static String GetKey(String url) {
+        String videoId = YoutubeUtilities.ExtractVideoIdFromUrl(url);
+        return (videoId != null) ? YoutubeUtilities.GetVideoWithYoutubeID(videoId) : url.trim();
+    }
+
+    /**
+     * Attaches a request for the same audio, then waits for the download to finish and reports
+     * its result to the request. Must not be called from the Main Thread.
+     * @param listener Listener of the attached request.
+     */
+    public void Join(DownloadListener listener) {
+        this.followers.add(listener);
+        try {
+            this.finished.await();
+        } catch(InterruptedException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Waiting for the download was interrupted.");
+            e.printStackTrace();
+            this.followers.remove(listener);
+            listener.onError(-1, "Download was interrupted.");
+            return;
+        }
+        this.followers.remove(listener);
+
+        if(this.audio != null) {
+            //Every request gets its own copy, since each may add it to a different playlist.
+            listener.onComplete(this.audio.Copy());
+        }
+        else {
+            listener.onError(this.errorCode, (this.error != null) ? this.error : "Download failed.");
+        }
+    }
+
+    /**
+     * Releases every attached request. Called once by the request that started the download,
+     * after it was removed from the registry of running downloads.
+     */
+    public void Finish() {
+        this.finished.countDown();
+    }
+
+    @Override
+    public void onComplete(PlaybackAudioInfo audio) {
+        this.audio = audio;
+    }
+
+    @Override
+    public void onProgressUpdate(float progress, long etaSeconds) {
+        for(DownloadListener follower : this.followers) {
+            follower.onProgressUpdate(progress, etaSeconds);
+        }
+    }
+
+    @Override
+    public void onError(int attempt, String error) {
+        if(attempt < 0) {
+            this.error = error;
+            this.errorCode = attempt;
+            return;
+        }
+        for(DownloadListener follower : this.followers) {
+            follower.onError(attempt, error);
+        }
+    }
+}
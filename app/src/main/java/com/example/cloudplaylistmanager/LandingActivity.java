@@ -11,6 +11,7 @@ import androidx.navigation.Navigation;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
+import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.databinding.ActivityLandingBinding;
 
 public class LandingActivity extends AppCompatActivity {
@@ -44,4 +45,13 @@ public class LandingActivity extends AppCompatActivity {
     public void onBackPressed() {
         //Do nothing.
     }
+
+    @Override
+    protected void onDestroy() {
+        //Writes any changes that are still waiting in the persistence queue.
+        if(DataManager.getInstance() != null) {
+            DataManager.getInstance().FlushPendingWrites();
+        }
+        super.onDestroy();
+    }
 }
\ No newline at end of file
@@ -66,7 +66,6 @@ public class MainActivity extends AppCompatActivity {
     public void LaunchLandingActivity() {
         //Initializes the saved data for the application.
         DataManager.Initialize(getApplicationContext());
-        DataManager.getInstance().ConstructPlaylistFromLocalFiles();
 
         long last = DataManager.getInstance().GetLastUpdateTime();
         long current = new Date().getTime();
@@ -188,6 +187,11 @@ public class MainActivity extends AppCompatActivity {
 
         @Override
         protected Integer doInBackground(Boolean... booleans) {
+            //The updater needs YoutubeDL, which is initialized in the background.
+            if(!DataManager.getInstance().AwaitDownloaderReady()) {
+                Log.e(LOG_TAG, "Failed to update YoutubeDL, it was not initialized");
+                return -1;
+            }
             try {
                 YoutubeDL.UpdateStatus status = YoutubeDL.getInstance().updateYoutubeDL(activity.get());
                 if(status == YoutubeDL.UpdateStatus.DONE) {
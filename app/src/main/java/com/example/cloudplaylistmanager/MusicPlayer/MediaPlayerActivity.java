@@ -13,8 +13,6 @@ import android.content.Intent;
 import android.content.ServiceConnection;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
@@ -29,9 +27,10 @@ import android.widget.TextView;
 import com.example.cloudplaylistmanager.R;
 import com.example.cloudplaylistmanager.RecyclerAdapters.RecyclerViewItemClickedListener;
 import com.example.cloudplaylistmanager.RecyclerAdapters.SongsRecyclerAdapter;
-import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
@@ -258,7 +257,7 @@ public class MediaPlayerActivity extends AppCompatActivity {
             public void onSongChange(PlaybackAudioInfo audio, int position) {
                 mediaPlayerTitle.setText(audio.getTitle());
                 mediaPlayerTitle.setSelected(true);
-                mediaPlayerIcon.setImageBitmap(GetMediaPlayerIcon(audio));
+                ThumbnailLoader.getInstance().Load(audio, ThumbnailDecoder.SizeBucket.PLAYER_ART, mediaPlayerIcon);
 
                 if(songRecyclerView != null && songRecyclerView.getLayoutManager() != null) {
                     songRecyclerView.getLayoutManager().scrollToPosition(position);
@@ -303,21 +302,6 @@ public class MediaPlayerActivity extends AppCompatActivity {
         });
     }
 
-    /**
-     * Gets the thumbnail bitmap of the audio.
-     * @param audio Audio information.
-     * @return Bitmap of the audio.
-     */
-    public Bitmap GetMediaPlayerIcon(PlaybackAudioInfo audio) {
-        Bitmap bitmap = DataManager.getInstance().GetThumbnailImage(audio);
-        if(bitmap != null) {
-            return bitmap;
-        }
-        else {
-            return BitmapFactory.decodeResource(getApplicationContext().getResources(),R.drawable.med_res);
-        }
-    }
-
     /**
      * Converts a time in milliseconds to a formatted string.
      * @param time Time in milliseconds.
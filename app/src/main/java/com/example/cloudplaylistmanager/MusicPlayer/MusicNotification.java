@@ -16,6 +16,7 @@ import androidx.core.app.NotificationCompat;
 import com.example.cloudplaylistmanager.R;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
 
 public class MusicNotification {
     private static final String LOG_TAG = "MusicNotification";
@@ -113,7 +114,7 @@ public class MusicNotification {
                 .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                 .setContentIntent(CreateContentIntent())
                 .setDeleteIntent(CreateActionIntent(NotificationReceiver.ACTION_DELETE))
-                .setLargeIcon(DataManager.getInstance().GetThumbnailImage(audio));
+                .setLargeIcon(DataManager.getInstance().GetThumbnailImage(audio, ThumbnailDecoder.SizeBucket.NOTIFICATION));
 
         //Sets button actions.
         builder.addAction(this.prevAction);
@@ -2,20 +2,30 @@ package com.example.cloudplaylistmanager.Platforms;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 
 import com.example.cloudplaylistmanager.BuildConfig;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.FetchPlaylistListener;
+import com.example.cloudplaylistmanager.Utils.FetchPlaylistPageListener;
+import com.example.cloudplaylistmanager.Utils.HttpResponseCache;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,6 +41,10 @@ public class YoutubeUtilities {
     private static final String VID_EXTRACT_PATTERN = "/^.*((youtu.be\\/)|(v\\/)|(\\/u\\/\\w\\/)|(embed\\/)|(watch\\?))\\??v?=?([^#\\&\\?]*).*/";
     private static final String PLAYLIST_EXTRACT_PATTERN = "list=([a-zA-Z0-9-_]+)&?";
     private static final String BASE_VIDEO_URL = "https://www.youtube.com/watch?v=";
+    private static final String PLAYLIST_ITEMS_URL = "https://www.googleapis.com/youtube/v3/playlistItems";
+    //Only the fields that are parsed are requested, see ParsePlaylistItems.
+    private static final String PLAYLIST_ITEMS_FIELDS = "nextPageToken,pageInfo/totalResults," +
+            "items/snippet(title,position,thumbnails/medium/url,resourceId/videoId,videoOwnerChannelTitle)";
 
 
     /**
@@ -69,55 +83,92 @@ public class YoutubeUtilities {
      * @param playlistListener Listener used to get the results/errors of this call.
      */
     public static void FetchPlaylistItems(String url, FetchPlaylistListener playlistListener) {
+        FetchPlaylistItems(url, null, playlistListener);
+    }
+
+    /**
+     * Fetches all videos in a youtube playlist with a given playlist url, reporting each page of
+     * videos as soon as it is parsed, so that the caller can start working on it while the
+     * remaining pages are fetched. The title of the playlist is fetched alongside the pages.
+     * It is required to implement {@link FetchPlaylistListener} to obtain the
+     * result of this call and to catch potential errors.
+     * @param url Url of the Youtube Playlist
+     * @param pageListener Listener that receives every page in order, with the position of each
+     *                     video in the playlist as its order. May be null.
+     * @param playlistListener Listener used to get the results/errors of this call.
+     */
+    public static void FetchPlaylistItems(String url, @Nullable FetchPlaylistPageListener pageListener,
+                                          FetchPlaylistListener playlistListener) {
+        FetchPlaylistItems(url, null, pageListener, playlistListener);
+    }
+
+    /**
+     * Fetches all videos in a youtube playlist with a given playlist url, starting from a first
+     * page that was already fetched, so that it is not requested again.
+     * It is required to implement {@link FetchPlaylistListener} to obtain the
+     * result of this call and to catch potential errors.
+     * @param url Url of the Youtube Playlist
+     * @param firstPage First page of the playlist, see {@link #IsPlaylistUnchanged(String, HttpResponseCache.Entry[], YoutubePlaylistInfo[])}.
+     *                  If null, the first page is fetched as well.
+     * @param pageListener Listener that receives every page in order, with the position of each
+     *                     video in the playlist as its order. May be null.
+     * @param playlistListener Listener used to get the results/errors of this call.
+     */
+    public static void FetchPlaylistItems(String url, @Nullable YoutubePlaylistInfo firstPage,
+                                          @Nullable FetchPlaylistPageListener pageListener,
+                                          FetchPlaylistListener playlistListener) {
         Thread thread = new Thread(() -> {
             String extractedPlaylistID = ExtractPlaylistIdFromUrl(url);
             if(extractedPlaylistID == null) {
                 playlistListener.onError("Invalid Playlist URL.");
+                return;
             }
 
+            //Gets the playlist's metadata (Title of the playlist) while the items are paged.
+            FutureTask<YoutubePlaylistInfo> playlistMetadata = new FutureTask<>(() -> GetPlaylistInfo(extractedPlaylistID));
+            new Thread(playlistMetadata).start();
 
             //Initializes Query Parameters for the HTTP Get Request.
-            HashMap<String,String> params = new HashMap<>();
-            params.put("part", "snippet");
-            params.put("maxResults", String.valueOf(MAX_RESULTS));
-            params.put("playlistId", extractedPlaylistID);
-            params.put("key",API_KEY);
+            HashMap<String,String> params = GetPlaylistItemsParams(extractedPlaylistID);
 
             //Makes the Get Request and parses results into a YtPlaylistInfo object.
-            JSONObject result = DataManager.MakeGetRequest("https://www.googleapis.com/youtube/v3/playlistItems",params);
-            if(result == null) {
-                playlistListener.onError("Initial Get Request from the API failed.");
-                return;
+            //The first page is not cached here, as its cached response marks the playlist as synced, see IsPlaylistUnchanged.
+            YoutubePlaylistInfo playlistInfo = firstPage;
+            if(playlistInfo == null) {
+                playlistInfo = DataManager.MakeGetRequest(PLAYLIST_ITEMS_URL, params, null,
+                        new HttpResponseCache.Entry[1], YoutubeUtilities::ParsePlaylistItems);
             }
-            YoutubePlaylistInfo playlistInfo = ParsePlaylistJsonResult(result);
             if(playlistInfo == null) {
-                playlistListener.onError("An Error occurred when parsing the Initial Get Request");
+                playlistListener.onError("Initial Get Request from the API failed.");
                 return;
             }
+            if(pageListener != null) {
+                pageListener.onPageFetched(playlistInfo);
+            }
 
             //If the playlist is larger than the max results, fetch the next list using the next page token.
-            int maxSongCount = playlistInfo.GetTotalResults();
-            int numSongs = MAX_RESULTS;
-            while (numSongs < maxSongCount) {
+            while(playlistInfo.GetNextPageToken() != null) {
                 params.put("pageToken",playlistInfo.GetNextPageToken());
-                result = DataManager.MakeGetRequest("https://www.googleapis.com/youtube/v3/playlistItems",params);
-                if(result == null) {
+                YoutubePlaylistInfo nextPlaylistInfo = DataManager.MakeGetRequest(PLAYLIST_ITEMS_URL, params, null, YoutubeUtilities::ParsePlaylistItems);
+                if(nextPlaylistInfo == null) {
                     playlistListener.onError("Subsequent Get Requests from the API failed.");
                     return;
                 }
-                YoutubePlaylistInfo nextPlaylistInfo = ParsePlaylistJsonResult(result);
-                if(nextPlaylistInfo == null) {
-                    playlistListener.onError("An Error occurred when parsing the Subsequent Get Requests");
-                    return;
+                if(pageListener != null) {
+                    pageListener.onPageFetched(nextPlaylistInfo);
                 }
                 playlistInfo.MergePlaylists(nextPlaylistInfo);
-                numSongs += MAX_RESULTS;
             }
 
-            //Gets the playlist's metadata (Title of the playlist)
-            YoutubePlaylistInfo playlistMetadata = GetPlaylistInfo(extractedPlaylistID);
-            if(playlistMetadata != null) {
-                playlistInfo.setTitle(playlistMetadata.getTitle());
+            YoutubePlaylistInfo metadata = null;
+            try {
+                metadata = playlistMetadata.get();
+            } catch(ExecutionException | InterruptedException e) {
+                Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
+                e.printStackTrace();
+            }
+            if(metadata != null && metadata.getTitle() != null) {
+                playlistInfo.setTitle(metadata.getTitle());
             }
             else {
                 playlistInfo.setTitle(extractedPlaylistID);
@@ -130,6 +181,82 @@ public class YoutubeUtilities {
         thread.start();
     }
 
+    /**
+     * Checks if the first page of a playlist is unchanged since the playlist was last synced,
+     * using a conditional request. The first page includes the total number of items, so any
+     * added or removed item changes it. A changed first page is not cached, it is handed back
+     * so that it is only cached with {@link #CommitPlaylistCache(String, HttpResponseCache.Entry)}
+     * once the sync succeeded. Must not be called from the Main Thread.
+     * @param url Url of the Youtube Playlist
+     * @param changedPage If not null, its first value is set to the changed first page, or to null if there is none.
+     * @param firstPage If not null, its first value is set to the parsed first page if it changed,
+     *                  so that it is passed to {@link #FetchPlaylistItems(String, YoutubePlaylistInfo, FetchPlaylistPageListener, FetchPlaylistListener)}
+     *                  instead of being requested again. Otherwise it is set to null.
+     * @return If the first page is unchanged. False if it was never synced or the request failed.
+     */
+    public static boolean IsPlaylistUnchanged(String url, @Nullable HttpResponseCache.Entry[] changedPage,
+                                              @Nullable YoutubePlaylistInfo[] firstPage) {
+        if(changedPage == null) {
+            changedPage = new HttpResponseCache.Entry[1];
+        }
+        changedPage[0] = null;
+        if(firstPage != null) {
+            firstPage[0] = null;
+        }
+        String extractedPlaylistID = ExtractPlaylistIdFromUrl(url);
+        if(extractedPlaylistID == null) {
+            return false;
+        }
+        boolean[] notModified = new boolean[1];
+        YoutubePlaylistInfo received = DataManager.MakeGetRequest(PLAYLIST_ITEMS_URL, GetPlaylistItemsParams(extractedPlaylistID),
+                notModified, changedPage, YoutubeUtilities::ParsePlaylistItems);
+        if(received != null && !notModified[0] && firstPage != null) {
+            firstPage[0] = received;
+        }
+        return received != null && notModified[0];
+    }
+
+    /**
+     * Caches the first page of a playlist once the playlist is synced, so that the next sync is
+     * skipped if the playlist does not change.
+     * @param url Url of the Youtube Playlist
+     * @param changedPage First page returned by {@link #IsPlaylistUnchanged(String, HttpResponseCache.Entry[], YoutubePlaylistInfo[])}. May be null.
+     */
+    public static void CommitPlaylistCache(String url, @Nullable HttpResponseCache.Entry changedPage) {
+        String extractedPlaylistID = ExtractPlaylistIdFromUrl(url);
+        if(extractedPlaylistID != null && changedPage != null) {
+            DataManager.CommitCachedRequest(PLAYLIST_ITEMS_URL, GetPlaylistItemsParams(extractedPlaylistID), changedPage);
+        }
+    }
+
+    /**
+     * Forgets the cached first page of a playlist, so that the next sync of the playlist is not
+     * skipped. Used when some items of an imported playlist failed to download.
+     * @param url Url of the Youtube Playlist
+     */
+    public static void InvalidatePlaylistCache(String url) {
+        String extractedPlaylistID = ExtractPlaylistIdFromUrl(url);
+        if(extractedPlaylistID != null) {
+            DataManager.InvalidateCachedRequest(PLAYLIST_ITEMS_URL, GetPlaylistItemsParams(extractedPlaylistID));
+        }
+    }
+
+    /**
+     * Creates the query parameters of the first page of a playlistItems request. The same
+     * parameters must be used every time, so that the responses are found in the cache.
+     * @param playlistId ID of the playlist on Youtube.
+     * @return Query parameters.
+     */
+    private static HashMap<String, String> GetPlaylistItemsParams(String playlistId) {
+        HashMap<String,String> params = new HashMap<>();
+        params.put("part", "snippet");
+        params.put("maxResults", String.valueOf(MAX_RESULTS));
+        params.put("playlistId", playlistId);
+        params.put("fields", PLAYLIST_ITEMS_FIELDS);
+        params.put("key",API_KEY);
+        return params;
+    }
+
     /**
      * Extracts the Playlist Metadata from the Youtube Playlist ID.
      * @param id ID of the playlist on Youtube.
@@ -166,49 +293,176 @@ public class YoutubeUtilities {
     }
 
     /**
-     * Parses the JSON result of the get request from Youtube's playlist list API.
-     * @param result JSON Result of the fetch api that will be parsed.
+     * Parses the result of the get request from Youtube's playlist list API as it is received.
+     * Only the fields that are used are read, everything else is skipped without being stored.
+     * @param reader Reader of the result that will be parsed.
      * @return YtPlaylistInfo object
+     * @throws IOException If the result could not be read or is malformed.
      */
-    private static YoutubePlaylistInfo ParsePlaylistJsonResult(JSONObject result) {
-        if(result == null) {
-            return null;
-        }
-        try {
-            //Parses the playlist item's metadata.
-            YoutubePlaylistInfo playlistResult = new YoutubePlaylistInfo();
-            if(result.has("nextPageToken")) {
-                playlistResult.SetNextPageToken(result.getString("nextPageToken"));
+    static YoutubePlaylistInfo ParsePlaylistItems(Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        YoutubePlaylistInfo playlistResult = new YoutubePlaylistInfo();
+        HashMap<String, Integer> order = new HashMap<>();
+
+        jsonReader.beginObject();
+        while(jsonReader.hasNext()) {
+            switch(jsonReader.nextName()) {
+                case "nextPageToken":
+                    playlistResult.SetNextPageToken(NextStringOrNull(jsonReader));
+                    break;
+                case "pageInfo":
+                    jsonReader.beginObject();
+                    while(jsonReader.hasNext()) {
+                        if(jsonReader.nextName().equals("totalResults") && jsonReader.peek() == JsonToken.NUMBER) {
+                            playlistResult.SetTotalResults(jsonReader.nextInt());
+                        }
+                        else {
+                            jsonReader.skipValue();
+                        }
+                    }
+                    jsonReader.endObject();
+                    break;
+                case "items":
+                    jsonReader.beginArray();
+                    while(jsonReader.hasNext()) {
+                        ParsePlaylistItem(jsonReader, playlistResult, order);
+                    }
+                    jsonReader.endArray();
+                    break;
+                default:
+                    jsonReader.skipValue();
             }
-            playlistResult.SetTotalResults(result.getJSONObject("pageInfo").getInt("totalResults"));
+        }
+        jsonReader.endObject();
 
-            JSONArray items = result.getJSONArray("items");
-            for (int index = 0; index < items.length(); index++) {
-                PlaybackAudioInfo video = new PlaybackAudioInfo();
+        playlistResult.SetItemsOrder(order);
+        return playlistResult;
+    }
 
-                JSONObject item = items.getJSONObject(index).getJSONObject("snippet");
-                if(item.has("title")) {
-                    video.setTitle(item.getString("title"));
-                }
-                if(item.getJSONObject("thumbnails").has("medium")) {
-                    video.setThumbnailSource(item.getJSONObject("thumbnails").getJSONObject("medium").getString("url"));
-                    video.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.STREAM);
-                }
-                if(!item.has("videoOwnerChannelTitle")) {
-                    continue;
+    /**
+     * Parses a single item of the result of Youtube's playlist list API, and adds it to the playlist.
+     * Items that have no owner, such as private or deleted videos, are skipped.
+     * @param jsonReader Reader positioned at the item.
+     * @param playlistResult Playlist that the item is added to.
+     * @param order Order of the items in the playlist on Youtube, that the position of the item is added to.
+     * @throws IOException If the item could not be read or is malformed.
+     */
+    private static void ParsePlaylistItem(JsonReader jsonReader, YoutubePlaylistInfo playlistResult,
+                                          HashMap<String, Integer> order) throws IOException {
+        String title = null;
+        String thumbnail = null;
+        String videoId = null;
+        Integer position = null;
+        boolean hasOwner = false;
+
+        jsonReader.beginObject();
+        while(jsonReader.hasNext()) {
+            if(!jsonReader.nextName().equals("snippet")) {
+                jsonReader.skipValue();
+                continue;
+            }
+            jsonReader.beginObject();
+            while(jsonReader.hasNext()) {
+                switch(jsonReader.nextName()) {
+                    case "title":
+                        title = NextStringOrNull(jsonReader);
+                        break;
+                    case "position":
+                        if(jsonReader.peek() == JsonToken.NUMBER) {
+                            position = jsonReader.nextInt();
+                        }
+                        else {
+                            jsonReader.skipValue();
+                        }
+                        break;
+                    case "thumbnails":
+                        thumbnail = NextMediumThumbnail(jsonReader);
+                        break;
+                    case "resourceId":
+                        jsonReader.beginObject();
+                        while(jsonReader.hasNext()) {
+                            if(jsonReader.nextName().equals("videoId")) {
+                                videoId = NextStringOrNull(jsonReader);
+                            }
+                            else {
+                                jsonReader.skipValue();
+                            }
+                        }
+                        jsonReader.endObject();
+                        break;
+                    case "videoOwnerChannelTitle":
+                        hasOwner = NextStringOrNull(jsonReader) != null;
+                        break;
+                    default:
+                        jsonReader.skipValue();
                 }
+            }
+            jsonReader.endObject();
+        }
+        jsonReader.endObject();
 
-                video.setOrigin(BASE_VIDEO_URL + item.getJSONObject("resourceId").getString("videoId"));
-                video.setAudioType(PlaybackAudioInfo.PlaybackMediaType.UNKNOWN);
+        if(!hasOwner || videoId == null) {
+            return;
+        }
+        PlaybackAudioInfo video = new PlaybackAudioInfo();
+        if(title != null) {
+            video.setTitle(title);
+        }
+        if(thumbnail != null) {
+            video.setThumbnailSource(thumbnail);
+            video.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.STREAM);
+        }
+        video.setOrigin(BASE_VIDEO_URL + videoId);
+        video.setAudioType(PlaybackAudioInfo.PlaybackMediaType.UNKNOWN);
 
-                playlistResult.AddAudioToPlaylist(video);
+        playlistResult.AddAudioToPlaylist(video);
+        //Keeps the order of the items in the playlist on Youtube.
+        if(position != null && title != null) {
+            order.put(title, position);
+        }
+    }
+
+    /**
+     * Reads the url of the medium thumbnail from the thumbnails of an item.
+     * @param jsonReader Reader positioned at the thumbnails object.
+     * @return Url of the medium thumbnail. Null if it has none.
+     * @throws IOException If the thumbnails could not be read or are malformed.
+     */
+    private static String NextMediumThumbnail(JsonReader jsonReader) throws IOException {
+        String url = null;
+        jsonReader.beginObject();
+        while(jsonReader.hasNext()) {
+            if(!jsonReader.nextName().equals("medium")) {
+                jsonReader.skipValue();
+                continue;
             }
-            return playlistResult;
-        } catch(Exception e) {
-            Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
-            e.printStackTrace();
-            return null;
+            jsonReader.beginObject();
+            while(jsonReader.hasNext()) {
+                if(jsonReader.nextName().equals("url")) {
+                    url = NextStringOrNull(jsonReader);
+                }
+                else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
         }
+        jsonReader.endObject();
+        return url;
+    }
+
+    /**
+     * Reads a string value, treating a null value as missing.
+     * @param jsonReader Reader positioned at the value.
+     * @return The string. Null if the value is not a string.
+     * @throws IOException If the value could not be read.
+     */
+    private static String NextStringOrNull(JsonReader jsonReader) throws IOException {
+        if(jsonReader.peek() == JsonToken.STRING) {
+            return jsonReader.nextString();
+        }
+        jsonReader.skipValue();
+        return null;
     }
 
     /**
@@ -274,8 +528,8 @@ public class YoutubeUtilities {
         }
 
         public void MergePlaylists(YoutubePlaylistInfo other) {
-            this.insertedVideos.putAll(other.insertedVideos);
-            UpdateAllVideos();
+            AddAll(other.insertedVideos.values());
+            SetItemsOrder(other.GetItemsOrder());
             this.nextPageToken = other.nextPageToken;
         }
     }
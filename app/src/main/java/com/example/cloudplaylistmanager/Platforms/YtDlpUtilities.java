@@ -0,0 +1,161 @@
+package com.example.cloudplaylistmanager.Platforms;
+
+import android.util.Log;
+
+import com.example.cloudplaylistmanager.Utils.DataManager;
+import com.example.cloudplaylistmanager.Utils.FetchPlaylistListener;
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.yausername.youtubedl_android.YoutubeDL;
+import com.yausername.youtubedl_android.YoutubeDLRequest;
+import com.yausername.youtubedl_android.YoutubeDLResponse;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+
+
+/**
+ * Utility class that lists playlists of any platform supported by the downloader, without
+ * needing a platform API. The whole playlist is listed by a single flat-playlist run, which
+ * only reads the playlist pages and not the page of every entry.
+ */
+public class YtDlpUtilities {
+    private static final String LOG_TAG = "YtDlpUtilities";
+    private static final String YOUTUBE_EXTRACTOR_KEY = "Youtube";
+    private static final String PRIVATE_VIDEO_TITLE = "[Private video]";
+    private static final String DELETED_VIDEO_TITLE = "[Deleted video]";
+
+    /**
+     * Fetches all entries of a playlist with a given playlist url.
+     * It is required to implement {@link FetchPlaylistListener} to obtain the
+     * result of this call and to catch potential errors.
+     * @param url Url of the playlist.
+     * @param playlistListener Listener used to get the results/errors of this call.
+     */
+    public static void FetchPlaylistItems(String url, FetchPlaylistListener playlistListener) {
+        Thread thread = new Thread(() -> {
+            if(!DataManager.getInstance().AwaitDownloaderReady()) {
+                playlistListener.onError("Downloader failed to initialize on startup, thus it is in a failed state.");
+                return;
+            }
+
+            YoutubeDLRequest request = new YoutubeDLRequest(url);
+            request.addOption("--flat-playlist");
+            request.addOption("--dump-single-json");
+            request.addOption("--no-check-certificate");
+
+            try {
+                YoutubeDLResponse response = YoutubeDL.getInstance().execute(request);
+                PlaylistInfo playlistInfo = ParseFlatPlaylistJsonResult(new JSONObject(response.getOut()));
+                if(playlistInfo == null) {
+                    playlistListener.onError("An Error occurred when parsing the playlist entries.");
+                    return;
+                }
+                playlistInfo.setLinkSource(url);
+                playlistListener.onComplete(playlistInfo);
+            } catch(Exception e) {
+                Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
+                e.printStackTrace();
+                playlistListener.onError("Failed to list the playlist entries.");
+            }
+        });
+
+        thread.start();
+    }
+
+    /**
+     * Parses the JSON result of a flat-playlist run.
+     * @param result JSON Result of the run that will be parsed.
+     * @return Playlist of the entries, in the order of the source. Null if the result is not a playlist.
+     */
+    static PlaylistInfo ParseFlatPlaylistJsonResult(JSONObject result) {
+        try {
+            if(!result.has("entries")) {
+                return null;
+            }
+            PlaylistInfo playlistInfo = new PlaylistInfo();
+            playlistInfo.setTitle((OptString(result, "title") != null) ? OptString(result, "title") : result.optString("id"));
+
+            JSONArray entries = result.getJSONArray("entries");
+            HashMap<String, Integer> order = new HashMap<>();
+            for(int index = 0; index < entries.length(); index++) {
+                JSONObject entry = entries.optJSONObject(index);
+                if(entry == null) {
+                    continue;
+                }
+                String origin = GetEntryOrigin(entry);
+                String title = OptString(entry, "title");
+                if(origin == null || title == null ||
+                        title.equals(PRIVATE_VIDEO_TITLE) || title.equals(DELETED_VIDEO_TITLE)) {
+                    continue;
+                }
+
+                PlaybackAudioInfo video = new PlaybackAudioInfo();
+                video.setTitle(title);
+                String thumbnail = GetEntryThumbnail(entry);
+                if(thumbnail != null) {
+                    video.setThumbnailSource(thumbnail);
+                    video.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.STREAM);
+                }
+                video.setOrigin(origin);
+                video.setAudioType(PlaybackAudioInfo.PlaybackMediaType.UNKNOWN);
+
+                playlistInfo.AddAudioToPlaylist(video);
+                //Keeps the order of the items in the source playlist.
+                order.put(title, index);
+            }
+            playlistInfo.SetItemsOrder(order);
+            return playlistInfo;
+        } catch(Exception e) {
+            Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Gets the url that a flat playlist entry can be downloaded from.
+     * @param entry Flat playlist entry.
+     * @return Url of the entry. Null if it has none.
+     */
+    private static String GetEntryOrigin(JSONObject entry) {
+        String id = OptString(entry, "id");
+        if(id != null && YOUTUBE_EXTRACTOR_KEY.equals(entry.optString("ie_key"))) {
+            //Keeps the same origin as the Youtube API, so that synced playlists match.
+            return YoutubeUtilities.GetVideoWithYoutubeID(id);
+        }
+        String url = OptString(entry, "url");
+        if(url != null && url.startsWith("http")) {
+            return url;
+        }
+        return OptString(entry, "webpage_url");
+    }
+
+    /**
+     * Gets the thumbnail of a flat playlist entry. The last listed thumbnail is the largest.
+     * @param entry Flat playlist entry.
+     * @return Url of the thumbnail. Null if it has none.
+     */
+    private static String GetEntryThumbnail(JSONObject entry) {
+        JSONArray thumbnails = entry.optJSONArray("thumbnails");
+        if(thumbnails != null && thumbnails.length() > 0) {
+            JSONObject thumbnail = thumbnails.optJSONObject(thumbnails.length() - 1);
+            if(thumbnail != null && OptString(thumbnail, "url") != null) {
+                return OptString(thumbnail, "url");
+            }
+        }
+        return OptString(entry, "thumbnail");
+    }
+
+    /**
+     * Gets a string field of a JSON object, treating a missing field and a null field alike.
+     * @param object JSON object.
+     * @param name Name of the field.
+     * @return Value of the field. Null if it is missing or null.
+     */
+    private static String OptString(JSONObject object, String name) {
+        return object.isNull(name) ? null : object.optString(name);
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.cloudplaylistmanager.RecyclerAdapters;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,9 +12,10 @@ import androidx.annotation.StringRes;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.cloudplaylistmanager.R;
-import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 
 
 import java.util.ArrayList;
@@ -95,21 +95,28 @@ public class PlaylistRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
             PlaylistRecyclerAdapter.ViewHolderItem viewHolder = (PlaylistRecyclerAdapter.ViewHolderItem) holder;
             PlaylistInfo currentPlaylist = this.playlist.get(position - 1);
             viewHolder.title.setText(currentPlaylist.getTitle());
-            viewHolder.other.setText(new String(" " + currentPlaylist.getAllVideos().size() + " songs"));
+            viewHolder.other.setText(new String(" " + currentPlaylist.GetTrackCount() + " songs"));
 
             //Sets the icon of the playlist.
-            if(!currentPlaylist.getAllVideos().iterator().hasNext()) {
+            PlaybackAudioInfo sourceAudio = currentPlaylist.GetCoverAudio();
+            if(sourceAudio == null) {
+                ThumbnailLoader.getInstance().Cancel(viewHolder.icon);
                 viewHolder.icon.setImageResource(R.drawable.med_res);
                 return;
             }
-            PlaybackAudioInfo sourceAudio = currentPlaylist.getAllVideos().iterator().next();
-            Bitmap bitmap = DataManager.getInstance().GetThumbnailImage(sourceAudio);
-            if(bitmap != null) {
-                viewHolder.icon.setImageBitmap(bitmap);
-            }
-            else {
-                viewHolder.icon.setImageResource(R.drawable.med_res);
-            }
+            ThumbnailLoader.getInstance().Load(sourceAudio, ThumbnailDecoder.SizeBucket.LIST_ICON, viewHolder.icon);
+        }
+    }
+
+    /**
+     * Stops loading the thumbnail of an item that is recycled.
+     * @param holder Recycled viewholder.
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if(holder instanceof PlaylistRecyclerAdapter.ViewHolderItem) {
+            ThumbnailLoader.getInstance().Cancel(((PlaylistRecyclerAdapter.ViewHolderItem) holder).icon);
         }
     }
 
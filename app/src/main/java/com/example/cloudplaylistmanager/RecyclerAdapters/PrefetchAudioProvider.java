@@ -0,0 +1,7 @@
+package com.example.cloudplaylistmanager.RecyclerAdapters;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+
+public interface PrefetchAudioProvider {
+    PlaybackAudioInfo getAudioAtPosition(int position);
+}
@@ -1,9 +1,7 @@
 package com.example.cloudplaylistmanager.RecyclerAdapters;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
 import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,11 +14,11 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.cloudplaylistmanager.R;
-import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 
 /**
@@ -97,23 +95,16 @@ public class SelectItemsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             }
             viewHolder.checkBox.setChecked(playlistInfo.second);
             viewHolder.title.setText(playlistInfo.first.getTitle());
-            viewHolder.other.setText(new String(" " + playlistInfo.first.getAllVideos().size() + " songs"));
+            viewHolder.other.setText(new String(" " + playlistInfo.first.GetTrackCount() + " songs"));
 
             //Sets the icon of the playlist.
-            if(!playlistInfo.first.getAllVideos().iterator().hasNext()) {
+            PlaybackAudioInfo sourceAudio = playlistInfo.first.GetCoverAudio();
+            if(sourceAudio == null) {
+                ThumbnailLoader.getInstance().Cancel(viewHolder.icon);
                 viewHolder.icon.setImageResource(R.drawable.med_res);
                 return;
             }
-            PlaybackAudioInfo sourceAudio = playlistInfo.first.getAllVideos().iterator().next();
-            Bitmap exist = DataManager.getInstance().GetThumbnailImageCache(sourceAudio);
-            if(exist != null) {
-                viewHolder.icon.setImageBitmap(exist);
-            }
-            else {
-                viewHolder.icon.setImageResource(R.drawable.med_res);
-                SelectItemsRecyclerAdapter.AsyncBitmapRequest request = new SelectItemsRecyclerAdapter.AsyncBitmapRequest(viewHolder.icon);
-                request.execute(sourceAudio);
-            }
+            ThumbnailLoader.getInstance().Load(sourceAudio, ThumbnailDecoder.SizeBucket.LIST_ICON, viewHolder.icon);
         }
         else {
             SelectItemsRecyclerAdapter.ViewHolderAudio viewHolder = (SelectItemsRecyclerAdapter.ViewHolderAudio) holder;
@@ -131,15 +122,22 @@ public class SelectItemsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             viewHolder.title.setText(audioInfo.first.getTitle());
 
             //Sets the icon of the audio item.
-            Bitmap exist = DataManager.getInstance().GetThumbnailImageCache(audioInfo.first);
-            if(exist != null) {
-                viewHolder.icon.setImageBitmap(exist);
-            }
-            else {
-                viewHolder.icon.setImageResource(R.drawable.med_res);
-                SelectItemsRecyclerAdapter.AsyncBitmapRequest request = new SelectItemsRecyclerAdapter.AsyncBitmapRequest(viewHolder.icon);
-                request.execute(audioInfo.first);
-            }
+            ThumbnailLoader.getInstance().Load(audioInfo.first, ThumbnailDecoder.SizeBucket.LIST_ICON, viewHolder.icon);
+        }
+    }
+
+    /**
+     * Stops loading the thumbnail of an item that is recycled.
+     * @param holder Recycled viewholder.
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if(holder instanceof SelectItemsRecyclerAdapter.ViewHolderPlaylist) {
+            ThumbnailLoader.getInstance().Cancel(((SelectItemsRecyclerAdapter.ViewHolderPlaylist) holder).icon);
+        }
+        else if(holder instanceof SelectItemsRecyclerAdapter.ViewHolderAudio) {
+            ThumbnailLoader.getInstance().Cancel(((SelectItemsRecyclerAdapter.ViewHolderAudio) holder).icon);
         }
     }
 
@@ -223,32 +221,4 @@ public class SelectItemsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             });
         }
     }
-
-    /**
-     * AsyncTask class that asynchronously processes/fetches the bitmap of an audio.
-     * Extends {@link AsyncTask}
-     */
-    private static class AsyncBitmapRequest extends AsyncTask<PlaybackAudioInfo, Integer, Bitmap> {
-        private final WeakReference<ImageView> viewReference;
-
-        public AsyncBitmapRequest(ImageView view) {
-            this.viewReference = new WeakReference<>(view);
-        }
-
-        @Override
-        protected Bitmap doInBackground(PlaybackAudioInfo... params) {
-            PlaybackAudioInfo audio = params[0];
-            return DataManager.getInstance().GetThumbnailImage(audio);
-        }
-
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            if(this.viewReference.get() != null && bitmap != null) {
-                ImageView view = this.viewReference.get();
-                view.setImageBitmap(bitmap);
-            }
-        }
-    }
 }
-
-
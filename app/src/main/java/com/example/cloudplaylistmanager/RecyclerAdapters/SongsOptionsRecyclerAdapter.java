@@ -1,8 +1,6 @@
 package com.example.cloudplaylistmanager.RecyclerAdapters;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -15,11 +13,12 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.cloudplaylistmanager.R;
-import com.example.cloudplaylistmanager.Utils.DataManager;
+import com.example.cloudplaylistmanager.Utils.DataChangeEvent;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -28,7 +27,7 @@ import java.util.Collections;
  * This Recycler View can also have an "ADD" button placed on top of all of the items.
  * Extends {@link RecyclerView.Adapter}
  */
-public class SongsOptionsRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
+public class SongsOptionsRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements PrefetchAudioProvider {
     public static final int ADD_ITEM_TOKEN = -1; //Token that uniquely identifies the add button
 
     private Context context;
@@ -100,15 +99,19 @@ public class SongsOptionsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVi
             viewHolder.title.setText(audio.getTitle());
 
             //Sets image of the audio.
-            Bitmap exist = DataManager.getInstance().GetThumbnailImageCache(audio);
-            if(exist != null) {
-                viewHolder.icon.setImageBitmap(exist);
-            }
-            else {
-                viewHolder.icon.setImageResource(R.drawable.med_res);
-                SongsOptionsRecyclerAdapter.AsyncBitmapRequest request = new SongsOptionsRecyclerAdapter.AsyncBitmapRequest(viewHolder.icon);
-                request.execute(audio);
-            }
+            ThumbnailLoader.getInstance().Load(audio, ThumbnailDecoder.SizeBucket.LIST_ICON, viewHolder.icon);
+        }
+    }
+
+    /**
+     * Stops loading the thumbnail of an item that is recycled.
+     * @param holder Recycled viewholder.
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if(holder instanceof SongsOptionsRecyclerAdapter.ViewHolderItem) {
+            ThumbnailLoader.getInstance().Cancel(((SongsOptionsRecyclerAdapter.ViewHolderItem) holder).icon);
         }
     }
 
@@ -146,6 +149,34 @@ public class SongsOptionsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVi
         notifyDataSetChanged();
     }
 
+    /**
+     * Applies a single audio insertion or removal to the recycler view items. If the items are
+     * not in the state the change was made from, for example because changes were missed, all
+     * items are re-bound instead.
+     * @param event Track change of the playlist.
+     * @param playlist Playlist data after the change.
+     */
+    public void applyTrackChange(DataChangeEvent event, PlaylistInfo playlist) {
+        ArrayList<PlaybackAudioInfo> playlistAudios = playlist.getAllVideos();
+        int position = event.getPosition();
+        int offset = this.addButtonIncluded ? 1 : 0;
+        if(event.getType() == DataChangeEvent.Type.TRACKS_INSERTED &&
+                this.audios.size() + 1 == playlistAudios.size() && position <= this.audios.size() &&
+                playlistAudios.get(position).getTitle().equals(event.getAudioTitle())) {
+            this.audios.add(position, playlistAudios.get(position));
+            notifyItemInserted(position + offset);
+        }
+        else if(event.getType() == DataChangeEvent.Type.TRACKS_REMOVED &&
+                this.audios.size() - 1 == playlistAudios.size() && position < this.audios.size() &&
+                this.audios.get(position).getTitle().equals(event.getAudioTitle())) {
+            this.audios.remove(position);
+            notifyItemRemoved(position + offset);
+        }
+        else {
+            updateData(playlist);
+        }
+    }
+
     /**
      * Returns the list of audio items in the recycler view.
      * @return List of audio items.
@@ -154,6 +185,20 @@ public class SongsOptionsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVi
         return this.audios;
     }
 
+    /**
+     * Returns the audio shown at a position of the recycler view.
+     * @param position Position of the item.
+     * @return Audio item. Null if the position is the add button or out of range.
+     */
+    @Override
+    public PlaybackAudioInfo getAudioAtPosition(int position) {
+        int index = this.addButtonIncluded ? position - 1 : position;
+        if(index < 0 || index >= this.audios.size()) {
+            return null;
+        }
+        return this.audios.get(index);
+    }
+
     /**
      * Swaps an item in the recycler view.
      * @param fromPosition Original position of the item.
@@ -249,30 +294,4 @@ public class SongsOptionsRecyclerAdapter extends RecyclerView.Adapter<RecyclerVi
             });
         }
     }
-
-    /**
-     * AsyncTask class that asynchronously processes/fetches the bitmap of an audio.
-     * Extends {@link AsyncTask}
-     */
-    private static class AsyncBitmapRequest extends AsyncTask<PlaybackAudioInfo, Integer, Bitmap> {
-        private final WeakReference<ImageView> viewReference;
-
-        public AsyncBitmapRequest(ImageView view) {
-            this.viewReference = new WeakReference<>(view);
-        }
-
-        @Override
-        protected Bitmap doInBackground(PlaybackAudioInfo... params) {
-            PlaybackAudioInfo audio = params[0];
-            return DataManager.getInstance().GetThumbnailImage(audio);
-        }
-
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            if(this.viewReference.get() != null && bitmap != null) {
-                ImageView view = this.viewReference.get();
-                view.setImageBitmap(bitmap);
-            }
-        }
-    }
 }
@@ -1,8 +1,6 @@
 package com.example.cloudplaylistmanager.RecyclerAdapters;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,11 +11,11 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.cloudplaylistmanager.R;
-import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 
 /**
@@ -94,15 +92,19 @@ public class SongsRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.View
             viewHolder.title.setText(audio.getTitle());
 
             //Gets the image of the audio.
-            Bitmap exist = DataManager.getInstance().GetThumbnailImageCache(audio);
-            if(exist != null) {
-                viewHolder.icon.setImageBitmap(exist);
-            }
-            else {
-                viewHolder.icon.setImageResource(R.drawable.med_res);
-                AsyncBitmapRequest request = new AsyncBitmapRequest(viewHolder.icon);
-                request.execute(audio);
-            }
+            ThumbnailLoader.getInstance().Load(audio, ThumbnailDecoder.SizeBucket.LIST_ICON, viewHolder.icon);
+        }
+    }
+
+    /**
+     * Stops loading the thumbnail of an item that is recycled.
+     * @param holder Recycled viewholder.
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if(holder instanceof SongsRecyclerAdapter.ViewHolderItem) {
+            ThumbnailLoader.getInstance().Cancel(((SongsRecyclerAdapter.ViewHolderItem) holder).icon);
         }
     }
 
@@ -196,30 +198,4 @@ public class SongsRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.View
             });
         }
     }
-
-    /**
-     * AsyncTask class that asynchronously processes/fetches the bitmap of an audio.
-     * Extends {@link AsyncTask}
-     */
-    private static class AsyncBitmapRequest extends AsyncTask<PlaybackAudioInfo, Integer, Bitmap> {
-        private final WeakReference<ImageView> viewReference;
-
-        public AsyncBitmapRequest(ImageView view) {
-            this.viewReference = new WeakReference<>(view);
-        }
-
-        @Override
-        protected Bitmap doInBackground(PlaybackAudioInfo... params) {
-            PlaybackAudioInfo audio = params[0];
-            return DataManager.getInstance().GetThumbnailImage(audio);
-        }
-
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            if(this.viewReference.get() != null && bitmap != null) {
-                ImageView view = this.viewReference.get();
-                view.setImageBitmap(bitmap);
-            }
-        }
-    }
 }
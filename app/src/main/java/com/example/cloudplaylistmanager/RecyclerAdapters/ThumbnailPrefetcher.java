@@ -0,0 +1,103 @@
+package com.example.cloudplaylistmanager.RecyclerAdapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
+
+/**
+ * Scroll listener that decodes the thumbnails of the rows about to scroll into view, so that
+ * they are cached by the time the rows are bound. The next {@link #PREFETCH_DISTANCE} rows past
+ * the visible range, in the direction of the scroll, are prefetched through {@link ThumbnailLoader}.
+ * Prefetching pauses during a fling, as the rows would be skipped past before being shown,
+ * and resumes once the list settles.
+ * Extends {@link RecyclerView.OnScrollListener}
+ */
+public class ThumbnailPrefetcher extends RecyclerView.OnScrollListener {
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private final LinearLayoutManager layoutManager;
+    private final PrefetchAudioProvider audioProvider;
+    private final ThumbnailDecoder.SizeBucket sizeBucket;
+    private int scrollState;
+    private int scrollDirection;
+    private int lastPrefetchEdge;
+
+    /**
+     * Instantiates a new ThumbnailPrefetcher object.
+     * @param layoutManager Layout manager of the recycler view.
+     * @param audioProvider Provides the audio shown at each position.
+     * @param sizeBucket Size that the thumbnails are shown at.
+     */
+    public ThumbnailPrefetcher(LinearLayoutManager layoutManager, PrefetchAudioProvider audioProvider,
+                               ThumbnailDecoder.SizeBucket sizeBucket) {
+        this.layoutManager = layoutManager;
+        this.audioProvider = audioProvider;
+        this.sizeBucket = sizeBucket;
+        this.scrollState = RecyclerView.SCROLL_STATE_IDLE;
+        this.scrollDirection = 1;
+        this.lastPrefetchEdge = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Pauses prefetching during a fling and prefetches ahead once it settles.
+     * @param recyclerView Recycler view that is scrolled.
+     * @param newState New scroll state.
+     */
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        this.scrollState = newState;
+        if(newState == RecyclerView.SCROLL_STATE_SETTLING) {
+            ThumbnailLoader.getInstance().CancelPrefetches();
+            this.lastPrefetchEdge = RecyclerView.NO_POSITION;
+        }
+        else if(newState == RecyclerView.SCROLL_STATE_IDLE) {
+            PrefetchAhead();
+        }
+    }
+
+    /**
+     * Prefetches the rows ahead of the scroll, unless the list is flinging.
+     * @param recyclerView Recycler view that is scrolled.
+     * @param dx Horizontal scroll distance.
+     * @param dy Vertical scroll distance.
+     */
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if(dy == 0) {
+            return;
+        }
+        this.scrollDirection = (dy > 0) ? 1 : -1;
+        if(this.scrollState != RecyclerView.SCROLL_STATE_SETTLING) {
+            PrefetchAhead();
+        }
+    }
+
+    /**
+     * Prefetches the rows past the visible range, in the direction of the scroll.
+     * Does nothing if the edge of the visible range did not move since the last prefetch.
+     */
+    private void PrefetchAhead() {
+        int edge = (this.scrollDirection > 0) ? this.layoutManager.findLastVisibleItemPosition() :
+                this.layoutManager.findFirstVisibleItemPosition();
+        if(edge == RecyclerView.NO_POSITION || edge == this.lastPrefetchEdge) {
+            return;
+        }
+        this.lastPrefetchEdge = edge;
+
+        int itemCount = this.layoutManager.getItemCount();
+        for(int offset = 1; offset <= PREFETCH_DISTANCE; offset++) {
+            int position = edge + offset * this.scrollDirection;
+            if(position < 0 || position >= itemCount) {
+                break;
+            }
+            PlaybackAudioInfo audio = this.audioProvider.getAudioAtPosition(position);
+            if(audio != null) {
+                ThumbnailLoader.getInstance().Prefetch(audio, this.sizeBucket);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.cloudplaylistmanager.Utils;
+
+/**
+ * Describes a single change to the data held by {@link DataManager}.
+ * Events are delivered to every registered {@link DataChangeListener} on the main thread.
+ */
+public class DataChangeEvent {
+    public static final int NO_POSITION = -1;
+
+    public enum Type {
+        PLAYLIST_ADDED,
+        PLAYLIST_REMOVED,
+        PLAYLIST_RENAMED,
+        PLAYLIST_VIEWED,
+        PLAYLIST_CONTENTS_CHANGED, //Reordering or imports changed, the whole playlist should be reloaded.
+        TRACKS_INSERTED,
+        TRACKS_REMOVED,
+        LOCAL_FILE_ADDED,
+        LOCAL_FILE_REMOVED
+    }
+
+    private final Type type;
+    private final String playlistKey;
+    private final boolean nested;
+    private final String audioTitle;
+    private final int position;
+    private final long version;
+
+    /**
+     * Instantiates a new DataChangeEvent object.
+     * @param type Type of the change.
+     * @param playlistKey Key of the changed playlist. Null for local file changes.
+     * @param nested If the changed playlist is a nested playlist.
+     * @param audioTitle Title of the inserted or removed audio. Null if no single audio changed.
+     * @param position Position of the audio in the playlist, or {@link #NO_POSITION}.
+     * @param version Version of the playlist, or of the local files, after the change.
+     */
+    public DataChangeEvent(Type type, String playlistKey, boolean nested, String audioTitle, int position, long version) {
+        this.type = type;
+        this.playlistKey = playlistKey;
+        this.nested = nested;
+        this.audioTitle = audioTitle;
+        this.position = position;
+        this.version = version;
+    }
+
+    /**
+     * Returns the type of the change.
+     * @return Type of the change.
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the key of the changed playlist.
+     * @return Key of the playlist. Null for local file changes.
+     */
+    public String getPlaylistKey() {
+        return this.playlistKey;
+    }
+
+    /**
+     * Checks to see if the changed playlist is a nested playlist.
+     * @return If the playlist is nested.
+     */
+    public boolean isNested() {
+        return this.nested;
+    }
+
+    /**
+     * Checks to see if the change affects the local files.
+     * @return If the change is a local file change.
+     */
+    public boolean isLocalFileChange() {
+        return this.type == Type.LOCAL_FILE_ADDED || this.type == Type.LOCAL_FILE_REMOVED;
+    }
+
+    /**
+     * Returns the title of the inserted or removed audio.
+     * @return Title of the audio. Null if no single audio changed.
+     */
+    public String getAudioTitle() {
+        return this.audioTitle;
+    }
+
+    /**
+     * Returns the position of the inserted audio after the change, or of the removed
+     * audio before the change.
+     * @return Position in the playlist, or {@link #NO_POSITION} if unknown.
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Returns the version of the playlist, or of the local files, after the change.
+     * @return Version counter.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.cloudplaylistmanager.Utils;
+
+public interface DataChangeListener {
+    void onDataChanged(DataChangeEvent event);
+}
@@ -4,16 +4,17 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.MediaMetadataRetriever;
 import android.media.MediaScannerConnection;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.OpenableColumns;
 import android.util.Log;
 import android.util.Pair;
-import android.webkit.MimeTypeMap;
 
 import androidx.annotation.Nullable;
 
@@ -22,19 +23,23 @@ import com.androidnetworking.common.ANRequest;
 import com.androidnetworking.common.ANResponse;
 import com.androidnetworking.common.Priority;
 import com.androidnetworking.error.ANError;
+import com.example.cloudplaylistmanager.Downloader.DownloadEngine;
 import com.example.cloudplaylistmanager.Downloader.DownloadListener;
+import com.example.cloudplaylistmanager.Downloader.InFlightDownload;
 import com.example.cloudplaylistmanager.R;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.yausername.ffmpeg.FFmpeg;
 import com.yausername.youtubedl_android.YoutubeDL;
 import com.yausername.youtubedl_android.YoutubeDLException;
 import com.yausername.youtubedl_android.YoutubeDLRequest;
-import com.yausername.youtubedl_android.YoutubeDLResponse;
-import com.yausername.youtubedl_android.mapper.VideoInfo;
 
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
@@ -42,18 +47,32 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Response;
 
 
 /**
@@ -69,27 +88,51 @@ public class DataManager {
     private static final String SAVED_PREFERENCES_UPDATE_TIME_TAG = "updatetime";
     private static final String LOCAL_DIRECTORY_AUDIO_STORAGE = "downloaded-songs";
     private static final String LOCAL_DIRECTORY_IMG_STORAGE = "thumbnails";
+    private static final String LOCAL_DIRECTORY_DOWNLOAD_STAGING = "downloading";
     private static final String EXPORT_DIRECTORY_NAME = "tunestacker-exports";
+    private static final String PERSIST_PLAYLISTS_TAG = "playlists";
+    private static final String PERSIST_SETTINGS_TAG = "settings";
+    private static final long PERSIST_DEBOUNCE_MILLISECONDS = 500;
+    private static final long COLD_START_TARGET_MILLISECONDS = 250; //Budget for loading the data of the first frame, not a measurement.
+
+    private static final String RESPONSE_CACHE_DIRECTORY = "api-responses";
+    private static final String THUMBNAIL_CACHE_DIRECTORY = "thumbnails-scaled";
+    private static final int HTTP_NOT_MODIFIED = 304;
 
     private static final int MAX_AUDIO_DOWNLOAD_RETRIES = 12;
-    private static final int MAX_FETCH_AUDIO_INFO_RETRIES = 6;
+    public static final int DOWNLOAD_UNAVAILABLE = -2; //Error code of audios that can never be downloaded.
 
 
     private static DataManager instance = null;
-    private boolean downloaderInitialized;
+    private Future<Boolean> downloaderReady;
+    private DownloadEngine downloadEngine; //Null until first needed.
+    private final ConcurrentHashMap<String, InFlightDownload> inFlightDownloads; //key is the normalized origin
     private File appMusicDirectory;
     private File appImageDirectory;
+    private File appStagingDirectory; //Downloads are written here before being moved into the MUSIC directory.
+    private DirectoryCatalog musicCatalog;
+    private DirectoryCatalog imageCatalog;
     private File exportDirectory;
     private SharedPreferences sharedPreferences;
-
-    private String dataLastUpdated;
-    private HashMap<String, Bitmap> bitmapCache;                //String is the audio name
+    private HttpResponseCache responseCache;
+    private PlaylistDatabase database;
+    private TrackPlaylistIndex trackIndex; //Null until first needed.
+    private HashMap<String, HashSet<String>> importDependents; //key is the imported UUID, set contains nested UUIDs
+    private final PersistenceWriter persistenceWriter;
+    private final ConcurrentLinkedQueue<PlaylistChange> pendingPlaylistChanges;
+
+    private final CopyOnWriteArrayList<DataChangeListener> dataChangeListeners;
+    private final Handler mainHandler;
+    private final ConcurrentHashMap<String, Long> playlistVersions; //key is UUID
+    private final AtomicLong dataVersion;
+    private final AtomicLong localFilesVersion;
+    private ThumbnailMemoryCache thumbnailCache;                 //key is the audio name and size bucket
+    private ThumbnailDiskCache thumbnailDiskCache;
     private HashMap<String, Integer> lengthCache;               //String is the audio name
     private HashMap<String, PlaylistInfo> nestedPlaylistData;   //key is UUID
     private HashMap<String, PlaylistInfo> importedPlaylistData; //key is UUID
     private SettingsHolder settings;
-    private String lastConstructedLocalPlaylist;
-    private PlaylistInfo constructedLocalDataPlaylist;
+    private LocalLibraryScanner localLibraryScanner;
     private final Context context;
 
     /**
@@ -99,41 +142,120 @@ public class DataManager {
      * @param context Context of the Application.
      */
     private DataManager(Context context) {
+        long startTime = SystemClock.elapsedRealtime();
         this.context = context;
+        this.pendingPlaylistChanges = new ConcurrentLinkedQueue<>();
+        this.inFlightDownloads = new ConcurrentHashMap<>();
+        this.persistenceWriter = new PersistenceWriter(PERSIST_DEBOUNCE_MILLISECONDS);
+        this.dataChangeListeners = new CopyOnWriteArrayList<>();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.playlistVersions = new ConcurrentHashMap<>();
+        this.dataVersion = new AtomicLong(0);
+        this.localFilesVersion = new AtomicLong(0);
         AndroidNetworking.initialize(context);
 
+        //The downloader libraries unpack their native bundles in the background while the data loads.
+        this.downloaderReady = InitializeDownloader(context);
+
         try {
             this.appMusicDirectory = GetLocalMusicDirectory(context);
             this.appImageDirectory = GetLocalImageDirectory(context);
+            this.appStagingDirectory = GetLocalStagingDirectory(context);
+            this.musicCatalog = new DirectoryCatalog(this.appMusicDirectory);
+            this.imageCatalog = new DirectoryCatalog(this.appImageDirectory);
+            this.localLibraryScanner = new LocalLibraryScanner(this.musicCatalog, this.imageCatalog,
+                    context.getFilesDir(), this.persistenceWriter);
             this.exportDirectory = GetExportsDirectory(context);
-            this.dataLastUpdated = UUID.randomUUID().toString();
             this.sharedPreferences = context.getSharedPreferences(LOG_TAG,Context.MODE_PRIVATE);
-            this.bitmapCache = new HashMap<>();
+            this.responseCache = new HttpResponseCache(new File(context.getCacheDir(), RESPONSE_CACHE_DIRECTORY));
+            this.database = new PlaylistDatabase(context);
+            this.thumbnailCache = new ThumbnailMemoryCache(context);
+            this.thumbnailDiskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), THUMBNAIL_CACHE_DIRECTORY));
             this.lengthCache = new HashMap<>();
 
-            //Loads saved data
+            //Loads saved data. Only the playlist index is loaded, playlists are hydrated on first access.
             LoadSettingsData();
-            LoadImportedPlaylistsData();
-            LoadNestedPlaylistsData();
+            LoadPlaylistsData();
 
-            this.lastConstructedLocalPlaylist = UUID.randomUUID().toString();
-            this.constructedLocalDataPlaylist = ConstructPlaylistFromLocalFiles();
-
-            //Initializes various libraries.
-            YoutubeDL.getInstance().init(context);
-            FFmpeg.getInstance().init(context);
-            this.downloaderInitialized = true;
+            LogColdStartTime(SystemClock.elapsedRealtime() - startTime);
 
         } catch(Exception e) {
             Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
             e.printStackTrace();
-            this.downloaderInitialized = false;
+        }
+    }
+
+    /**
+     * Initializes {@link YoutubeDL} and {@link FFmpeg} concurrently on background threads.
+     * @param context Context of the Application.
+     * @return Future that completes with true once both libraries are initialized, or false
+     * if either of them failed.
+     */
+    private static Future<Boolean> InitializeDownloader(Context context) {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Boolean> youtubeDlInit = executor.submit(() -> {
+            try {
+                YoutubeDL.getInstance().init(context);
+                return true;
+            } catch(Exception e) {
+                Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "YoutubeDL failed to initialize.");
+                e.printStackTrace();
+                return false;
+            }
+        });
+        Future<Boolean> ffmpegInit = executor.submit(() -> {
+            try {
+                FFmpeg.getInstance().init(context);
+                return true;
+            } catch(Exception e) {
+                Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "FFmpeg failed to initialize.");
+                e.printStackTrace();
+                return false;
+            }
+        });
+        //Runs on whichever thread finishes first, and waits for the other.
+        Future<Boolean> ready = executor.submit(() -> youtubeDlInit.get() && ffmpegInit.get());
+        executor.shutdown();
+        return ready;
+    }
+
+    /**
+     * Blocks until {@link YoutubeDL} and {@link FFmpeg} are initialized.
+     * Must not be called on the main thread.
+     * @return If the downloader initialized successfully.
+     */
+    public boolean AwaitDownloaderReady() {
+        if(this.downloaderReady == null) {
+            return false;
+        }
+        try {
+            return this.downloaderReady.get();
+        } catch(ExecutionException | InterruptedException e) {
+            Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "Downloader initialization was interrupted.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Logs the time it took to load the data needed for the first frame, and warns if it
+     * exceeded the cold start target.
+     * @param elapsedMilliseconds Time spent loading, in milliseconds.
+     */
+    private static void LogColdStartTime(long elapsedMilliseconds) {
+        if(elapsedMilliseconds > COLD_START_TARGET_MILLISECONDS) {
+            Log.w(LOG_TAG, "Cold start data load took " + elapsedMilliseconds + "ms, target is "
+                    + COLD_START_TARGET_MILLISECONDS + "ms.");
+        }
+        else {
+            Log.i(LOG_TAG, "Cold start data load took " + elapsedMilliseconds + "ms.");
         }
     }
 
     /**
      * Creates a singleton instance of {@link DataManager}.
-     * It also initializes {@link YoutubeDL}, {@link FFmpeg}, {@link AndroidNetworking}.
+     * It also initializes {@link AndroidNetworking}, and starts initializing {@link YoutubeDL} and {@link FFmpeg}
+     * in the background, see {@link #AwaitDownloaderReady()}.
      * @param context Context of the Application.
      */
     public static void Initialize(Context context) {
@@ -152,42 +274,169 @@ public class DataManager {
     }
 
     /**
-     * Saves all nested playlists data to {@link SharedPreferences}.
+     * Queues a single playlist change to be written to the {@link PlaylistDatabase}.
+     * All changes queued within the same debounce window are written in one transaction.
+     * @param record Record describing the change.
      */
-    public void SaveNestedData() {
-        SharedPreferences.Editor editor = this.sharedPreferences.edit();
+    private void RecordPlaylistChange(PlaylistChange record) {
+        UpdateTrackIndex(record);
+        UpdateImportDependents(record);
+        this.pendingPlaylistChanges.add(record);
+        this.persistenceWriter.MarkDirty(PERSIST_PLAYLISTS_TAG, this::WritePendingPlaylistChanges);
+    }
 
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
-        String jsonNestedResult = gson.toJson(this.nestedPlaylistData);
+    /**
+     * Applies a playlist change to the {@link TrackPlaylistIndex}, if it has been built.
+     * @param record Record describing the change.
+     */
+    private void UpdateTrackIndex(PlaylistChange record) {
+        if(this.trackIndex == null) {
+            return;
+        }
+        switch(record.operation) {
+            case CREATE:
+                this.trackIndex.AddAll(record.playlist.getInsertedVideos().keySet(), record.key);
+                break;
+            case REMOVE:
+                this.trackIndex.RemovePlaylist(record.key, null);
+                break;
+            case ADD_AUDIO:
+                this.trackIndex.Add(record.audio.getTitle(), record.key);
+                break;
+            case REMOVE_AUDIO:
+                this.trackIndex.Remove(record.value, record.key);
+                break;
+            case DELETE_TRACK:
+                this.trackIndex.RemoveTrack(record.value);
+                break;
+            default:
+                break;
+        }
+    }
 
-        editor.putString(SAVED_PREFERENCES_NESTED_TAG, jsonNestedResult);
-        editor.apply();
+    /**
+     * Applies a playlist change to the import dependency graph.
+     * @param record Record describing the change.
+     */
+    private void UpdateImportDependents(PlaylistChange record) {
+        switch(record.operation) {
+            case CREATE:
+                if(record.nested) {
+                    for(String importedKey : record.playlist.GetImportedPlaylistKeys()) {
+                        AddImportDependent(importedKey, record.key);
+                    }
+                }
+                break;
+            case REMOVE:
+                //The removed playlist can either be an imported playlist or a nested one.
+                this.importDependents.remove(record.key);
+                for(HashSet<String> dependents : this.importDependents.values()) {
+                    dependents.remove(record.key);
+                }
+                break;
+            case ADD_IMPORT:
+                AddImportDependent(record.value, record.key);
+                break;
+            case REMOVE_IMPORT:
+                HashSet<String> dependents = this.importDependents.get(record.value);
+                if(dependents != null) {
+                    dependents.remove(record.key);
+                }
+                break;
+            default:
+                break;
+        }
     }
 
     /**
-     * Saves all imported playlists data to {@link SharedPreferences}.
+     * Records that a nested playlist imports an imported playlist.
+     * @param importedKey Key of the imported playlist.
+     * @param nestedKey Key of the nested playlist.
      */
-    public void SaveImportedData() {
-        SharedPreferences.Editor editor = this.sharedPreferences.edit();
+    private void AddImportDependent(String importedKey, String nestedKey) {
+        HashSet<String> dependents = this.importDependents.get(importedKey);
+        if(dependents == null) {
+            dependents = new HashSet<>();
+            this.importDependents.put(importedKey, dependents);
+        }
+        dependents.add(nestedKey);
+    }
 
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
-        String jsonImportResult = gson.toJson(this.importedPlaylistData);
+    /**
+     * Applies a change of an imported playlist's audios to the nested playlists that import it.
+     * Nested playlists that do not import it are not touched. Dependents that are not hydrated yet are
+     * hydrated, which links the imported playlist in its current state, so no delta is applied to them.
+     * @param importedKey Key of the imported playlist that changed.
+     * @param added Audios that were added to the imported playlist.
+     * @param removed Audios that were removed from the imported playlist.
+     */
+    private void PropagateImportedChange(String importedKey, Collection<PlaybackAudioInfo> added, Collection<PlaybackAudioInfo> removed) {
+        for(String nestedKey : GetNestedParents(importedKey)) {
+            PlaylistInfo parent = this.nestedPlaylistData.get(nestedKey);
+            if(parent == null) {
+                continue;
+            }
+            if(!parent.IsHydrated()) {
+                HydratePlaylist(nestedKey, parent);
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, nestedKey, true, null, DataChangeEvent.NO_POSITION);
+                continue;
+            }
+            if(added.size() + removed.size() != 1) {
+                parent.OnImportedAudiosRemoved(removed);
+                parent.OnImportedAudiosAdded(added);
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, nestedKey, true, null, DataChangeEvent.NO_POSITION);
+                continue;
+            }
 
-        editor.putString(SAVED_PREFERENCES_IMPORT_TAG, jsonImportResult);
-        editor.apply();
+            //A single audio only appears or disappears if no other source of the parent contains it.
+            String audioTitle = (added.isEmpty() ? removed : added).iterator().next().getTitle();
+            int positionBefore = parent.GetPositionOfAudio(audioTitle);
+            parent.OnImportedAudiosRemoved(removed);
+            parent.OnImportedAudiosAdded(added);
+            int positionAfter = parent.GetPositionOfAudio(audioTitle);
+            if(positionBefore < 0 && positionAfter >= 0) {
+                PublishPlaylistChange(DataChangeEvent.Type.TRACKS_INSERTED, nestedKey, true, audioTitle, positionAfter);
+            }
+            else if(positionBefore >= 0 && positionAfter < 0) {
+                PublishPlaylistChange(DataChangeEvent.Type.TRACKS_REMOVED, nestedKey, true, audioTitle, positionBefore);
+            }
+        }
     }
 
     /**
-     * Saves all Settings data to {@link SharedPreferences}.
+     * Writes every queued playlist change to the {@link PlaylistDatabase}.
+     * Must only be called from the {@link PersistenceWriter} thread.
+     */
+    private void WritePendingPlaylistChanges() {
+        ArrayList<PlaylistChange> records = new ArrayList<>();
+        PlaylistChange record;
+        while((record = this.pendingPlaylistChanges.poll()) != null) {
+            records.add(record);
+        }
+        this.database.Apply(records);
+    }
+
+    /**
+     * Schedules all Settings data to be saved to {@link SharedPreferences}.
+     * The settings are serialized on the {@link PersistenceWriter} thread.
      */
     public void SaveSettingsData() {
-        SharedPreferences.Editor editor = this.sharedPreferences.edit();
+        this.persistenceWriter.MarkDirty(PERSIST_SETTINGS_TAG, () -> {
+            Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+            String jsonSettingsResult = gson.toJson(this.settings);
 
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
-        String jsonSettingsResult = gson.toJson(this.settings);
+            SharedPreferences.Editor editor = this.sharedPreferences.edit();
+            editor.putString(SAVED_PREFERENCES_SETTINGS_TAG, jsonSettingsResult);
+            editor.commit();
+        });
+    }
 
-        editor.putString(SAVED_PREFERENCES_SETTINGS_TAG, jsonSettingsResult);
-        editor.apply();
+    /**
+     * Immediately writes every pending change and blocks until they are written.
+     * Should be called when a component that may have changed data is destroyed.
+     */
+    public void FlushPendingWrites() {
+        this.persistenceWriter.Flush();
     }
 
     /**
@@ -207,51 +456,120 @@ public class DataManager {
         SharedPreferences.Editor editor = this.sharedPreferences.edit();
         editor.clear();
         editor.apply();
+        this.pendingPlaylistChanges.clear();
+        this.persistenceWriter.Enqueue(() -> this.database.Clear());
     }
 
     /**
-     * Loads all of the imported playlists data from {@link SharedPreferences}.
-     * This method must be called AFTER loading the imported playlists.
+     * Loads the index of all imported and nested playlists from the {@link PlaylistDatabase}.
+     * The audio items of each playlist are loaded when it is first fetched, see {@link #HydratePlaylist}.
      */
-    private void LoadNestedPlaylistsData() {
-        //Imports playlist data must be fetched first.
-        Gson gson = new Gson();
-        String json = this.sharedPreferences.getString(SAVED_PREFERENCES_NESTED_TAG,"");
-        Type nestedPlaylistsType = new TypeToken<HashMap<String, PlaylistInfo>>(){}.getType();
-
-        //Constructs the nested playlist data.
-        this.nestedPlaylistData = gson.fromJson(json,nestedPlaylistsType);
-        if(this.nestedPlaylistData == null) {
-            this.nestedPlaylistData = new HashMap<>();
+    private void LoadPlaylistsData() {
+        //Pending changes must be written before the playlists are read back.
+        this.persistenceWriter.Flush();
+        MigrateLegacyPlaylistData();
+
+        HashMap<String, PlaylistInfo> nested = new HashMap<>();
+        HashMap<String, PlaylistInfo> imports = new HashMap<>();
+        this.database.LoadIndex(nested, imports);
+
+        this.importedPlaylistData = imports;
+        this.nestedPlaylistData = nested;
+
+        //Builds the import dependency graph from the import keys of the index.
+        this.importDependents = new HashMap<>();
+        for(Map.Entry<String, PlaylistInfo> entry : nested.entrySet()) {
+            for(String importedKey : entry.getValue().GetImportedPlaylistKeys()) {
+                AddImportDependent(importedKey, entry.getKey());
+            }
         }
+        this.dataVersion.incrementAndGet();
+    }
 
-        RefreshNestedPlaylist(null);
-        this.dataLastUpdated = UUID.randomUUID().toString();
+    /**
+     * Loads the audio items of a playlist that has only been loaded as an index entry.
+     * Nested playlists also hydrate and link every imported playlist that they contain.
+     * Hydration reads from the {@link PlaylistDatabase}, which is accurate for a playlist that is not
+     * hydrated yet, since every change to the contents of a playlist hydrates it first.
+     * @param key Key of the playlist.
+     * @param playlist Playlist that will be hydrated.
+     */
+    private synchronized void HydratePlaylist(String key, PlaylistInfo playlist) {
+        if(playlist == null || playlist.IsHydrated()) {
+            return;
+        }
+        this.database.LoadPlaylistBody(key, playlist);
+        playlist.UpdateAllVideos();
+        if(this.nestedPlaylistData.get(key) == playlist) {
+            for(String importedKey : playlist.GetImportedPlaylistKeys()) {
+                PlaylistInfo importedPlaylist = this.importedPlaylistData.get(importedKey);
+                if(importedPlaylist != null) {
+                    HydratePlaylist(importedKey, importedPlaylist);
+                    playlist.ImportPlaylistWithoutUpdatingKeys(importedKey, importedPlaylist);
+                }
+            }
+        }
+        playlist.MarkHydrated();
     }
 
     /**
-     * Loads all of the imported playlists data from {@link SharedPreferences}.
+     * Checks to see if a nested playlist imports any playlist that has been hydrated. Only hydrated
+     * playlists can have been changed, so a nested playlist that imports none of them is up to date.
+     * @param playlist Nested playlist.
+     * @return If any imported playlist of the nested playlist is hydrated.
      */
-    private void LoadImportedPlaylistsData() {
-        //Gets imported playlist through gson and shared preferences.
-        Gson gson = new Gson();
-        String json = this.sharedPreferences.getString(SAVED_PREFERENCES_IMPORT_TAG,"");
-        Type importPlaylistsType = new TypeToken<HashMap<String, PlaylistInfo>>(){}.getType();
+    private boolean ImportsHydratedPlaylist(PlaylistInfo playlist) {
+        for(String importedKey : playlist.GetImportedPlaylistKeys()) {
+            PlaylistInfo importedPlaylist = this.importedPlaylistData.get(importedKey);
+            if(importedPlaylist != null && importedPlaylist.IsHydrated()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        HashMap<String, PlaylistInfo> imports = gson.fromJson(json, importPlaylistsType);
-        if(imports == null) {
-            imports = new HashMap<>();
+    /**
+     * Moves playlists saved by older versions into the {@link PlaylistDatabase}. This happens
+     * once: the playlists are read from the json strings in {@link SharedPreferences}, which are
+     * removed afterwards.
+     */
+    private void MigrateLegacyPlaylistData() {
+        if(!this.sharedPreferences.contains(SAVED_PREFERENCES_NESTED_TAG)
+                && !this.sharedPreferences.contains(SAVED_PREFERENCES_IMPORT_TAG)) {
+            return;
         }
 
-        //Constructs the imported playlist data.
-        this.importedPlaylistData = new HashMap<>();
-        for(Map.Entry<String, PlaylistInfo> entry : imports.entrySet()) {
-            PlaylistInfo playlist = entry.getValue();
-            playlist.UpdateAllVideos();
-            this.importedPlaylistData.put(entry.getKey(),playlist);
+        //A non-empty database means an earlier migration completed but was not cleaned up.
+        if(this.database.IsEmpty()) {
+            HashMap<String, PlaylistInfo> nested = ReadLegacyPlaylists(SAVED_PREFERENCES_NESTED_TAG);
+            HashMap<String, PlaylistInfo> imports = ReadLegacyPlaylists(SAVED_PREFERENCES_IMPORT_TAG);
+            this.database.ImportAll(nested, imports);
         }
 
-        this.dataLastUpdated = UUID.randomUUID().toString();
+        SharedPreferences.Editor editor = this.sharedPreferences.edit();
+        editor.remove(SAVED_PREFERENCES_NESTED_TAG);
+        editor.remove(SAVED_PREFERENCES_IMPORT_TAG);
+        editor.apply();
+    }
+
+    /**
+     * Reads playlists that older versions saved as a json string in {@link SharedPreferences}.
+     * @param tag Tag of the json string.
+     * @return Map of the playlists by key. Empty if there are none or they are unreadable.
+     */
+    private HashMap<String, PlaylistInfo> ReadLegacyPlaylists(String tag) {
+        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+        String json = this.sharedPreferences.getString(tag,"");
+        Type playlistsType = new TypeToken<HashMap<String, PlaylistInfo>>(){}.getType();
+
+        HashMap<String, PlaylistInfo> playlists = null;
+        try {
+            playlists = gson.fromJson(json, playlistsType);
+        } catch(JsonParseException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to parse legacy playlists.");
+            e.printStackTrace();
+        }
+        return (playlists != null) ? playlists : new HashMap<>();
     }
 
     /**
@@ -294,19 +612,42 @@ public class DataManager {
      */
     public void SetSettingsField(SettingsHolder.SettingsFields field, Object value) {
         this.settings.changeSettingsItem(field, value);
+        if(field == SettingsHolder.SettingsFields.DOWNLOAD_CONCURRENCY) {
+            synchronized(this) {
+                if(this.downloadEngine != null) {
+                    this.downloadEngine.SetConcurrency(this.settings.downloadConcurrency);
+                }
+            }
+        }
         SaveSettingsData();
     }
 
+    /**
+     * Returns the engine that downloads the audios of playlists concurrently.
+     * It is created on first use with the concurrency from the settings.
+     * @return Download engine.
+     */
+    public synchronized DownloadEngine GetDownloadEngine() {
+        if(this.downloadEngine == null) {
+            this.downloadEngine = new DownloadEngine(this.settings.downloadConcurrency);
+        }
+        return this.downloadEngine;
+    }
+
     /**
      * Refreshes the given nested playlist by refreshing all of the imported playlist data
      * that is within the nested playlist. If no key is specified, then the refresh will happen
      * on all nested playlists in the database.
      * @param key Key of the playlist that is to be fetched from the database.
      */
-    public void RefreshNestedPlaylist(@Nullable String key) {
+    public synchronized void RefreshNestedPlaylist(@Nullable String key) {
         if(key != null) {
             PlaylistInfo playlist = this.nestedPlaylistData.get(key);
-            if(playlist != null) {
+            if(playlist != null && !playlist.IsHydrated()) {
+                HydratePlaylist(key, playlist);
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, key, true, null, DataChangeEvent.NO_POSITION);
+            }
+            else if(playlist != null) {
                 playlist.ClearImportedPlaylists();
 
                 //Re-adds the playlists into the nested playlists.
@@ -317,6 +658,7 @@ public class DataManager {
                     }
                 }
                 this.nestedPlaylistData.put(key,playlist);
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, key, true, null, DataChangeEvent.NO_POSITION);
             }
         }
         else { //Update all nested playlists
@@ -324,6 +666,15 @@ public class DataManager {
             //Iterates through every nested playlist.
             for(Map.Entry<String, PlaylistInfo> entry : this.nestedPlaylistData.entrySet()) {
                 PlaylistInfo playlist = entry.getValue();
+                if(!playlist.IsHydrated()) {
+                    //Its summary may be outdated if one of its imported playlists was changed.
+                    if(ImportsHydratedPlaylist(playlist)) {
+                        HydratePlaylist(entry.getKey(), playlist);
+                        PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, entry.getKey(), true, null, DataChangeEvent.NO_POSITION);
+                    }
+                    otherPlaylistData.put(entry.getKey(), playlist);
+                    continue;
+                }
                 playlist.ClearImportedPlaylists();
 
                 //Re-adds the playlists into the nested playlists.
@@ -334,11 +685,11 @@ public class DataManager {
                     }
                 }
                 otherPlaylistData.put(entry.getKey(), playlist);
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, entry.getKey(), true, null, DataChangeEvent.NO_POSITION);
             }
             this.nestedPlaylistData.clear();
             this.nestedPlaylistData.putAll(otherPlaylistData);
         }
-        this.dataLastUpdated = UUID.randomUUID().toString();
     }
 
     /**
@@ -347,7 +698,7 @@ public class DataManager {
      */
     public ArrayList<Pair<String, PlaylistInfo>> GetNestedPlaylists() {
         if(this.nestedPlaylistData == null) {
-            LoadNestedPlaylistsData();
+            LoadPlaylistsData();
         }
         return PlaylistMapToArraylist(this.nestedPlaylistData);
     }
@@ -358,27 +709,42 @@ public class DataManager {
      */
     public ArrayList<Pair<String, PlaylistInfo>> GetImportedPlaylists() {
         if(this.importedPlaylistData == null) {
-            LoadImportedPlaylistsData();
+            LoadPlaylistsData();
         }
         return PlaylistMapToArraylist(this.importedPlaylistData);
     }
 
+    /**
+     * Returns a specified playlist from the database without loading its audio items, such as
+     * to show it in a list of playlists, where only its title, track count and cover are used.
+     * @param key Key of the playlist that is to be fetched from the database.
+     * @return Fetched playlist. Null if not found.
+     */
+    public synchronized PlaylistInfo GetPlaylistSummaryFromKey(String key) {
+        if(key == null || key.isEmpty()) {
+            return null;
+        }
+        PlaylistInfo playlist = this.nestedPlaylistData.get(key);
+        return (playlist != null) ? playlist : this.importedPlaylistData.get(key);
+    }
+
     /**
      * Returns a specified playlist from the database.
+     * The playlist is hydrated with all of its audio items if it has not been already.
      * @param key Key of the playlist that is to be fetched from the database.
      * @return Fetched playlist. Null if not found.
      */
-    public PlaylistInfo GetPlaylistFromKey(String key) {
+    public synchronized PlaylistInfo GetPlaylistFromKey(String key) {
         if(key == null || key.isEmpty()) {
             return null;
         }
         //If the key belongs to a nested playlist, return the item.
         PlaylistInfo playlist = this.nestedPlaylistData.get(key);
-        if(playlist != null) {
-            return playlist;
+        if(playlist == null) {
+            //If the key belongs to an imported playlist, return the item.
+            playlist = this.importedPlaylistData.get(key);
         }
-        //If the key belongs to an imported playlist, return the item.
-        playlist = this.importedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         return playlist;
     }
 
@@ -387,7 +753,7 @@ public class DataManager {
      * @param key Key of the playlist that is to be renamed from the database.
      * @param newName New name of the playlist.
      */
-    public void RenamePlaylist(String key, String newName) {
+    public synchronized void RenamePlaylist(String key, String newName) {
         //If the key belongs to a nested playlist, update it.
         PlaylistInfo playlist = this.nestedPlaylistData.get(key);
         if(playlist != null) {
@@ -396,8 +762,8 @@ public class DataManager {
             }
             playlist.setTitle(newName);
             this.nestedPlaylistData.put(key,playlist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveNestedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_RENAMED, key, true, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Rename(key, newName));
             return;
         }
         //If the key belongs to an imported playlist, rename it.
@@ -408,9 +774,8 @@ public class DataManager {
             }
             playlist.setTitle(newName);
             this.importedPlaylistData.put(key,playlist);
-            RefreshNestedPlaylist(null);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveImportedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_RENAMED, key, false, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Rename(key, newName));
         }
     }
 
@@ -419,14 +784,14 @@ public class DataManager {
      * playlists are displayed in the views, with the most recently viewed playlist being first.
      * @param key Key of the playlist that is to be modified from the database.
      */
-    public void UpdatePlaylistLastViewed(String key) {
+    public synchronized void UpdatePlaylistLastViewed(String key) {
         //If the key belongs to a nested playlist, update it.
         PlaylistInfo playlist = this.nestedPlaylistData.get(key);
         if(playlist != null) {
             playlist.updateLastViewed();
             this.nestedPlaylistData.put(key,playlist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveNestedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_VIEWED, key, true, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.LastViewed(key, playlist.getLastViewed()));
             return;
         }
         //If the key belongs to an imported playlist, update it.
@@ -434,8 +799,8 @@ public class DataManager {
         if(playlist != null) {
             playlist.updateLastViewed();
             this.importedPlaylistData.put(key,playlist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveImportedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_VIEWED, key, false, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.LastViewed(key, playlist.getLastViewed()));
         }
     }
 
@@ -444,65 +809,112 @@ public class DataManager {
      * @param key Key of the playlist that is to be modified from the database.
      * @param audio Newly added audio source.
      */
-    public boolean AddSongToPlaylist(String key, PlaybackAudioInfo audio) {
+    public synchronized boolean AddSongToPlaylist(String key, PlaybackAudioInfo audio) {
+        return AddSongToPlaylist(key, audio, null);
+    }
+
+    /**
+     * Adds a new audio source to a given playlist from the database, at the given position of
+     * the playlist's loose ordering. The audio and its position are a single change, so the
+     * audio is only inserted once, at its final position.
+     * @param key Key of the playlist that is to be modified from the database.
+     * @param audio Newly added audio source.
+     * @param position Position of the audio in the playlist.
+     */
+    public synchronized boolean AddSongToPlaylist(String key, PlaybackAudioInfo audio, int position) {
+        return AddSongToPlaylist(key, audio, Integer.valueOf(position));
+    }
+
+    /**
+     * Adds a new audio source to a given playlist from the database.
+     * @param key Key of the playlist that is to be modified from the database.
+     * @param audio Newly added audio source.
+     * @param position Position of the audio in the playlist. Null to leave the audio unordered.
+     */
+    private boolean AddSongToPlaylist(String key, PlaybackAudioInfo audio, @Nullable Integer position) {
         //If the key belongs to an nested playlist, add to it.
         PlaylistInfo playlist = this.nestedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         if(playlist != null) {
             if(playlist.ContainsAudio(audio)) {
                 return false;
             }
-            playlist.AddAudioToPlaylist(audio);
+            AddAudioToPlaylist(playlist, audio, position);
             this.nestedPlaylistData.put(key,playlist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveNestedData();
+            PublishPlaylistChange(DataChangeEvent.Type.TRACKS_INSERTED, key, true, audio.getTitle(), playlist.GetPositionOfAudio(audio.getTitle()));
+            RecordPlaylistChange((position != null) ? PlaylistChange.AddAudio(key, audio, position) : PlaylistChange.AddAudio(key, audio));
             return true;
         }
         //If the key belongs to an imported playlist, add to it.
         playlist = this.importedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         if(playlist != null) {
             if(playlist.ContainsAudio(audio)) {
                 return false;
             }
-            playlist.AddAudioToPlaylist(audio);
+            AddAudioToPlaylist(playlist, audio, position);
             this.importedPlaylistData.put(key,playlist);
-            RefreshNestedPlaylist(null);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveImportedData();
+            PublishPlaylistChange(DataChangeEvent.Type.TRACKS_INSERTED, key, false, audio.getTitle(), playlist.GetPositionOfAudio(audio.getTitle()));
+            PropagateImportedChange(key, Collections.singletonList(audio), Collections.emptyList());
+            RecordPlaylistChange((position != null) ? PlaylistChange.AddAudio(key, audio, position) : PlaylistChange.AddAudio(key, audio));
             return true;
         }
         return false;
     }
 
+    /**
+     * Adds an audio to a playlist object, at the given position if there is one.
+     * @param playlist Playlist that the audio is added to.
+     * @param audio Newly added audio source.
+     * @param position Position of the audio in the playlist. May be null.
+     */
+    private static void AddAudioToPlaylist(PlaylistInfo playlist, PlaybackAudioInfo audio, @Nullable Integer position) {
+        if(position != null) {
+            playlist.AddAudioToPlaylist(audio, position);
+        }
+        else {
+            playlist.AddAudioToPlaylist(audio);
+        }
+    }
+
     /**
      * Removes a song from the specified playlist using the audio's name.
      * @param key Key of the playlist that is to be modified from the database.
      * @param audioName Name of the audio.
      * @return If the audio was successfully removed.
      */
-    public boolean RemoveSongFromPlaylist(String key, String audioName) {
+    public synchronized boolean RemoveSongFromPlaylist(String key, String audioName) {
         if(audioName == null || audioName.isEmpty()) {
             return false;
         }
         //If the key belongs to a nested playlist, update it.
         PlaylistInfo playlist = this.nestedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         if(playlist != null) {
+            int positionBefore = playlist.GetPositionOfAudio(audioName);
             boolean success = playlist.RemoveAudio(audioName);
             if(success) {
                 this.nestedPlaylistData.put(key, playlist);
-                this.dataLastUpdated = UUID.randomUUID().toString();
-                SaveNestedData();
+                //The audio stays in the playlist if an imported playlist also contains it.
+                if(playlist.GetPositionOfAudio(audioName) < 0) {
+                    PublishPlaylistChange(DataChangeEvent.Type.TRACKS_REMOVED, key, true, audioName, positionBefore);
+                }
+                RecordPlaylistChange(PlaylistChange.RemoveAudio(key, audioName));
             }
             return success;
         }
         //If the key belongs to an imported playlist, remove from it.
         playlist = this.importedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         if(playlist != null) {
+            PlaybackAudioInfo removedAudio = playlist.getInsertedVideos().get(audioName);
+            int position = playlist.GetPositionOfAudio(audioName);
             boolean success = playlist.RemoveAudio(audioName);
             if(success) {
                 this.importedPlaylistData.put(key, playlist);
-                RefreshNestedPlaylist(null);
-                this.dataLastUpdated = UUID.randomUUID().toString();
-                SaveImportedData();
+                PublishPlaylistChange(DataChangeEvent.Type.TRACKS_REMOVED, key, false, audioName, position);
+                PropagateImportedChange(key, Collections.emptyList(), Collections.singletonList(removedAudio));
+                RecordPlaylistChange(PlaylistChange.RemoveAudio(key, audioName));
             }
             return success;
         }
@@ -511,46 +923,76 @@ public class DataManager {
 
     /**
      * Removes a song from ALL playlists in the Data.
+     * Only the playlists that contain the song, found through the {@link TrackPlaylistIndex},
+     * and the nested playlists that import them are touched.
      * @param audioName Name of the audio.
      */
-    public void RemoveSongFromAll(String audioName) {
+    public synchronized void RemoveSongFromAll(String audioName) {
         if(audioName == null || audioName.isEmpty()) {
             return;
         }
-        boolean hasChanged = false;
 
-        //Removes the audio from imported playlists.
-        HashMap<String, PlaylistInfo> copyOfImports = new HashMap<>();
-        for(Map.Entry<String, PlaylistInfo> entry : this.importedPlaylistData.entrySet()) {
-            PlaylistInfo value = entry.getValue();
-            //Only updates imported playlist if successfully removed the audio.
-            boolean removed = value.RemoveAudio(audioName);
-            if(removed) {
-                hasChanged = true;
-                copyOfImports.put(entry.getKey(), value);
+        HashSet<String> containingKeys = new HashSet<>(GetTrackIndex().GetPlaylists(audioName));
+
+        //Every affected playlist is hydrated before any change, so that hydration never
+        //observes a partially applied removal.
+        for(String key : containingKeys) {
+            HydratePlaylist(key, this.nestedPlaylistData.get(key));
+            HydratePlaylist(key, this.importedPlaylistData.get(key));
+            for(String nestedKey : GetNestedParents(key)) {
+                HydratePlaylist(nestedKey, this.nestedPlaylistData.get(nestedKey));
             }
         }
-        this.importedPlaylistData.putAll(copyOfImports);
 
-        //Removes the audio from nested playlists.
-        HashMap<String, PlaylistInfo> copyOfNested = new HashMap<>();
-        for(Map.Entry<String, PlaylistInfo> entry : this.nestedPlaylistData.entrySet()) {
-            PlaylistInfo value = entry.getValue();
-            //Only updates nested playlist if successfully removed the audio.
-            boolean removed = value.RemoveAudio(audioName);
-            if(removed) {
-                hasChanged = true;
-                copyOfNested.put(entry.getKey(), value);
+        PlaybackAudioInfo removedAudio = new PlaybackAudioInfo();
+        removedAudio.setTitle(audioName);
+        for(String key : containingKeys) {
+            PlaylistInfo playlist = this.nestedPlaylistData.get(key);
+            if(playlist != null) {
+                int positionBefore = playlist.GetPositionOfAudio(audioName);
+                //The audio stays in the playlist until every imported playlist that contains it is processed.
+                if(playlist.RemoveAudio(audioName) && playlist.GetPositionOfAudio(audioName) < 0) {
+                    PublishPlaylistChange(DataChangeEvent.Type.TRACKS_REMOVED, key, true, audioName, positionBefore);
+                }
+                continue;
+            }
+            playlist = this.importedPlaylistData.get(key);
+            if(playlist != null) {
+                int position = playlist.GetPositionOfAudio(audioName);
+                if(playlist.RemoveAudio(audioName)) {
+                    PublishPlaylistChange(DataChangeEvent.Type.TRACKS_REMOVED, key, false, audioName, position);
+                    //Re-derives only the nested playlists that import the changed playlist.
+                    PropagateImportedChange(key, Collections.emptyList(), Collections.singletonList(removedAudio));
+                }
             }
         }
-        this.nestedPlaylistData.putAll(copyOfNested);
+        RecordPlaylistChange(PlaylistChange.DeleteTrack(audioName));
+    }
 
-        //Saves the data.
-        if(hasChanged) {
-            RefreshNestedPlaylist(null);
-            SaveImportedData();
-            SaveNestedData();
-        }
+    /**
+     * Returns the keys of every nested playlist that imports the given playlist, using the
+     * import dependency graph.
+     * @param importedKey Key of the imported playlist.
+     * @return Set of nested playlist keys.
+     */
+    private HashSet<String> GetNestedParents(String importedKey) {
+        HashSet<String> dependents = this.importDependents.get(importedKey);
+        return (dependents == null) ? new HashSet<>() : new HashSet<>(dependents);
+    }
+
+    /**
+     * Returns the index of which playlists contain each audio. The index is built from the
+     * {@link PlaylistDatabase} on first use, and kept up to date by every change afterwards.
+     * @return Track to playlist index.
+     */
+    private synchronized TrackPlaylistIndex GetTrackIndex() {
+        if(this.trackIndex == null) {
+            //Pending changes must be in the database before it is read.
+            this.persistenceWriter.Flush();
+            this.trackIndex = new TrackPlaylistIndex();
+            this.database.LoadTrackIndex(this.trackIndex);
+        }
+        return this.trackIndex;
     }
 
     /**
@@ -558,23 +1000,25 @@ public class DataManager {
      * @param key Key of the playlist that is to be modified from the database.
      * @param order Order in which the items should be placed.
      */
-    public void UpdateOrderOfItemsInPlaylist(String key, HashMap<String, Integer> order) {
+    public synchronized void UpdateOrderOfItemsInPlaylist(String key, HashMap<String, Integer> order) {
         //If the key belongs to an nested playlist, update it.
         PlaylistInfo playlist = this.nestedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         if(playlist != null) {
             playlist.SetItemsOrder(order);
             this.nestedPlaylistData.put(key, playlist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveNestedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, key, true, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Order(key, order));
             return;
         }
         //If the key belongs to an imported playlist, update it.
         playlist = this.importedPlaylistData.get(key);
+        HydratePlaylist(key, playlist);
         if(playlist != null) {
             playlist.SetItemsOrder(order);
             this.importedPlaylistData.put(key, playlist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveImportedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, key, false, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Order(key, order));
         }
     }
 
@@ -583,16 +1027,18 @@ public class DataManager {
      * @param nested Key of the nested playlist.
      * @param imported Key of the imported playlist.
      */
-    public boolean AddImportPlaylistToNested(String nested, String imported) {
+    public synchronized boolean AddImportPlaylistToNested(String nested, String imported) {
         PlaylistInfo nestedPlaylist = this.nestedPlaylistData.get(nested);
         PlaylistInfo importedPlaylist = this.importedPlaylistData.get(imported);
         if(nestedPlaylist != null && importedPlaylist != null) {
+            HydratePlaylist(nested, nestedPlaylist);
+            HydratePlaylist(imported, importedPlaylist);
             if(nestedPlaylist.ContainsImportedKey(imported)) {
                 return false;
             }
             nestedPlaylist.ImportPlaylist(imported, importedPlaylist);
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveNestedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, nested, true, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.AddImport(nested, imported));
             return true;
         }
         return false;
@@ -604,22 +1050,23 @@ public class DataManager {
      * @param parentKey If the new playlist is imported and is being removed from within a nested playlist,
      *                  declare a value for the parentKey, which is the key of the nested playlist.
      */
-    public boolean RemovePlaylist(String key, @Nullable String parentKey) {
+    public synchronized boolean RemovePlaylist(String key, @Nullable String parentKey) {
         if(parentKey != null) {
             PlaylistInfo playlist = this.nestedPlaylistData.get(parentKey);
             if(playlist != null) {
+                HydratePlaylist(parentKey, playlist);
                 playlist.RemoveImportedPlaylist(key);
                 this.nestedPlaylistData.put(parentKey,playlist);
-                this.dataLastUpdated = UUID.randomUUID().toString();
-                SaveNestedData();
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, parentKey, true, null, DataChangeEvent.NO_POSITION);
+                RecordPlaylistChange(PlaylistChange.RemoveImport(parentKey, key));
                 return true;
             }
         }
         else {
             PlaylistInfo removedPlaylist = this.nestedPlaylistData.remove(key);
             if(removedPlaylist != null) {
-                this.dataLastUpdated = UUID.randomUUID().toString();
-                SaveNestedData();
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_REMOVED, key, true, null, DataChangeEvent.NO_POSITION);
+                RecordPlaylistChange(PlaylistChange.Remove(key));
                 return true;
             }
             removedPlaylist = this.importedPlaylistData.remove(key);
@@ -627,17 +1074,18 @@ public class DataManager {
                 return false;
             }
 
-            //Remove from all other nested playlists
-            HashMap<String, PlaylistInfo> copyOfNested = new HashMap<>();
-            for(Map.Entry<String, PlaylistInfo> entry : this.nestedPlaylistData.entrySet()) {
-                PlaylistInfo value = entry.getValue();
-                value.RemoveImportedPlaylist(key);
-                copyOfNested.put(entry.getKey(), value);
+            //Remove from the nested playlists that import it.
+            for(String nestedKey : GetNestedParents(key)) {
+                PlaylistInfo value = this.nestedPlaylistData.get(nestedKey);
+                if(value != null) {
+                    HydratePlaylist(nestedKey, value);
+                    value.RemoveImportedPlaylist(key);
+                    PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, nestedKey, true, null, DataChangeEvent.NO_POSITION);
+                }
             }
-            this.nestedPlaylistData.putAll(copyOfNested);
 
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            SaveImportedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_REMOVED, key, false, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Remove(key));
             return true;
         }
         return false;
@@ -650,15 +1098,19 @@ public class DataManager {
      * @param parentKey If the new playlist is imported and is being added within a nested playlist, declare
      *                  a value for the parentKey, which is the key of the nested playlist.
      */
-    public String CreateNewPlaylist(PlaylistInfo playlist, boolean isNested, @Nullable String parentKey) {
+    public synchronized String CreateNewPlaylist(PlaylistInfo playlist, boolean isNested, @Nullable String parentKey) {
         String key = UUID.randomUUID().toString();
         if(isNested) {
             this.nestedPlaylistData.put(key, playlist);
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_ADDED, key, true, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Create(key, playlist, true));
         }
         else {
+            PlaylistInfo parentPlaylist = null;
             if(parentKey != null) {
-                PlaylistInfo parentPlaylist = this.nestedPlaylistData.get(parentKey);
+                parentPlaylist = this.nestedPlaylistData.get(parentKey);
                 if(parentPlaylist != null) {
+                    HydratePlaylist(parentKey, parentPlaylist);
                     parentPlaylist.ImportPlaylist(key, playlist);
                 }
                 this.nestedPlaylistData.put(parentKey,parentPlaylist);
@@ -667,149 +1119,336 @@ public class DataManager {
                 playlist.SetItemsOrder(playlist.getAllVideos());
             }
             this.importedPlaylistData.put(key, playlist);
-            SaveImportedData();
+            PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_ADDED, key, false, null, DataChangeEvent.NO_POSITION);
+            RecordPlaylistChange(PlaylistChange.Create(key, playlist, false));
+            if(parentPlaylist != null) {
+                PublishPlaylistChange(DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED, parentKey, true, null, DataChangeEvent.NO_POSITION);
+                RecordPlaylistChange(PlaylistChange.AddImport(parentKey, key));
+            }
         }
-        SaveNestedData();
-        this.dataLastUpdated = UUID.randomUUID().toString();
         return key;
     }
 
     /**
-     * Fetches the most recent update identifier. A different value from the one fetched
-     * previous indicates that the dataset has been updated/changed.
-     * @return Last Update Identifier.
+     * Registers a listener that is notified, on the main thread, of every change to the data.
+     * @param listener Listener to register.
      */
-    public String GetDataLastUpdate() {
-        return this.dataLastUpdated;
+    public void AddDataChangeListener(DataChangeListener listener) {
+        this.dataChangeListeners.addIfAbsent(listener);
     }
 
     /**
-     * Downloads song with the given, valid URL into the MUSIC directory.
-     * It is required to implement {@link DownloadListener} to obtain the
-     * result of this call and to catch potential errors.
-     * onError returns -1 in the attempt parameter if a critical failure occurs.
+     * Unregisters a listener registered with {@link #AddDataChangeListener}.
+     * @param listener Listener to unregister.
+     */
+    public void RemoveDataChangeListener(DataChangeListener listener) {
+        this.dataChangeListeners.remove(listener);
+    }
+
+    /**
+     * Fetches the version of the whole dataset. A different value from the one fetched
+     * previously indicates that the dataset has been updated/changed.
+     * @return Version of the dataset.
+     */
+    public long GetDataVersion() {
+        return this.dataVersion.get();
+    }
+
+    /**
+     * Fetches the version of a single playlist. A different value from the one fetched
+     * previously indicates that the playlist has been updated/changed.
+     * @param key Key of the playlist.
+     * @return Version of the playlist, 0 if it never changed since the app started.
+     */
+    public long GetPlaylistVersion(String key) {
+        Long version = this.playlistVersions.get(key);
+        return (version == null) ? 0 : version;
+    }
+
+    /**
+     * Fetches the version of the locally saved audio files.
+     * @return Version of the local files.
+     */
+    public long GetLocalFilesVersion() {
+        return this.localFilesVersion.get();
+    }
+
+    /**
+     * Increments the version of a playlist and notifies every {@link DataChangeListener}.
+     * Must be called while holding the lock of this instance.
+     * @param type Type of the change.
+     * @param key Key of the playlist.
+     * @param nested If the playlist is a nested playlist.
+     * @param audioTitle Title of the inserted or removed audio, if any.
+     * @param position Position of the inserted or removed audio, if any.
+     */
+    private void PublishPlaylistChange(DataChangeEvent.Type type, String key, boolean nested, @Nullable String audioTitle, int position) {
+        long version = GetPlaylistVersion(key) + 1;
+        if(type == DataChangeEvent.Type.PLAYLIST_REMOVED) {
+            this.playlistVersions.remove(key);
+        }
+        else {
+            this.playlistVersions.put(key, version);
+        }
+        this.dataVersion.incrementAndGet();
+        DispatchChange(new DataChangeEvent(type, key, nested, audioTitle, position, version));
+    }
+
+    /**
+     * Increments the version of the local files and notifies every {@link DataChangeListener}.
+     * @param type Type of the change.
+     * @param audioTitle Title of the added or removed audio.
+     */
+    private void PublishLocalFileChange(DataChangeEvent.Type type, String audioTitle) {
+        long version = this.localFilesVersion.incrementAndGet();
+        this.dataVersion.incrementAndGet();
+        DispatchChange(new DataChangeEvent(type, null, false, audioTitle, DataChangeEvent.NO_POSITION, version));
+    }
+
+    /**
+     * Delivers a change to every registered {@link DataChangeListener} on the main thread.
+     * @param event Change that happened.
+     */
+    private void DispatchChange(DataChangeEvent event) {
+        if(this.dataChangeListeners.isEmpty()) {
+            return;
+        }
+        this.mainHandler.post(() -> {
+            for(DataChangeListener listener : this.dataChangeListeners) {
+                listener.onDataChanged(event);
+            }
+        });
+    }
+
+    /**
+     * Downloads song with the given, valid URL into the MUSIC directory on the calling thread.
+     * Must not be called from the Main Thread. Used by the {@link DownloadEngine} workers.
+     * If the same audio is already being downloaded, the call waits for that download and
+     * receives a copy of its result instead of downloading it again.
+     * onError returns -1 in the attempt parameter if a critical failure occurs, or
+     * {@link #DOWNLOAD_UNAVAILABLE} if the audio can never be downloaded, such as a private or
+     * removed video, in which case retrying it is pointless.
      * @param url Url of the Audio source.
      * @param downloadFromUrlListener Listener used to get the results/errors of this call.
      */
-    public void DownloadSongToDirectoryFromUrl(String url, DownloadListener downloadFromUrlListener) {
-        if(!this.downloaderInitialized) {
-            downloadFromUrlListener.onError(-1,"Downloader failed to initialize on startup, thus it is in a failed state.");
+    public void DownloadSongToDirectoryFromUrlBlocking(String url, DownloadListener downloadFromUrlListener) {
+        //A request for an audio that is already downloading attaches to that download.
+        String key = InFlightDownload.GetKey(url);
+        InFlightDownload download = new InFlightDownload();
+        InFlightDownload runningDownload = this.inFlightDownloads.putIfAbsent(key, download);
+        if(runningDownload != null) {
+            Log.d(LOG_TAG, "Attaching to the running download of: " + key);
+            runningDownload.Join(downloadFromUrlListener);
             return;
         }
-        Thread thread = new Thread(() -> {
-            //Fetches audio information from the source.
-            YoutubeDLRequest request = new YoutubeDLRequest(url);
-            request.addOption("--no-playlist");
-            request.addOption("--retries",10);
-            request.addOption("--no-check-certificate");
 
-            PlaybackAudioInfo audio = new PlaybackAudioInfo();
-            int videoInfoFetchAttemptNumber = 1;
-            boolean successInfo = false;
-            boolean successDownload = false;
-            while(videoInfoFetchAttemptNumber <= MAX_FETCH_AUDIO_INFO_RETRIES && !successInfo) {
-                try {
-                    VideoInfo streamInfo = YoutubeDL.getInstance().getInfo(request);
-                    audio.setTitle(ValidateFileName(streamInfo.getTitle()));
-                    audio.setThumbnailSource(streamInfo.getThumbnail());
-                    audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.STREAM);
-                    audio.setAudioSource(this.appMusicDirectory.getAbsolutePath() + File.separator + audio.getTitle() + "." + this.settings.extension);
-                    audio.setAudioType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
-                    audio.setOrigin(url);
-
-                    successInfo = true;
-                } catch (YoutubeDLException | InterruptedException e) {
-                    Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "An Error has Occurred");
-                    e.printStackTrace();
-                    if(e.getMessage() != null) {
-                        if(e.getMessage().contains("not a valid URL.")) {
-                            downloadFromUrlListener.onError(-1,"Not a valid URL.");
-                            return;
-                        } else if(e.getMessage().contains("Video unavailable")) {
-                            downloadFromUrlListener.onError(-1,"Video is unavailable.");
-                            return;
-                        } else if(e.getMessage().contains("Private video")) {
-                            downloadFromUrlListener.onError(-1,"Video is Private.");
-                        }
-                    }
-                    downloadFromUrlListener.onError(videoInfoFetchAttemptNumber,"Failed to Fetch Video Information.");
+        try {
+            DownloadSongToDirectory(url, new DownloadListener() {
+                @Override
+                public void onComplete(PlaybackAudioInfo audio) {
+                    download.onComplete(audio);
+                    downloadFromUrlListener.onComplete(audio);
+                }
 
-                    //We will retry Fetch
-                    videoInfoFetchAttemptNumber++;
+                @Override
+                public void onProgressUpdate(float progress, long etaSeconds) {
+                    download.onProgressUpdate(progress, etaSeconds);
+                    downloadFromUrlListener.onProgressUpdate(progress, etaSeconds);
                 }
-            }
 
-            if(successInfo) {
-                File searchFile = DoesFileExistWithName(this.appMusicDirectory,audio.getTitle(),"audio");
-                if(searchFile != null) {
-                    //If the file already exists, then don't re-download it.
-                    audio.setAudioSource(searchFile.getAbsolutePath());
-                    successDownload = true;
+                @Override
+                public void onError(int attempt, String error) {
+                    download.onError(attempt, error);
+                    downloadFromUrlListener.onError(attempt, error);
                 }
-            }
-            else {
-                downloadFromUrlListener.onError(-1,"Failed to fetch audio information.");
-                return;
-            }
+            });
+        } finally {
+            //Removed before the attached requests are released, so later requests start a new download.
+            this.inFlightDownloads.remove(key, download);
+            download.Finish();
+        }
+    }
 
-            //Performs a download operation.
-            request = new YoutubeDLRequest(url);
+    /**
+     * Performs a single download of a song into the MUSIC directory on the calling thread.
+     * Concurrent requests are deduplicated by {@link #DownloadSongToDirectoryFromUrlBlocking(String, DownloadListener)}.
+     * @param url Url of the Audio source.
+     * @param downloadFromUrlListener Listener used to get the results/errors of this call.
+     */
+    private void DownloadSongToDirectory(String url, DownloadListener downloadFromUrlListener) {
+        if(!AwaitDownloaderReady()) {
+            downloadFromUrlListener.onError(-1,"Downloader failed to initialize on startup, thus it is in a failed state.");
+            return;
+        }
+
+        //Downloads the audio along with its information in a single run, under a temporary name.
+        PlaybackAudioInfo audio = null;
+        int downloadAttemptNumber = 1;
+        while(downloadAttemptNumber <= MAX_AUDIO_DOWNLOAD_RETRIES && audio == null) {
+            String stagingName = UUID.randomUUID().toString();
+            YoutubeDLRequest request = new YoutubeDLRequest(url);
             request.addOption("-x");
             request.addOption("--no-playlist");
             request.addOption("--retries",10);
             request.addOption("--no-check-certificate");
             request.addOption("--no-mtime");
+            request.addOption("--write-info-json");
             if(this.settings.embedThumbnail) {
                 request.addOption("--embed-thumbnail");
             }
             request.addOption("--audio-format", this.settings.extension);
-            request.addOption("-o", this.appMusicDirectory.getAbsolutePath() + File.separator + audio.getTitle() + ".%(ext)s");
-
-            int downloadAttemptNumber = 1;
-            while(downloadAttemptNumber <= MAX_AUDIO_DOWNLOAD_RETRIES && !successDownload) {
-                try {
-                    YoutubeDLResponse response = YoutubeDL.getInstance().execute(request, (float progress, long etaSeconds, String line) -> {
-                        downloadFromUrlListener.onProgressUpdate(progress,etaSeconds);
-                    });
+            request.addOption("-o", this.appStagingDirectory.getAbsolutePath() + File.separator + stagingName + ".%(ext)s");
+
+            try {
+                YoutubeDL.getInstance().execute(request, (float progress, long etaSeconds, String line) -> {
+                    downloadFromUrlListener.onProgressUpdate(progress,etaSeconds);
+                });
+                audio = MoveStagedDownload(stagingName, url);
+                if(audio == null) {
+                    downloadFromUrlListener.onError(downloadAttemptNumber,"Failed to read the downloaded audio. Retrying...");
+                    downloadAttemptNumber++;
+                }
+            } catch (YoutubeDLException | InterruptedException e) {
+                Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "An Error has Occurred");
+                e.printStackTrace();
+                if(e.getMessage() != null) {
+                    if(e.getMessage().contains("not a valid URL.")) {
+                        downloadFromUrlListener.onError(DOWNLOAD_UNAVAILABLE,"Not a valid URL.");
+                        return;
+                    } else if(e.getMessage().contains("Video unavailable")) {
+                        downloadFromUrlListener.onError(DOWNLOAD_UNAVAILABLE,"Video is unavailable.");
+                        return;
+                    } else if(e.getMessage().contains("Private video")) {
+                        downloadFromUrlListener.onError(DOWNLOAD_UNAVAILABLE,"Video is Private.");
+                        return;
+                    }
+                }
+                downloadFromUrlListener.onError(downloadAttemptNumber,"Failed to Download from the given URL. Retrying...");
 
-                    successDownload = true;
-                } catch (YoutubeDLException | InterruptedException e) {
-                    Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "An Error has Occurred");
-                    e.printStackTrace();
-                    downloadFromUrlListener.onError(downloadAttemptNumber,"Failed to Download from the given URL. Retrying...");
+                //We will retry download
+                downloadAttemptNumber++;
+            } finally {
+                DeleteStagedFiles(stagingName);
+            }
+        }
+        if(audio == null) {
+            downloadFromUrlListener.onError(-1,"Download Attempts exceeded threshold.");
+            return;
+        }
 
-                    //We will retry download
-                    downloadAttemptNumber++;
+        //Updates the thumbnail source and type. Will also download the thumbnail.
+        if((audio.getThumbnailSource() != null && !audio.getThumbnailSource().isEmpty()) &&
+                this.settings.downloadThumbnail) {
+            File searchFile = DoesFileExistWithName(this.appImageDirectory,audio.getTitle(),null);
+            if(searchFile == null) {
+                File newThumbnail = DownloadToLocalStorage(audio.getThumbnailSource(), this.appImageDirectory, audio.getTitle() + ".bin");
+                if (newThumbnail != null) {
+                    audio.setThumbnailSource(newThumbnail.getAbsolutePath());
+                    audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
                 }
             }
-            if(!successDownload) {
-                downloadFromUrlListener.onError(-1,"Download Attempts exceeded threshold.");
-                return;
+            else {
+                audio.setThumbnailSource(searchFile.getAbsolutePath());
+                audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
             }
+        }
 
+        this.musicCatalog.Put(new File(audio.getAudioSource()));
+        PublishLocalFileChange(DataChangeEvent.Type.LOCAL_FILE_ADDED, audio.getTitle());
+        downloadFromUrlListener.onComplete(audio);
+    }
 
-            //Updates the thumbnail source and type. Will also download the thumbnail.
-            if((audio.getThumbnailSource() != null || !audio.getThumbnailSource().isEmpty()) &&
-                    this.settings.downloadThumbnail) {
-                File searchFile = DoesFileExistWithName(this.appImageDirectory,audio.getTitle(),null);
-                if(searchFile == null) {
-                    File newThumbnail = DownloadToLocalStorage(audio.getThumbnailSource(), this.appImageDirectory, audio.getTitle() + ".bin");
-                    if (newThumbnail != null) {
-                        audio.setThumbnailSource(newThumbnail.getAbsolutePath());
-                        audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
-                    }
+    /**
+     * Moves an audio downloaded into the staging directory to the MUSIC directory, named after
+     * the title found in the information file that was written along with it. If a file by that
+     * title already exists, it is kept and the staged audio is discarded.
+     * @param stagingName Temporary name of the staged files, without extension.
+     * @param url Url of the Audio source.
+     * @return Audio information of the moved audio. Null if the staged files are missing or unreadable.
+     */
+    private PlaybackAudioInfo MoveStagedDownload(String stagingName, String url) {
+        File infoFile = new File(this.appStagingDirectory, stagingName + ".info.json");
+        File stagedAudio = null;
+        File[] stagedFiles = this.appStagingDirectory.listFiles();
+        if(stagedFiles != null) {
+            for(File file : stagedFiles) {
+                String name = file.getName();
+                if(name.startsWith(stagingName + ".") && !name.endsWith(".json") &&
+                        GetMimeType(file, "").contains("audio")) {
+                    stagedAudio = file;
+                    break;
+                }
+            }
+        }
+        if(stagedAudio == null || !infoFile.exists()) {
+            Log.e(LOG_TAG, "Staged download is missing for: " + url);
+            return null;
+        }
+
+        String title = null;
+        String thumbnail = null;
+        try(JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(infoFile), StandardCharsets.UTF_8))) {
+            //Only the two needed fields are read, the list of formats is skipped.
+            reader.beginObject();
+            while(reader.hasNext()) {
+                String name = reader.nextName();
+                if(name.equals("title") && reader.peek() == JsonToken.STRING) {
+                    title = reader.nextString();
+                }
+                else if(name.equals("thumbnail") && reader.peek() == JsonToken.STRING) {
+                    thumbnail = reader.nextString();
                 }
                 else {
-                    audio.setThumbnailSource(searchFile.getAbsolutePath());
-                    audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
+                    reader.skipValue();
                 }
             }
+            reader.endObject();
+        } catch(Exception e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to read audio information.");
+            e.printStackTrace();
+            return null;
+        }
+        if(title == null || ValidateFileName(title).isEmpty()) {
+            return null;
+        }
 
-            this.dataLastUpdated = UUID.randomUUID().toString();
-            downloadFromUrlListener.onComplete(audio);
-        });
+        PlaybackAudioInfo audio = new PlaybackAudioInfo();
+        audio.setTitle(ValidateFileName(title));
+        audio.setThumbnailSource(thumbnail);
+        audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.STREAM);
+        audio.setAudioType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
+        audio.setOrigin(url);
 
-        thread.start();
+        File searchFile = DoesFileExistWithName(this.appMusicDirectory,audio.getTitle(),"audio");
+        if(searchFile != null) {
+            //If the file already exists, then don't replace it.
+            audio.setAudioSource(searchFile.getAbsolutePath());
+            return audio;
+        }
+        String stagedName = stagedAudio.getName();
+        File audioFile = new File(this.appMusicDirectory, audio.getTitle() + stagedName.substring(stagedName.lastIndexOf('.')));
+        if(!stagedAudio.renameTo(audioFile)) {
+            Log.e(LOG_TAG, "Failed to move the downloaded audio into: " + audioFile.getAbsolutePath());
+            return null;
+        }
+        audio.setAudioSource(audioFile.getAbsolutePath());
+        return audio;
+    }
+
+    /**
+     * Deletes every file left in the staging directory by a single download.
+     * @param stagingName Temporary name of the staged files, without extension.
+     */
+    private void DeleteStagedFiles(String stagingName) {
+        File[] stagedFiles = this.appStagingDirectory.listFiles();
+        if(stagedFiles == null) {
+            return;
+        }
+        for(File file : stagedFiles) {
+            if(file.getName().startsWith(stagingName + ".")) {
+                file.delete();
+            }
+        }
     }
 
     /**
@@ -861,7 +1500,8 @@ public class DataManager {
             audio.setTitle(fileDestination.getName().split("\\.(?=[^\\.]+$)")[0]);
             audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.UNKNOWN);
 
-            this.dataLastUpdated = UUID.randomUUID().toString();
+            this.musicCatalog.Put(fileDestination);
+            PublishLocalFileChange(DataChangeEvent.Type.LOCAL_FILE_ADDED, audio.getTitle());
             downloadListener.onComplete(audio);
         } catch(Exception e) {
             Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "An Error has Occurred");
@@ -1007,9 +1647,11 @@ public class DataManager {
             RemoveSongFromAll(audioTitle);
             if(thumbFile != null && thumbFile.exists()) {
                 thumbFile.delete();
+                this.imageCatalog.Remove(thumbFile);
             }
             boolean deleteSuccess = audioFile.delete();
-            this.dataLastUpdated = UUID.randomUUID().toString();
+            this.musicCatalog.Remove(audioFile);
+            PublishLocalFileChange(DataChangeEvent.Type.LOCAL_FILE_REMOVED, audioTitle);
             return deleteSuccess;
         }
         return false;
@@ -1061,7 +1703,12 @@ public class DataManager {
             e.printStackTrace();
         }
 
-        return GetFileFromDirectory(directory, fileName);
+        File downloadedFile = GetFileFromDirectory(directory, fileName);
+        DirectoryCatalog catalog = GetCatalog(directory);
+        if(catalog != null && downloadedFile != null) {
+            catalog.Put(downloadedFile);
+        }
+        return downloadedFile;
     }
 
     /**
@@ -1072,13 +1719,75 @@ public class DataManager {
      * @return JSON result
      */
     public static JSONObject MakeGetRequest(String url, Map queryParams) {
-        ANRequest request = AndroidNetworking.get(url)
-                .addQueryParameter(queryParams)
-                .build();
-        ANResponse<JSONObject> response = request.executeForJSONObject();
-        if (response.isSuccess()) {
-            return (JSONObject) response.getResult();
-        } else {
+        return MakeGetRequest(url, queryParams, null);
+    }
+
+    /**
+     * Synchronous Get Request using Android Fast Networking.
+     * This function CANNOT be called from the main thread.
+     * Responses that carry an ETag are cached on disk, and the next identical request is sent
+     * with If-None-Match. If the server replies 304 Not Modified, the cached result is returned.
+     * @param url Url of the request.
+     * @param queryParams Map with the query requests as key-value pairs
+     * @param notModified If not null, its first value is set to whether the result came from the
+     *                    cache because the server reported it unchanged.
+     * @return JSON result
+     */
+    public static JSONObject MakeGetRequest(String url, Map queryParams, @Nullable boolean[] notModified) {
+        return MakeGetRequest(url, queryParams, notModified, reader -> new JSONObject(ReadFully(reader)));
+    }
+
+    /**
+     * Synchronous Get Request using Android Fast Networking, whose response is parsed while it
+     * is being received, instead of being read into a {@link JSONObject} first.
+     * This function CANNOT be called from the main thread.
+     * Responses that carry an ETag are cached on disk, and the next identical request is sent
+     * with If-None-Match. If the server replies 304 Not Modified, the cached response is parsed.
+     * @param url Url of the request.
+     * @param queryParams Map with the query requests as key-value pairs
+     * @param notModified If not null, its first value is set to whether the result came from the
+     *                    cache because the server reported it unchanged.
+     * @param parser Parser of the response.
+     * @return Parsed result. Null if the request or the parser failed.
+     */
+    public static <T> T MakeGetRequest(String url, Map queryParams, @Nullable boolean[] notModified, ResponseParser<T> parser) {
+        return MakeGetRequest(url, queryParams, notModified, null, parser);
+    }
+
+    /**
+     * Synchronous Get Request using Android Fast Networking, whose response is parsed while it
+     * is being received. The cached response is used for If-None-Match as usual, but a new
+     * response is not cached. Instead, it is handed back to the caller, which caches it with
+     * {@link #CommitCachedRequest(String, Map, HttpResponseCache.Entry)} once it has acted on it.
+     * This function CANNOT be called from the main thread.
+     * @param url Url of the request.
+     * @param queryParams Map with the query requests as key-value pairs
+     * @param notModified If not null, its first value is set to whether the result came from the
+     *                    cache because the server reported it unchanged.
+     * @param deferredEntry If not null, the response is not cached, and its first value is set to
+     *                      the new response, or to null if there is nothing new to cache.
+     * @param parser Parser of the response.
+     * @return Parsed result. Null if the request or the parser failed.
+     */
+    public static <T> T MakeGetRequest(String url, Map queryParams, @Nullable boolean[] notModified,
+                                       @Nullable HttpResponseCache.Entry[] deferredEntry, ResponseParser<T> parser) {
+        HttpResponseCache responseCache = (instance != null) ? instance.responseCache : null;
+        String cacheKey = HttpResponseCache.GetKey(url, queryParams);
+        HttpResponseCache.Entry cachedEntry = (responseCache != null) ? responseCache.Get(cacheKey) : null;
+        if(notModified != null) {
+            notModified[0] = false;
+        }
+        if(deferredEntry != null) {
+            deferredEntry[0] = null;
+        }
+
+        ANRequest.GetRequestBuilder requestBuilder = AndroidNetworking.get(url);
+        requestBuilder.addQueryParameter(queryParams);
+        if(cachedEntry != null) {
+            requestBuilder.addHeaders("If-None-Match", cachedEntry.etag);
+        }
+        ANResponse<Response> response = requestBuilder.build().executeForOkHttpResponse();
+        if (!response.isSuccess()) {
             ANError error = response.getError();
             if (error.getErrorCode() != 0) {
                 Log.e(LOG_TAG, "MakeGetRequest errorCode : " + error.getErrorCode());
@@ -1091,61 +1800,95 @@ public class DataManager {
             error.printStackTrace();
             return null;
         }
-    }
 
-    /**
-     * Constructs a playlist based on the internal directory
-     * @return PlaylistInfo
-     */
-    public PlaylistInfo ConstructPlaylistFromLocalFiles() {
-        if(this.lastConstructedLocalPlaylist.equals(this.dataLastUpdated)) {
-            return this.constructedLocalDataPlaylist;
-        }
+        try(Response okHttpResponse = response.getResult()) {
+            if(okHttpResponse.code() == HTTP_NOT_MODIFIED && cachedEntry != null) {
+                if(notModified != null) {
+                    notModified[0] = true;
+                }
+                return parser.parse(new StringReader(cachedEntry.body));
+            }
+            if(!okHttpResponse.isSuccessful() || okHttpResponse.body() == null) {
+                Log.e(LOG_TAG, "MakeGetRequest errorCode : " + okHttpResponse.code());
+                Log.e(LOG_TAG, "MakeGetRequest errorBody : " + ((okHttpResponse.body() != null) ? okHttpResponse.body().string() : null));
+                return null;
+            }
 
-        //Gets a list of files from the directory.
-        File[] files = this.appMusicDirectory.listFiles();
-        if(files == null) {
+            String etag = okHttpResponse.header("ETag");
+            if(responseCache == null || etag == null) {
+                return parser.parse(okHttpResponse.body().charStream());
+            }
+            //The response is copied as it is parsed, so that it can be cached without reading it twice.
+            StringBuilder body = new StringBuilder();
+            HttpResponseCache.CapturingReader reader = new HttpResponseCache.CapturingReader(okHttpResponse.body().charStream(), body);
+            T result = parser.parse(reader);
+            if(result != null) {
+                reader.Drain();
+                if(deferredEntry != null) {
+                    deferredEntry[0] = new HttpResponseCache.Entry();
+                    deferredEntry[0].etag = etag;
+                    deferredEntry[0].body = body.toString();
+                }
+                else {
+                    responseCache.Put(cacheKey, etag, body.toString());
+                }
+            }
+            return result;
+        } catch(IOException | JSONException | RuntimeException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "MakeGetRequest failed to read the response.");
+            e.printStackTrace();
             return null;
         }
-        PlaylistInfo playlistInfo = new PlaylistInfo();
-        ArrayList<Pair<String, Long>> timestamps = new ArrayList<>();
-        HashMap<String, Integer> orderMapping = new HashMap<>();
-        playlistInfo.setTitle("Saved Songs");
+    }
 
-        //Iterates through all of the files and constructs an PlaybackAudioInfo class based on the data.
-        HashMap<String,File> directoryMap = GetMapOfFileDirectory(this.appImageDirectory,null);
-        for(File file : files) {
-            PlaybackAudioInfo audio = new PlaybackAudioInfo();
-            String title = file.getName().split("\\.(?=[^\\.]+$)")[0];
+    /**
+     * Reads the whole of a response.
+     * @param reader Reader of the response.
+     * @return Text of the response.
+     * @throws IOException If the response could not be read.
+     */
+    private static String ReadFully(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while((count = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, count);
+        }
+        return text.toString();
+    }
 
-            //Checks to see if a thumbnail image exists for the audio.
-            if(directoryMap.containsKey(title)) {
-                audio.setThumbnailSource(directoryMap.get(title).getAbsolutePath());
-                audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
-            }
-            audio.setTitle(title);
-            audio.setAudioSource(file.getAbsolutePath());
-            audio.setAudioType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
-            audio.setOrigin(PlaybackAudioInfo.ORIGIN_UPLOAD);
-            playlistInfo.AddAudioToPlaylist(audio);
-            timestamps.add(new Pair<>(title, file.lastModified()));
+    /**
+     * Caches a response that was deferred by
+     * {@link #MakeGetRequest(String, Map, boolean[], HttpResponseCache.Entry[], ResponseParser)}.
+     * @param url Url of the request.
+     * @param queryParams Map with the query requests as key-value pairs
+     * @param entry Deferred response.
+     */
+    public static void CommitCachedRequest(String url, Map queryParams, HttpResponseCache.Entry entry) {
+        if(instance != null && instance.responseCache != null && entry != null) {
+            instance.responseCache.Put(HttpResponseCache.GetKey(url, queryParams), entry.etag, entry.body);
         }
+    }
 
-        // Sorts each audio by last modified (Largest to Smallest)
-        Collections.sort(timestamps, new Comparator<Pair<String, Long>>() {
-            @Override
-            public int compare(Pair<String, Long> pairLeft, Pair<String, Long> pairRight) {
-                return Long.compare(pairRight.second, pairLeft.second);
-            }
-        });
-        for(int index = 0; index < timestamps.size(); index++) {
-            orderMapping.put(timestamps.get(index).first, index);
+    /**
+     * Removes the cached response of a request, so that the next identical request is made
+     * unconditionally and never reports that it was not modified.
+     * @param url Url of the request.
+     * @param queryParams Map with the query requests as key-value pairs
+     */
+    public static void InvalidateCachedRequest(String url, Map queryParams) {
+        if(instance != null && instance.responseCache != null) {
+            instance.responseCache.Remove(HttpResponseCache.GetKey(url, queryParams));
         }
-        playlistInfo.SetItemsOrder(orderMapping);
+    }
 
-        this.lastConstructedLocalPlaylist = this.dataLastUpdated;
-        this.constructedLocalDataPlaylist = playlistInfo;
-        return playlistInfo;
+    /**
+     * Constructs a playlist based on the internal directory.
+     * Only the files that changed since the previous call are applied, see {@link LocalLibraryScanner}.
+     * @return PlaylistInfo
+     */
+    public PlaylistInfo ConstructPlaylistFromLocalFiles() {
+        return this.localLibraryScanner.Scan();
     }
 
     /**
@@ -1155,6 +1898,10 @@ public class DataManager {
      * @return Map(String, File)
      */
     public HashMap<String,File> GetMapOfFileDirectory(File directory, String defaultmime) {
+        DirectoryCatalog catalog = GetCatalog(directory);
+        if(catalog != null) {
+            return catalog.GetFileMap(defaultmime);
+        }
         File[] files = directory.listFiles();
         if(files == null) {
             return null;
@@ -1170,11 +1917,16 @@ public class DataManager {
 
     /**
      * Checks the specified directory for a file of the given name.
+     * The music and image directories are looked up in their {@link DirectoryCatalog}.
      * @param directory File directory that will be searched.
      * @param fileName Name of the file.
      * @return File by that name.
      */
     public File DoesFileExistWithName(File directory, String fileName, String optionalMime) {
+        DirectoryCatalog catalog = GetCatalog(directory);
+        if(catalog != null) {
+            return catalog.Find(fileName, optionalMime);
+        }
         File[] files = directory.listFiles();
         if(files == null) {
             return null;
@@ -1190,6 +1942,21 @@ public class DataManager {
         return null;
     }
 
+    /**
+     * Returns the catalog of a directory, if the directory is cataloged.
+     * @param directory File directory.
+     * @return Catalog of the directory. Null if the directory is not cataloged.
+     */
+    private DirectoryCatalog GetCatalog(File directory) {
+        if(this.musicCatalog != null && this.musicCatalog.getDirectory().equals(directory)) {
+            return this.musicCatalog;
+        }
+        if(this.imageCatalog != null && this.imageCatalog.getDirectory().equals(directory)) {
+            return this.imageCatalog;
+        }
+        return null;
+    }
+
     /**
      * Gets the Music Directory on the application.
      * Assumes that permissions have been granted to read/write in the external storage.
@@ -1204,6 +1971,27 @@ public class DataManager {
         return appMusicDirectory;
     }
 
+    /**
+     * Gets the directory that downloads are staged in, and clears anything left there by a
+     * previous process. It is on the same storage as the MUSIC directory, so that staged files
+     * can be moved rather than copied.
+     * @param context Context of the application.
+     * @return File directory path.
+     */
+    private File GetLocalStagingDirectory(Context context) {
+        File appStagingDirectory = context.getExternalFilesDir(DataManager.LOCAL_DIRECTORY_DOWNLOAD_STAGING);
+        if (!appStagingDirectory.exists()) {
+            appStagingDirectory.mkdir();
+        }
+        File[] staleFiles = appStagingDirectory.listFiles();
+        if(staleFiles != null) {
+            for(File file : staleFiles) {
+                file.delete();
+            }
+        }
+        return appStagingDirectory;
+    }
+
     /**
      * Gets the Image Directory on the application.
      * Assumes that permissions have been granted to read/write in the external storage.
@@ -1301,12 +2089,7 @@ public class DataManager {
      * @return Mime Type.
      */
     public String GetMimeType(File file, String defaultMime) {
-        String extension = file.getName().substring(file.getName().lastIndexOf('.') + 1);
-
-        if(MimeTypeMap.getSingleton().hasExtension(extension)) {
-            return MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
-        }
-        return defaultMime;
+        return DirectoryCatalog.GetMimeType(file.getName(), defaultMime);
     }
 
     /**
@@ -1338,31 +2121,60 @@ public class DataManager {
     }
 
     /**
-     * Gets the Bitmap of the thumbnail of the audio directly from the cache.
+     * Gets the Bitmap of the thumbnail of the audio directly from the cache, at the size of the media player.
      * @param audio Audio source.
      * @return Bitmap, returns null if it doesn't exist.
      */
     public Bitmap GetThumbnailImageCache(PlaybackAudioInfo audio) {
-        if(this.bitmapCache.containsKey(audio.getTitle())) {
-            return this.bitmapCache.get(audio.getTitle());
-        }
-        return null;
+        return GetThumbnailImageCache(audio, ThumbnailDecoder.SizeBucket.PLAYER_ART);
+    }
+
+    /**
+     * Gets the Bitmap of the thumbnail of the audio directly from the cache.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail is shown at.
+     * @return Bitmap, returns null if it doesn't exist.
+     */
+    public Bitmap GetThumbnailImageCache(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+        return this.thumbnailCache.Get(GetThumbnailCacheKey(audio, sizeBucket));
     }
 
     /**
-     * Gets the Bitmap of the thumbnail of the audio.
+     * Gets the Bitmap of the thumbnail of the audio, at the size of the media player.
      * @param audio Audio source.
      * @return Bitmap, returns null if it doesn't exist.
      */
     public Bitmap GetThumbnailImage(PlaybackAudioInfo audio) {
-        if(this.bitmapCache.containsKey(audio.getTitle())) {
-            return this.bitmapCache.get(audio.getTitle());
+        return GetThumbnailImage(audio, ThumbnailDecoder.SizeBucket.PLAYER_ART);
+    }
+
+    /**
+     * Gets the Bitmap of the thumbnail of the audio. The thumbnail is decoded cropped to a square
+     * of the size that it is shown at, so that no full resolution image is ever decoded, and the
+     * result is kept on disk so that it is only decoded from its source once.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail is shown at.
+     * @return Bitmap, returns null if it doesn't exist.
+     */
+    public Bitmap GetThumbnailImage(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+        String cacheKey = GetThumbnailCacheKey(audio, sizeBucket);
+        Bitmap bitmap = this.thumbnailCache.Get(cacheKey);
+        if(bitmap != null) {
+            return bitmap;
         }
-        Bitmap bitmap = null;
 
+        int targetSize = sizeBucket.GetPixelSize(this.context.getResources());
         if(audio.getThumbnailType() == PlaybackAudioInfo.PlaybackMediaType.LOCAL) {
+            //Gets bitmap already cropped and scaled by a previous decode.
+            String diskCacheKey = ThumbnailDiskCache.GetKey(audio, sizeBucket);
+            bitmap = this.thumbnailDiskCache.Get(diskCacheKey);
+            if(bitmap != null) {
+                this.thumbnailCache.Put(cacheKey, bitmap);
+                return bitmap;
+            }
+
             //Gets bitmap from external thumbnail file.
-            try { bitmap = BitmapFactory.decodeFile(audio.getThumbnailSource()); } catch(Exception ignore) {}
+            try { bitmap = ThumbnailDecoder.DecodeFile(audio.getThumbnailSource(), targetSize); } catch(Exception ignore) {}
             if(bitmap == null) {
                 try {
                     //Gets bitmap from embedded thumbnail image.
@@ -1370,35 +2182,30 @@ public class DataManager {
                     mmr.setDataSource(audio.getAudioSource());
                     byte[] data = mmr.getEmbeddedPicture();
                     if (data != null) {
-                        bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+                        bitmap = ThumbnailDecoder.DecodeByteArray(data, targetSize);
                     }
                     mmr.close();
                 } catch (Exception ignore) {}
             }
+            this.thumbnailDiskCache.Put(diskCacheKey, bitmap);
         }
         //If all other methods of getting the bitmap failed, get the default.
         if(bitmap == null) {
-            bitmap = BitmapFactory.decodeResource(this.context.getResources(), R.drawable.med_res);
+            bitmap = ThumbnailDecoder.DecodeResource(this.context.getResources(), R.drawable.med_res, targetSize);
         }
-        bitmap = ScaleToFitBitmap(bitmap);
-        this.bitmapCache.put(audio.getTitle(), bitmap);
+        this.thumbnailCache.Put(cacheKey, bitmap);
 
         return bitmap;
     }
 
     /**
-     * Crops the bitmap to be square.
-     * @param image Bitmap source.
-     * @return Cropped Bitmap.
+     * Returns the key that a thumbnail is cached with. Each size of a thumbnail is cached separately.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail is shown at.
+     * @return Key of the thumbnail.
      */
-    public static Bitmap ScaleToFitBitmap(Bitmap image) {
-        int desWidth = Math.min(image.getWidth(), image.getHeight());
-        if(image.getWidth() > image.getHeight()) {
-            return Bitmap.createBitmap(image, (image.getWidth() - desWidth) / 2, 0, desWidth, desWidth);
-        }
-        else {
-            return Bitmap.createBitmap(image, 0, (image.getHeight() - desWidth) / 2, desWidth, desWidth);
-        }
+    private static String GetThumbnailCacheKey(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+        return audio.getTitle() + "#" + sizeBucket.name();
     }
 
     /**
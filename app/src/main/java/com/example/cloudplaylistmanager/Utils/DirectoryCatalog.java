@@ -0,0 +1,303 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.os.FileObserver;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * In-memory catalog of the files in a single directory, indexed by the name of each file
+ * without its extension. The directory is listed once, on first use, and the catalog is kept
+ * current afterwards by a {@link FileObserver} and by the writes that the app reports itself.
+ * The observer watches from construction, so changes made before the first use still change
+ * the version of the catalog. Every method is thread safe.
+ */
+public class DirectoryCatalog {
+    private static final String LOG_TAG = "DirectoryCatalog";
+    private static final int OBSERVED_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO |
+            FileObserver.MOVED_FROM | FileObserver.DELETE | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    private final File directory;
+    private final HashMap<String, ArrayList<CatalogEntry>> entriesByBaseName; //String is the file name without extension
+    private final FileObserver fileObserver;
+    private boolean built;
+    private boolean watchLost;
+    private long version;
+
+    /**
+     * Instantiates a new DirectoryCatalog object. The directory is not listed until the
+     * catalog is first used.
+     * @param directory Directory that will be cataloged.
+     */
+    public DirectoryCatalog(File directory) {
+        this.directory = directory;
+        this.entriesByBaseName = new HashMap<>();
+        this.built = false;
+        this.watchLost = false;
+        this.version = 0;
+        this.fileObserver = CreateFileObserver(directory);
+        this.fileObserver.startWatching();
+    }
+
+    /**
+     * Returns the cataloged directory.
+     * @return Directory.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the version of the catalog, which changes whenever a file of the directory changes.
+     * @return Version counter.
+     */
+    public synchronized long GetVersion() {
+        return this.version;
+    }
+
+    /**
+     * Finds a file with the given name without its extension.
+     * @param baseName Name of the file without its extension.
+     * @param optionalMime If not null, only a file whose mime type contains this value is returned.
+     * @return File by that name. Null if none exists.
+     */
+    public synchronized File Find(String baseName, @Nullable String optionalMime) {
+        Build();
+        ArrayList<CatalogEntry> entries = this.entriesByBaseName.get(baseName);
+        if(entries == null) {
+            return null;
+        }
+        for(CatalogEntry entry : entries) {
+            if(optionalMime == null || entry.mimeType.contains(optionalMime)) {
+                return entry.file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns every cataloged file.
+     * @param optionalMime If not null, only files whose mime type contains this value are returned.
+     * @return List of the catalog entries.
+     */
+    public synchronized ArrayList<CatalogEntry> GetEntries(@Nullable String optionalMime) {
+        Build();
+        ArrayList<CatalogEntry> result = new ArrayList<>();
+        for(ArrayList<CatalogEntry> entries : this.entriesByBaseName.values()) {
+            for(CatalogEntry entry : entries) {
+                if(optionalMime == null || entry.mimeType.contains(optionalMime)) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a map from the name without extension of every cataloged file to the file.
+     * @param optionalMime If not null, only files whose mime type contains this value are included.
+     * @return Map(String, File)
+     */
+    public synchronized HashMap<String, File> GetFileMap(@Nullable String optionalMime) {
+        HashMap<String, File> fileMap = new HashMap<>();
+        for(CatalogEntry entry : GetEntries(optionalMime)) {
+            fileMap.put(entry.baseName, entry.file);
+        }
+        return fileMap;
+    }
+
+    /**
+     * Adds or updates a file that the app has written into the directory, without waiting
+     * for the {@link FileObserver} to report it.
+     * @param file File in the directory.
+     */
+    public synchronized void Put(File file) {
+        if(file == null || !this.directory.equals(file.getParentFile())) {
+            return;
+        }
+        OnFileChanged(file.getName());
+    }
+
+    /**
+     * Removes a file that the app has deleted from the directory, without waiting for the
+     * {@link FileObserver} to report it.
+     * @param file File in the directory.
+     */
+    public synchronized void Remove(File file) {
+        if(file == null || !this.directory.equals(file.getParentFile())) {
+            return;
+        }
+        OnFileRemoved(file.getName());
+    }
+
+    /**
+     * Lists the directory the first time that the catalog is used. The observer is already
+     * watching when the directory is listed, so that no change is missed in between.
+     */
+    private void Build() {
+        if(this.built) {
+            return;
+        }
+        if(this.watchLost) {
+            //The directory was removed and re-created, so the old watch no longer applies.
+            this.fileObserver.stopWatching();
+            this.fileObserver.startWatching();
+            this.watchLost = false;
+        }
+        this.entriesByBaseName.clear();
+        File[] files = this.directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                AddEntry(new CatalogEntry(file));
+            }
+        }
+        this.built = true;
+    }
+
+    /**
+     * Re-reads a single file of the directory into the catalog.
+     * @param fileName Name of the file including its extension.
+     */
+    private void OnFileChanged(String fileName) {
+        this.version++;
+        if(!this.built) {
+            return;
+        }
+        File file = new File(this.directory, fileName);
+        RemoveEntry(fileName);
+        if(file.isFile()) {
+            AddEntry(new CatalogEntry(file));
+        }
+    }
+
+    /**
+     * Removes a single file of the directory from the catalog.
+     * @param fileName Name of the file including its extension.
+     */
+    private void OnFileRemoved(String fileName) {
+        this.version++;
+        if(!this.built) {
+            return;
+        }
+        RemoveEntry(fileName);
+    }
+
+    /**
+     * Adds an entry to the catalog.
+     * @param entry Catalog entry.
+     */
+    private void AddEntry(CatalogEntry entry) {
+        ArrayList<CatalogEntry> entries = this.entriesByBaseName.get(entry.baseName);
+        if(entries == null) {
+            entries = new ArrayList<>(1);
+            this.entriesByBaseName.put(entry.baseName, entries);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Removes the entry of a file from the catalog.
+     * @param fileName Name of the file including its extension.
+     */
+    private void RemoveEntry(String fileName) {
+        String baseName = GetBaseName(fileName);
+        ArrayList<CatalogEntry> entries = this.entriesByBaseName.get(baseName);
+        if(entries == null) {
+            return;
+        }
+        for(int index = 0; index < entries.size(); index++) {
+            if(entries.get(index).file.getName().equals(fileName)) {
+                entries.remove(index);
+                break;
+            }
+        }
+        if(entries.isEmpty()) {
+            this.entriesByBaseName.remove(baseName);
+        }
+    }
+
+    /**
+     * Creates the observer that keeps the catalog current with changes made outside of the app.
+     * @param directory Observed directory.
+     * @return File observer.
+     */
+    @SuppressWarnings("deprecation") //The File constructor requires API 29.
+    private FileObserver CreateFileObserver(File directory) {
+        return new FileObserver(directory.getAbsolutePath(), OBSERVED_EVENTS) {
+            @Override
+            public void onEvent(int event, @Nullable String path) {
+                synchronized(DirectoryCatalog.this) {
+                    int type = event & FileObserver.ALL_EVENTS;
+                    if(type == FileObserver.DELETE_SELF || type == FileObserver.MOVE_SELF) {
+                        //The directory itself is gone, it is listed again on next use.
+                        Log.d(LOG_TAG, "Cataloged directory was removed: " + directory.getAbsolutePath());
+                        built = false;
+                        watchLost = true;
+                        version++;
+                        return;
+                    }
+                    if(path == null) {
+                        return;
+                    }
+                    if(type == FileObserver.DELETE || type == FileObserver.MOVED_FROM) {
+                        OnFileRemoved(path);
+                    }
+                    else {
+                        OnFileChanged(path);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the name of a file without its extension.
+     * @param fileName Name of the file including its extension.
+     * @return Name without extension.
+     */
+    public static String GetBaseName(String fileName) {
+        int index = fileName.lastIndexOf('.');
+        return (index >= 0 && index < fileName.length() - 1) ? fileName.substring(0, index) : fileName;
+    }
+
+    /**
+     * Gets the mime type of a file from its extension.
+     * @param fileName Name of the file including its extension.
+     * @param defaultMime Value returned if the extension is not known.
+     * @return Mime Type.
+     */
+    public static String GetMimeType(String fileName, String defaultMime) {
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+
+        if(MimeTypeMap.getSingleton().hasExtension(extension)) {
+            return MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        }
+        return defaultMime;
+    }
+
+    /**
+     * A single cataloged file, along with the data that lookups need from it.
+     */
+    public static class CatalogEntry {
+        public final File file;
+        public final String baseName;
+        public final String mimeType;
+        public final long lastModified;
+
+        /**
+         * Instantiates a new CatalogEntry object.
+         * @param file Cataloged file.
+         */
+        public CatalogEntry(File file) {
+            this.file = file;
+            this.baseName = GetBaseName(file.getName());
+            this.mimeType = GetMimeType(file.getName(), "");
+            this.lastModified = file.lastModified();
+        }
+    }
+}
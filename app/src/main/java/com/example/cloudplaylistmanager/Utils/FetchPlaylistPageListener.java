@@ -0,0 +1,5 @@
+package com.example.cloudplaylistmanager.Utils;
+
+public interface FetchPlaylistPageListener {
+    void onPageFetched(PlaylistInfo page);
+}
@@ -0,0 +1,243 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk cache of API responses along with their ETags, so that repeated requests can be
+ * made conditional with If-None-Match and answered from the cache when the server replies
+ * 304 Not Modified. Entries are named after a hash of the url and query parameters, so no
+ * parameter (such as an API key) is written to disk. The oldest entries are removed once the
+ * cache grows past {@link #MAX_CACHE_BYTES}.
+ */
+public class HttpResponseCache {
+    private static final String LOG_TAG = "HttpResponseCache";
+    private static final String ENTRY_EXTENSION = ".json";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final long MAX_CACHE_BYTES = 20L * 1024 * 1024; /*20 MB*/
+    private static final int WRITES_PER_TRIM = 32;
+
+    private final File directory;
+    private final Gson gson;
+    private int writesSinceTrim;
+
+    /**
+     * Instantiates a new HttpResponseCache object.
+     * @param directory Directory that the responses are stored in. Created if missing.
+     */
+    public HttpResponseCache(File directory) {
+        this.directory = directory;
+        this.gson = new Gson();
+        this.writesSinceTrim = WRITES_PER_TRIM;
+    }
+
+    /**
+     * Returns the key of a request.
+     * @param url Url of the request.
+     * @param queryParams Query parameters of the request.
+     * @return Key of the request.
+     */
+    public static String GetKey(String url, Map<?, ?> queryParams) {
+        StringBuilder request = new StringBuilder(url);
+        //The parameters are sorted, so that the same request always has the same key.
+        TreeMap<String, String> sortedParams = new TreeMap<>();
+        if(queryParams != null) {
+            for(Map.Entry<?, ?> entry : queryParams.entrySet()) {
+                sortedParams.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+            }
+        }
+        for(Map.Entry<String, String> entry : sortedParams.entrySet()) {
+            request.append('&').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(request.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for(byte value : digest) {
+                key.append(String.format("%02x", value));
+            }
+            return key.toString();
+        } catch(NoSuchAlgorithmException e) {
+            //Every Android version provides SHA-1, this is only a fallback.
+            return Integer.toHexString(request.toString().hashCode());
+        }
+    }
+
+    /**
+     * Reads the cached response of a request.
+     * @param key Key of the request, see {@link #GetKey(String, Map)}.
+     * @return Cached response. Null if there is none or it is unreadable.
+     */
+    public synchronized Entry Get(String key) {
+        File entryFile = new File(this.directory, key + ENTRY_EXTENSION);
+        if(!entryFile.exists()) {
+            return null;
+        }
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(entryFile), StandardCharsets.UTF_8))) {
+            Entry entry = this.gson.fromJson(reader, Entry.class);
+            if(entry != null && entry.etag != null && entry.body != null) {
+                return entry;
+            }
+        } catch(Exception e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to read cached response.");
+            e.printStackTrace();
+        }
+        entryFile.delete();
+        return null;
+    }
+
+    /**
+     * Stores the response of a request.
+     * @param key Key of the request, see {@link #GetKey(String, Map)}.
+     * @param etag ETag of the response.
+     * @param body Body of the response.
+     */
+    public synchronized void Put(String key, String etag, String body) {
+        if(!this.directory.exists() && !this.directory.mkdirs()) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.etag = etag;
+        entry.body = body;
+
+        File tempFile = new File(this.directory, key + TEMP_EXTENSION);
+        try(BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            this.gson.toJson(entry, writer);
+        } catch(IOException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to write cached response.");
+            e.printStackTrace();
+            tempFile.delete();
+            return;
+        }
+        if(!tempFile.renameTo(new File(this.directory, key + ENTRY_EXTENSION))) {
+            tempFile.delete();
+            return;
+        }
+
+        if(++this.writesSinceTrim >= WRITES_PER_TRIM) {
+            this.writesSinceTrim = 0;
+            Trim();
+        }
+    }
+
+    /**
+     * Removes the cached response of a request, so that the next request is made unconditionally.
+     * @param key Key of the request, see {@link #GetKey(String, Map)}.
+     */
+    public synchronized void Remove(String key) {
+        new File(this.directory, key + ENTRY_EXTENSION).delete();
+    }
+
+    /**
+     * Removes the least recently written entries until the cache fits in {@link #MAX_CACHE_BYTES}.
+     */
+    private void Trim() {
+        File[] entryFiles = this.directory.listFiles();
+        if(entryFiles == null) {
+            return;
+        }
+        long totalBytes = 0;
+        for(File file : entryFiles) {
+            totalBytes += file.length();
+        }
+        if(totalBytes <= MAX_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(entryFiles, (left, right) -> Long.compare(left.lastModified(), right.lastModified()));
+        for(File file : entryFiles) {
+            if(totalBytes <= MAX_CACHE_BYTES) {
+                break;
+            }
+            totalBytes -= file.length();
+            file.delete();
+        }
+    }
+
+    /**
+     * Reader that keeps a copy of everything read through it, so that a response can be parsed
+     * as it arrives and still be cached afterwards.
+     */
+    public static class CapturingReader extends FilterReader {
+        private final StringBuilder captured;
+
+        /**
+         * Instantiates a new CapturingReader object.
+         * @param reader Reader of the response.
+         * @param captured Builder that everything read is appended to.
+         */
+        public CapturingReader(Reader reader, StringBuilder captured) {
+            super(reader);
+            this.captured = captured;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if(value != -1) {
+                this.captured.append((char) value);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if(count > 0) {
+                this.captured.append(buffer, offset, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            //Skipped characters must be captured as well.
+            char[] buffer = new char[(int) Math.min(count, 8192)];
+            long skipped = 0;
+            while(skipped < count) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, count - skipped));
+                if(read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        /**
+         * Reads the rest of the response, so that the captured copy is complete.
+         * @throws IOException If the response could not be read.
+         */
+        public void Drain() throws IOException {
+            char[] buffer = new char[8192];
+            while(read(buffer, 0, buffer.length) != -1) {
+                //Captured by read.
+            }
+        }
+    }
+
+    /**
+     * A single cached response.
+     */
+    public static class Entry {
+        public String etag;
+        public String body;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the "Saved Songs" playlist from the music and thumbnail directories incrementally.
+ * The previous result is kept, and each scan only applies the files that were added, removed
+ * or modified since, compared by name and modification time. The scanned state is persisted,
+ * so that a cold start where neither directory changed uses the saved state without listing
+ * either directory. A file rewritten in place while the app was not running does not change
+ * the time of its directory, so it keeps its previous position until its directory changes.
+ */
+public class LocalLibraryScanner {
+    private static final String LOG_TAG = "LocalLibraryScanner";
+    private static final String STATE_FILE_NAME = "local-library.json";
+    private static final String STATE_TEMP_FILE_NAME = "local-library.json.tmp";
+    private static final String PERSIST_LIBRARY_TAG = "library";
+    private static final String PLAYLIST_TITLE = "Saved Songs";
+
+    private final DirectoryCatalog musicCatalog;
+    private final DirectoryCatalog imageCatalog;
+    private final File stateDirectory;
+    private final PersistenceWriter persistenceWriter;
+    private final Gson gson;
+
+    private LibraryState state;
+    private PlaylistInfo playlist;
+    private long scannedMusicVersion;
+    private long scannedImageVersion;
+
+    /**
+     * Instantiates a new LocalLibraryScanner object. Nothing is read until the first scan.
+     * @param musicCatalog Catalog of the music directory.
+     * @param imageCatalog Catalog of the thumbnail directory.
+     * @param stateDirectory Directory where the scanned state is persisted.
+     * @param persistenceWriter Writer that persists the scanned state.
+     */
+    public LocalLibraryScanner(DirectoryCatalog musicCatalog, DirectoryCatalog imageCatalog,
+                               File stateDirectory, PersistenceWriter persistenceWriter) {
+        this.musicCatalog = musicCatalog;
+        this.imageCatalog = imageCatalog;
+        this.stateDirectory = stateDirectory;
+        this.persistenceWriter = persistenceWriter;
+        this.gson = new Gson();
+        this.state = null;
+        this.playlist = null;
+        this.scannedMusicVersion = -1;
+        this.scannedImageVersion = -1;
+    }
+
+    /**
+     * Returns the playlist of all locally saved audios, applying any directory change since
+     * the previous scan.
+     * @return Playlist of the local audios.
+     */
+    public synchronized PlaylistInfo Scan() {
+        long musicVersion = this.musicCatalog.GetVersion();
+        long imageVersion = this.imageCatalog.GetVersion();
+
+        if(this.playlist == null) {
+            this.state = LoadState();
+            this.playlist = BuildPlaylist(this.state);
+
+            //Cold start: if neither directory changed since the state was saved, the state is the library.
+            if(this.state.musicDirectoryModified == this.musicCatalog.getDirectory().lastModified() &&
+                    this.state.imageDirectoryModified == this.imageCatalog.getDirectory().lastModified() &&
+                    this.state.musicDirectoryModified != 0) {
+                this.scannedMusicVersion = musicVersion;
+                this.scannedImageVersion = imageVersion;
+                return this.playlist;
+            }
+        }
+        else if(musicVersion == this.scannedMusicVersion && imageVersion == this.scannedImageVersion) {
+            return this.playlist;
+        }
+
+        //Directory times are read before the catalogs, so a change during the scan is found next time.
+        long musicDirectoryModified = this.musicCatalog.getDirectory().lastModified();
+        long imageDirectoryModified = this.imageCatalog.getDirectory().lastModified();
+        if(ApplyChanges(this.musicCatalog.GetEntries(null), this.imageCatalog.GetFileMap(null)) ||
+                this.state.musicDirectoryModified != musicDirectoryModified ||
+                this.state.imageDirectoryModified != imageDirectoryModified) {
+            this.state.musicDirectoryModified = musicDirectoryModified;
+            this.state.imageDirectoryModified = imageDirectoryModified;
+            SaveState();
+        }
+        this.scannedMusicVersion = musicVersion;
+        this.scannedImageVersion = imageVersion;
+        return this.playlist;
+    }
+
+    /**
+     * Applies the difference between the scanned state and the current directory contents
+     * onto the scanned state and the playlist.
+     * @param audioFiles Every file in the music directory.
+     * @param thumbnails Every file in the thumbnail directory, by name without extension.
+     * @return If anything changed.
+     */
+    private boolean ApplyChanges(ArrayList<DirectoryCatalog.CatalogEntry> audioFiles, HashMap<String, File> thumbnails) {
+        HashMap<String, DirectoryCatalog.CatalogEntry> currentFiles = new HashMap<>();
+        for(DirectoryCatalog.CatalogEntry entry : audioFiles) {
+            //Keeps the previously scanned file if several files share the same title.
+            LibraryFile scannedFile = this.state.files.get(entry.baseName);
+            DirectoryCatalog.CatalogEntry existing = currentFiles.get(entry.baseName);
+            if(existing == null || (scannedFile != null && scannedFile.audioSource.equals(entry.file.getAbsolutePath()))) {
+                currentFiles.put(entry.baseName, entry);
+            }
+        }
+
+        //Removed files.
+        boolean changed = false;
+        ArrayList<String> removedTitles = new ArrayList<>();
+        for(String title : this.state.files.keySet()) {
+            if(!currentFiles.containsKey(title)) {
+                removedTitles.add(title);
+            }
+        }
+        for(String title : removedTitles) {
+            this.state.files.remove(title);
+            this.playlist.RemoveAudio(title);
+            changed = true;
+        }
+
+        //Added and modified files.
+        ArrayList<PlaybackAudioInfo> addedAudios = new ArrayList<>();
+        for(Map.Entry<String, DirectoryCatalog.CatalogEntry> entry : currentFiles.entrySet()) {
+            File thumbnail = thumbnails.get(entry.getKey());
+            LibraryFile currentFile = new LibraryFile(entry.getValue(), (thumbnail != null) ? thumbnail.getAbsolutePath() : null);
+            LibraryFile scannedFile = this.state.files.get(entry.getKey());
+            if(scannedFile != null && scannedFile.IsSameAs(currentFile)) {
+                continue;
+            }
+            if(scannedFile != null) {
+                this.playlist.RemoveAudio(entry.getKey());
+            }
+            this.state.files.put(entry.getKey(), currentFile);
+            addedAudios.add(currentFile.ToAudio(entry.getKey()));
+            changed = true;
+        }
+        if(!addedAudios.isEmpty()) {
+            this.playlist.AddAll(addedAudios);
+        }
+        if(changed) {
+            this.playlist.SetItemsOrder(GetOrderByLastModified(this.state));
+        }
+        return changed;
+    }
+
+    /**
+     * Constructs the playlist from a scanned state.
+     * @param state Scanned state.
+     * @return Playlist of the local audios.
+     */
+    private static PlaylistInfo BuildPlaylist(LibraryState state) {
+        PlaylistInfo playlistInfo = new PlaylistInfo();
+        playlistInfo.setTitle(PLAYLIST_TITLE);
+        ArrayList<PlaybackAudioInfo> audios = new ArrayList<>();
+        for(Map.Entry<String, LibraryFile> entry : state.files.entrySet()) {
+            audios.add(entry.getValue().ToAudio(entry.getKey()));
+        }
+        playlistInfo.AddAll(audios);
+        playlistInfo.SetItemsOrder(GetOrderByLastModified(state));
+        return playlistInfo;
+    }
+
+    /**
+     * Orders the scanned audios by last modified (Largest to Smallest).
+     * @param state Scanned state.
+     * @return Position of each audio by title.
+     */
+    private static HashMap<String, Integer> GetOrderByLastModified(LibraryState state) {
+        ArrayList<Map.Entry<String, LibraryFile>> entries = new ArrayList<>(state.files.entrySet());
+        Collections.sort(entries, (left, right) -> Long.compare(right.getValue().lastModified, left.getValue().lastModified));
+        HashMap<String, Integer> orderMapping = new HashMap<>();
+        for(int index = 0; index < entries.size(); index++) {
+            orderMapping.put(entries.get(index).getKey(), index);
+        }
+        return orderMapping;
+    }
+
+    /**
+     * Reads the persisted scanned state.
+     * @return Persisted state, or an empty state if there is none or it is unreadable.
+     */
+    private LibraryState LoadState() {
+        File stateFile = new File(this.stateDirectory, STATE_FILE_NAME);
+        if(stateFile.exists()) {
+            try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(stateFile), StandardCharsets.UTF_8))) {
+                LibraryState loadedState = this.gson.fromJson(reader, LibraryState.class);
+                if(loadedState != null && loadedState.files != null) {
+                    return loadedState;
+                }
+            } catch(Exception e) {
+                Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to read library state.");
+                e.printStackTrace();
+            }
+        }
+        return new LibraryState();
+    }
+
+    /**
+     * Schedules the scanned state to be persisted on the {@link PersistenceWriter} thread.
+     */
+    private void SaveState() {
+        this.persistenceWriter.MarkDirty(PERSIST_LIBRARY_TAG, this::WriteState);
+    }
+
+    /**
+     * Writes the scanned state to a temporary file and renames it into place.
+     * Must only be called from the {@link PersistenceWriter} thread.
+     */
+    private void WriteState() {
+        String json;
+        synchronized(this) {
+            json = this.gson.toJson(this.state);
+        }
+        File tempFile = new File(this.stateDirectory, STATE_TEMP_FILE_NAME);
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(json);
+            writer.flush();
+            outputStream.getFD().sync();
+            writer.close();
+            outputStream = null;
+        } catch(Exception e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to write library state.");
+            e.printStackTrace();
+            if(outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch(IOException ignored) {}
+            }
+            tempFile.delete();
+            return;
+        }
+        if(!tempFile.renameTo(new File(this.stateDirectory, STATE_FILE_NAME))) {
+            Log.e(LOG_TAG, "Failed to move library state into place.");
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Persisted state of a scan.
+     */
+    private static class LibraryState {
+        long musicDirectoryModified;
+        long imageDirectoryModified;
+        HashMap<String, LibraryFile> files; //String is the audio title
+
+        LibraryState() {
+            this.musicDirectoryModified = 0;
+            this.imageDirectoryModified = 0;
+            this.files = new HashMap<>();
+        }
+    }
+
+    /**
+     * Scanned data of a single local audio.
+     */
+    private static class LibraryFile {
+        String audioSource;
+        String thumbnailSource;
+        long lastModified;
+
+        LibraryFile() {}
+
+        LibraryFile(DirectoryCatalog.CatalogEntry entry, String thumbnailSource) {
+            this.audioSource = entry.file.getAbsolutePath();
+            this.thumbnailSource = thumbnailSource;
+            this.lastModified = entry.lastModified;
+        }
+
+        /**
+         * Checks to see if another scan of the audio found the same files.
+         * @param other Other scan of the audio.
+         * @return If nothing changed.
+         */
+        boolean IsSameAs(LibraryFile other) {
+            return this.lastModified == other.lastModified && this.audioSource.equals(other.audioSource) &&
+                    ((this.thumbnailSource == null) ? other.thumbnailSource == null : this.thumbnailSource.equals(other.thumbnailSource));
+        }
+
+        /**
+         * Constructs the audio item of the file.
+         * @param title Title of the audio.
+         * @return Audio item.
+         */
+        PlaybackAudioInfo ToAudio(String title) {
+            PlaybackAudioInfo audio = new PlaybackAudioInfo();
+            if(this.thumbnailSource != null) {
+                audio.setThumbnailSource(this.thumbnailSource);
+                audio.setThumbnailType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
+            }
+            audio.setTitle(title);
+            audio.setAudioSource(this.audioSource);
+            audio.setAudioType(PlaybackAudioInfo.PlaybackMediaType.LOCAL);
+            audio.setOrigin(PlaybackAudioInfo.ORIGIN_UPLOAD);
+            return audio;
+        }
+    }
+}
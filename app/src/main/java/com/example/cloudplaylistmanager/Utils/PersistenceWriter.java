@@ -0,0 +1,111 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue that performs all persistence work on a single dedicated thread.
+ * Callers mark a piece of data as dirty along with the task that writes it. Every dirty
+ * mark made within the debounce window is coalesced, so a burst of changes results in one
+ * write per tag instead of one write per change.
+ */
+public class PersistenceWriter {
+    private static final String LOG_TAG = "PersistenceWriter";
+    private static final String THREAD_NAME = "PersistenceWriter";
+
+    private final ScheduledExecutorService executor;
+    private final long debounceMilliseconds;
+    private final LinkedHashMap<String, Runnable> dirtyTasks; //String is the tag of the data
+    private boolean writeScheduled;
+
+    /**
+     * Instantiates a new PersistenceWriter object.
+     * @param debounceMilliseconds Time that dirty marks are collected for before they are written.
+     */
+    public PersistenceWriter(long debounceMilliseconds) {
+        this.debounceMilliseconds = debounceMilliseconds;
+        this.dirtyTasks = new LinkedHashMap<>();
+        this.writeScheduled = false;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Marks the data with the given tag as dirty. The write task will run on the writer thread
+     * once the debounce window ends. If the tag is marked again before then, only the most
+     * recent write task for that tag runs.
+     * @param tag Tag that identifies the data.
+     * @param writeTask Task that writes the data.
+     */
+    public synchronized void MarkDirty(String tag, Runnable writeTask) {
+        this.dirtyTasks.put(tag, writeTask);
+        if(!this.writeScheduled) {
+            this.writeScheduled = true;
+            this.executor.schedule(this::WriteDirtyTasks, this.debounceMilliseconds, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs a task on the writer thread after every previously queued task.
+     * @param task Task that will be run.
+     */
+    public void Enqueue(Runnable task) {
+        this.executor.execute(() -> {
+            try {
+                task.run();
+            } catch(Exception e) {
+                Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "An Error has Occurred");
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Immediately writes all dirty data and blocks until it is written.
+     * Intended for lifecycle events such as onDestroy, where pending data must not be lost.
+     */
+    public void Flush() {
+        if(Thread.currentThread().getName().equals(THREAD_NAME)) {
+            WriteDirtyTasks();
+            return;
+        }
+        Future<?> future = this.executor.submit(this::WriteDirtyTasks);
+        try {
+            future.get();
+        } catch(ExecutionException | InterruptedException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Flush was interrupted.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs every write task that is currently marked as dirty.
+     * Must only be called from the writer thread.
+     */
+    private void WriteDirtyTasks() {
+        ArrayList<Runnable> tasks;
+        synchronized(this) {
+            tasks = new ArrayList<>(this.dirtyTasks.values());
+            this.dirtyTasks.clear();
+            this.writeScheduled = false;
+        }
+        for(Runnable task : tasks) {
+            try {
+                task.run();
+            } catch(Exception e) {
+                Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "An Error has Occurred");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -2,12 +2,13 @@ package com.example.cloudplaylistmanager.Utils;
 
 import android.util.Log;
 
-import com.example.cloudplaylistmanager.Downloader.DownloadListener;
-import com.example.cloudplaylistmanager.Downloader.DownloadPlaylistListener;
+import androidx.annotation.Nullable;
+
+import com.example.cloudplaylistmanager.Downloader.DownloadEngineListener;
 import com.example.cloudplaylistmanager.Platforms.YoutubeUtilities;
+import com.example.cloudplaylistmanager.Platforms.YtDlpUtilities;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.concurrent.CountDownLatch;
 
@@ -15,6 +16,7 @@ import java.util.concurrent.CountDownLatch;
  * Class that manages platform compatibilities for downloading songs and playlists.
  * Currently is compatible with:
  *      Youtube - {@link YoutubeUtilities}
+ *      Any playlist supported by the downloader - {@link YtDlpUtilities}
  */
 public class PlatformCompatUtility {
     private static final String LOG_TAG = "PlatformCompatUtility";
@@ -30,121 +32,6 @@ public class PlatformCompatUtility {
         search, then taking the best resulting youtube url.
      */
 
-    /**
-     * Downloads song with the given, valid URL into the MUSIC directory.
-     * It is required to implement {@link DownloadListener} to obtain the
-     * result of this call and to catch potential errors.
-     * onError returns -1 in the attempt parameter if a critical failure occurs.
-     * onError returns 0 if the file already exists.
-     * @param url Url of the Audio source.
-     * @param downloadListener Listener used to get the results/errors of this call.
-     */
-    public static void DownloadSong(String url, DownloadListener downloadListener) {
-        Thread thread = new Thread(() -> {
-            String processedUrl = ProcessUrl(url);
-
-            if(processedUrl != null) {
-                DataManager.getInstance().DownloadSongToDirectoryFromUrl(processedUrl, new DownloadListener() {
-                    @Override
-                    public void onComplete(PlaybackAudioInfo audio) {
-                        downloadListener.onComplete(audio);
-                    }
-
-                    @Override
-                    public void onProgressUpdate(float progress, long etaSeconds) {
-                        downloadListener.onProgressUpdate(progress, etaSeconds);
-                    }
-
-                    @Override
-                    public void onError(int attempt, String error) {
-                        downloadListener.onError(attempt, error);
-                    }
-                });
-            }
-            else {
-                downloadListener.onError(-1,"Failed to Fetch URL.");
-            }
-        });
-        thread.start();
-    }
-
-    /**
-     * Downloads a playlist with the given, valid URL into the MUSIC directory.
-     * It is required to implement {@link DownloadPlaylistListener} to obtain the
-     * result of this call and to catch potential errors.
-     * onError returns -1 in the attempt parameter if a critical failure occurs.
-     * @param url Url of the Audio source.
-     * @param downloadListener Listener used to get the results/errors of this call.
-     */
-    public static void DownloadPlaylist(String url, DownloadPlaylistListener downloadListener) {
-        Thread thread = new Thread(() -> {
-            PlaylistInfo fetchedPlaylist = FetchPlaylistFromUrl(url);
-
-            if(fetchedPlaylist != null) {
-                PlaylistInfo updatedPlaylist = new PlaylistInfo();
-                updatedPlaylist.setTitle(fetchedPlaylist.getTitle());
-                updatedPlaylist.setLinkSource(fetchedPlaylist.getLinkSource());
-
-                HashMap<String, PlaybackAudioInfo> audios = fetchedPlaylist.getInsertedVideos();
-                //Iterates through each audio item in the playlist and downloads it.
-                int index = 0;
-                for(PlaybackAudioInfo entry : audios.values()) {
-                    index++;
-
-                    String songOrigin = entry.getOrigin();
-                    final CountDownLatch latch = new CountDownLatch(1);
-                    final PlaybackAudioInfo[] fetchedAudio = new PlaybackAudioInfo[1];
-                    final boolean[] fetchedAudioModified = new boolean[1];
-
-                    //Downloads the song into the directory.
-                    DataManager.getInstance().DownloadSongToDirectoryFromUrl(songOrigin, new DownloadListener() {
-                        @Override
-                        public void onComplete(PlaybackAudioInfo audio) {
-                            fetchedAudio[0] = audio;
-                            fetchedAudioModified[0] = true;
-                            latch.countDown();
-                        }
-
-                        @Override
-                        public void onProgressUpdate(float progress, long etaSeconds) {}
-
-                        @Override
-                        public void onError(int attempt, String error) {
-                            if(attempt == -1) {
-                                downloadListener.onError(0,songOrigin + " failed to download. Moving onto next song.");
-                                latch.countDown();
-                            }
-                            else {
-                                downloadListener.onError(attempt,error);
-                            }
-                        }
-                    });
-                    try {
-                        latch.await();
-                    } catch (InterruptedException e) {
-                        Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
-                        e.printStackTrace();
-                        downloadListener.onError(0,songOrigin + " download was interrupted.");
-                    }
-
-                    if(fetchedAudioModified[0]) {
-                        updatedPlaylist.AddAudioToPlaylist(fetchedAudio[0]);
-                        downloadListener.onProgressUpdate("[" + index + "/" + audios.size() +
-                                "] Downloaded: " + fetchedAudio[0].getTitle());
-                    }
-                    else {
-                        downloadListener.onError(0,songOrigin + " download failed.");
-                    }
-                }
-
-                downloadListener.onComplete(updatedPlaylist);
-            } else {
-                downloadListener.onError(-1,"Failed to fetch Playlist Items from API.");
-            }
-        });
-        thread.start();
-    }
-
     /**
      * Syncs playlist with the reference key to the imported playlist.
      * It is required to implement {@link SyncPlaylistListener} to obtain the
@@ -162,9 +49,20 @@ public class PlatformCompatUtility {
             if(localPlaylist != null && localPlaylist.getLinkSource() != null && !localPlaylist.getLinkSource().isEmpty()) {
                 String playlistUrlSource = localPlaylist.getLinkSource();
 
+                //Skips the sync if the playlist did not change since it was last synced.
+                //The changed first page is only cached once the sync succeeded, so a failed sync is retried.
+                //The changed first page is passed on to the fetch, so that it is not requested twice.
+                HttpResponseCache.Entry[] changedPage = new HttpResponseCache.Entry[1];
+                YoutubeUtilities.YoutubePlaylistInfo[] firstPage = new YoutubeUtilities.YoutubePlaylistInfo[1];
+                if(PlaylistUrlSource(playlistUrlSource) == Platform.YOUTUBE && YoutubeUtilities.IsPlaylistUnchanged(playlistUrlSource, changedPage, firstPage)) {
+                    playlistListener.onProgress("Playlist is unchanged.");
+                    playlistListener.onComplete();
+                    return;
+                }
+
                 //Gets the playlist from DataManager
                 playlistListener.onProgress("Fetching song sources from the Playlist.");
-                PlaylistInfo updatedPlaylist = FetchPlaylistFromUrl(playlistUrlSource);
+                PlaylistInfo updatedPlaylist = FetchPlaylistFromUrl(playlistUrlSource, firstPage[0], null);
                 if(updatedPlaylist == null) {
                     playlistListener.onError(-1,"Failed to fetch Playlist Items.");
                     return;
@@ -176,47 +74,43 @@ public class PlatformCompatUtility {
                 Platform playlistSource = PlaylistUrlSource(playlistUrlSource);
                 switch (playlistSource) {
                     case YOUTUBE:
-                        queue = YoutubeUtilities.Sync(updatedPlaylist, localPlaylist);
-                        break;
                     case UNKNOWN:
+                        //Playlists listed by the downloader are matched by origin as well.
+                        queue = YoutubeUtilities.Sync(updatedPlaylist, localPlaylist);
                         break;
                 }
 
 
                 if(queue != null && !queue.isEmpty()) {
-                    //Goes through queue and downloads each of the songs.
-                    for(int index = 0; index < queue.size(); index++) {
-                        PlaybackAudioInfo audio = queue.get(index);
-                        playlistListener.onProgress("[" + (index+1) + "/" + queue.size() + "] Downloading " + audio.getTitle());
-
-                        final CountDownLatch latch = new CountDownLatch(1);
-                        DataManager.getInstance().DownloadSongToDirectoryFromUrl(audio.getOrigin(), new DownloadListener() {
-                            @Override
-                            public void onComplete(PlaybackAudioInfo audio) {
-                                DataManager.getInstance().AddSongToPlaylist(importedKey,audio);
-                                latch.countDown();
-                            }
-
-                            @Override
-                            public void onProgressUpdate(float progress, long etaSeconds) {}
-
-                            @Override
-                            public void onError(int attempt, String error) {
-                                playlistListener.onError(0, error);
-                                if(attempt == -1) {
-                                    latch.countDown();
-                                }
-                            }
-                        });
-                        try {
-                            latch.await();
-                        } catch (InterruptedException e) {
-                            Log.e(LOG_TAG,(e.getMessage() != null) ?  e.getMessage() : "An Error has Occurred");
-                            e.printStackTrace();
-                            playlistListener.onError(0,audio.getTitle() + " download was interrupted.");
+                    //Downloads the new songs concurrently, each song is added as soon as it is downloaded.
+                    ArrayList<String> origins = new ArrayList<>();
+                    for(PlaybackAudioInfo audio : queue) {
+                        origins.add(audio.getOrigin());
+                    }
+                    ArrayList<PlaybackAudioInfo> downloadedAudios = DataManager.getInstance().GetDownloadEngine().DownloadAll(origins, new DownloadEngineListener() {
+                        @Override
+                        public void onTrackComplete(int index, PlaybackAudioInfo audio) {
+                            DataManager.getInstance().AddSongToPlaylist(importedKey,audio);
+                            playlistListener.onProgress("Downloaded " + audio.getTitle());
                         }
+
+                        @Override
+                        public void onTrackError(int index, int attempt, String error) {
+                            playlistListener.onError(0, error);
+                        }
+
+                        @Override
+                        public void onProgressUpdate(int completed, int total, float progress) {
+                            playlistListener.onProgress("[" + completed + "/" + total + "] Download Progress: " + Math.round(progress) + "%");
+                        }
+                    });
+                    //Failed songs are retried on the next sync, so it must not be skipped.
+                    if(downloadedAudios.size() < origins.size()) {
+                        playlistListener.onComplete();
+                        return;
                     }
                 }
+                YoutubeUtilities.CommitPlaylistCache(playlistUrlSource, changedPage[0]);
                 playlistListener.onComplete();
             }
             else {
@@ -325,32 +219,89 @@ public class PlatformCompatUtility {
      * @return Playlist of audios.
      */
     public static PlaylistInfo FetchPlaylistFromUrl(String url) {
+        return FetchPlaylistFromUrl(url, null);
+    }
+
+    /**
+     * Fetches the list of playlist items from the given url link, reporting each page of items
+     * as soon as it is fetched. If the platform utility fails part way, the downloader lists the
+     * whole playlist again as a single page, so a page listener may receive an item twice.
+     * @param url Original url of the audio.
+     * @param pageListener Listener that receives the pages of items in order. May be null.
+     * @return Playlist of audios.
+     */
+    public static PlaylistInfo FetchPlaylistFromUrl(String url, @Nullable FetchPlaylistPageListener pageListener) {
+        return FetchPlaylistFromUrl(url, null, pageListener);
+    }
+
+    /**
+     * Fetches the list of playlist items from the given url link, starting from a first page of
+     * a Youtube playlist that was already fetched, so that it is not requested again.
+     * @param url Original url of the audio.
+     * @param firstPage First page of the Youtube playlist, see {@link YoutubeUtilities#IsPlaylistUnchanged}.
+     *                  If null, the first page is fetched as well.
+     * @param pageListener Listener that receives the pages of items in order. May be null.
+     * @return Playlist of audios.
+     */
+    public static PlaylistInfo FetchPlaylistFromUrl(String url, @Nullable YoutubeUtilities.YoutubePlaylistInfo firstPage,
+                                                    @Nullable FetchPlaylistPageListener pageListener) {
         //Determines which playlist source the url is from.
         Platform playlistSource = PlaylistUrlSource(url);
 
         //Fetches the playlist items using the various platform utilities.
-        final CountDownLatch latch = new CountDownLatch(1);
-        final PlaylistInfo[] playlist = new PlaylistInfo[1];
-        final boolean[] playlistModified = new boolean[1];
-
+        PlaylistInfo playlist = null;
         switch(playlistSource) {
             case YOUTUBE:
-                YoutubeUtilities.FetchPlaylistItems(url, new FetchPlaylistListener() {
-                    @Override
-                    public void onComplete(PlaylistInfo fetchedPlaylist) {
-                        playlist[0] = fetchedPlaylist;
-                        playlistModified[0] = true;
-                        latch.countDown();
-                    }
-
-                    @Override
-                    public void onError(String message) {
-                        latch.countDown();
-                    }
-                });
+                playlist = AwaitPlaylistItems(url, true, firstPage, pageListener);
                 break;
             default:
+                break;
+        }
+
+        //Falls back to listing the playlist with the downloader, which needs no API key.
+        if(playlist == null) {
+            Log.d(LOG_TAG, "Listing the playlist with the downloader: " + url);
+            playlist = AwaitPlaylistItems(url, false, null, null);
+            if(playlist != null && pageListener != null) {
+                pageListener.onPageFetched(playlist);
+            }
+        }
+        return playlist;
+    }
+
+    /**
+     * Fetches the list of playlist items and waits for the result.
+     * @param url Original url of the playlist.
+     * @param useYoutubeApi If the Youtube API is used, see {@link YoutubeUtilities}. Otherwise
+     *                      the downloader is used, see {@link YtDlpUtilities}.
+     * @param firstPage First page of the Youtube playlist if it was already fetched. May be null.
+     * @param pageListener Listener that receives the pages of items of the Youtube API. May be null.
+     * @return Playlist of audios. Null if fetching failed.
+     */
+    private static PlaylistInfo AwaitPlaylistItems(String url, boolean useYoutubeApi,
+                                                   @Nullable YoutubeUtilities.YoutubePlaylistInfo firstPage,
+                                                   @Nullable FetchPlaylistPageListener pageListener) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final PlaylistInfo[] playlist = new PlaylistInfo[1];
+        FetchPlaylistListener fetchPlaylistListener = new FetchPlaylistListener() {
+            @Override
+            public void onComplete(PlaylistInfo fetchedPlaylist) {
+                playlist[0] = fetchedPlaylist;
                 latch.countDown();
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(LOG_TAG, message);
+                latch.countDown();
+            }
+        };
+
+        if(useYoutubeApi) {
+            YoutubeUtilities.FetchPlaylistItems(url, firstPage, pageListener, fetchPlaylistListener);
+        }
+        else {
+            YtDlpUtilities.FetchPlaylistItems(url, fetchPlaylistListener);
         }
         try {
             latch.await();
@@ -359,7 +310,7 @@ public class PlatformCompatUtility {
             e.printStackTrace();
         }
 
-        return playlistModified[0] ? playlist[0] : null;
+        return playlist[0];
     }
 
     /**
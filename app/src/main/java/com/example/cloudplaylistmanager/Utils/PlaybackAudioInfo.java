@@ -46,6 +46,21 @@ public class PlaybackAudioInfo implements Serializable {
         this.audioSource = null;
     }
 
+    /**
+     * Creates a copy of this audio, so that it can be handed to several owners.
+     * @return Copy of the audio.
+     */
+    public PlaybackAudioInfo Copy() {
+        PlaybackAudioInfo copy = new PlaybackAudioInfo();
+        copy.title = this.title;
+        copy.origin = this.origin;
+        copy.audioType = this.audioType;
+        copy.audioSource = this.audioSource;
+        copy.thumbnailType = this.thumbnailType;
+        copy.thumbnailSource = this.thumbnailSource;
+        return copy;
+    }
+
     /**
      * Returns the title of the audio.
      * @return Title of the audio.
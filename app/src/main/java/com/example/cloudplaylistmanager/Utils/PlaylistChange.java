@@ -0,0 +1,181 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import com.google.gson.annotations.Expose;
+
+import java.util.HashMap;
+
+/**
+ * A single change to the playlists, such as a created playlist or an added audio.
+ * DataManager queues every change it makes, and the {@link PlaylistDatabase} applies the queued
+ * changes in batches.
+ * Fields with @Expose indicate that the Gson serializable can touch those fields.
+ */
+public class PlaylistChange {
+    //Enum to indicate the type of mutation that a change describes.
+    public enum Operation {
+        CREATE,         //A playlist was created.
+        REMOVE,         //A playlist was removed.
+        RENAME,         //A playlist was renamed.
+        LAST_VIEWED,    //A playlist's last viewed time was updated.
+        ADD_AUDIO,      //An audio was added to a playlist.
+        REMOVE_AUDIO,   //An audio was removed from a playlist.
+        ORDER,          //The order of the items in a playlist was changed.
+        ADD_IMPORT,     //An imported playlist was added into a nested playlist.
+        REMOVE_IMPORT,  //An imported playlist was removed from a nested playlist.
+        DELETE_TRACK    //An audio was deleted from every playlist.
+    }
+
+    @Expose
+    Operation operation;
+    @Expose
+    String key;
+    @Expose
+    boolean nested;
+    @Expose
+    String value;
+    @Expose
+    long time;
+    @Expose
+    PlaybackAudioInfo audio;
+    @Expose
+    PlaylistInfo playlist;
+    @Expose
+    HashMap<String, Integer> order;
+
+    private PlaylistChange(Operation operation, String key) {
+        this.operation = operation;
+        this.key = key;
+    }
+
+    /**
+     * Change that creates a playlist.
+     * @param key Key of the playlist.
+     * @param playlist Playlist that was created. Only its persistent data is kept.
+     * @param isNested True if the playlist is a nested playlist, false if it is imported.
+     * @return The change.
+     */
+    public static PlaylistChange Create(String key, PlaylistInfo playlist, boolean isNested) {
+        PlaylistChange change = new PlaylistChange(Operation.CREATE, key);
+        change.playlist = playlist.CopyPersistentData();
+        change.nested = isNested;
+        return change;
+    }
+
+    /**
+     * Change that removes a playlist.
+     * @param key Key of the playlist.
+     * @return The change.
+     */
+    public static PlaylistChange Remove(String key) {
+        return new PlaylistChange(Operation.REMOVE, key);
+    }
+
+    /**
+     * Change that renames a playlist.
+     * @param key Key of the playlist.
+     * @param title New title of the playlist.
+     * @return The change.
+     */
+    public static PlaylistChange Rename(String key, String title) {
+        PlaylistChange change = new PlaylistChange(Operation.RENAME, key);
+        change.value = title;
+        return change;
+    }
+
+    /**
+     * Change that updates when a playlist was last viewed.
+     * @param key Key of the playlist.
+     * @param time Time the playlist was last viewed.
+     * @return The change.
+     */
+    public static PlaylistChange LastViewed(String key, long time) {
+        PlaylistChange change = new PlaylistChange(Operation.LAST_VIEWED, key);
+        change.time = time;
+        return change;
+    }
+
+    /**
+     * Change that adds an audio to a playlist.
+     * @param key Key of the playlist.
+     * @param audio Audio that was added.
+     * @return The change.
+     */
+    public static PlaylistChange AddAudio(String key, PlaybackAudioInfo audio) {
+        PlaylistChange change = new PlaylistChange(Operation.ADD_AUDIO, key);
+        change.audio = audio;
+        return change;
+    }
+
+    /**
+     * Change that adds an audio to a playlist at a position of its order.
+     * @param key Key of the playlist.
+     * @param audio Audio that was added.
+     * @param position Position of the audio in the playlist.
+     * @return The change.
+     */
+    public static PlaylistChange AddAudio(String key, PlaybackAudioInfo audio, int position) {
+        PlaylistChange change = AddAudio(key, audio);
+        change.order = new HashMap<>();
+        change.order.put(audio.getTitle(), position);
+        return change;
+    }
+
+    /**
+     * Change that removes an audio from a playlist.
+     * @param key Key of the playlist.
+     * @param audioTitle Title of the audio that was removed.
+     * @return The change.
+     */
+    public static PlaylistChange RemoveAudio(String key, String audioTitle) {
+        PlaylistChange change = new PlaylistChange(Operation.REMOVE_AUDIO, key);
+        change.value = audioTitle;
+        return change;
+    }
+
+    /**
+     * Change that deletes an audio from every playlist.
+     * @param audioTitle Title of the audio that was deleted.
+     * @return The change.
+     */
+    public static PlaylistChange DeleteTrack(String audioTitle) {
+        PlaylistChange change = new PlaylistChange(Operation.DELETE_TRACK, null);
+        change.value = audioTitle;
+        return change;
+    }
+
+    /**
+     * Change that sets the order of the items in a playlist.
+     * @param key Key of the playlist.
+     * @param order Position of each item by its title. The map is copied.
+     * @return The change.
+     */
+    public static PlaylistChange Order(String key, HashMap<String, Integer> order) {
+        PlaylistChange change = new PlaylistChange(Operation.ORDER, key);
+        change.order = new HashMap<>(order);
+        return change;
+    }
+
+    /**
+     * Change that adds an imported playlist into a nested playlist.
+     * @param nestedKey Key of the nested playlist.
+     * @param importedKey Key of the imported playlist.
+     * @return The change.
+     */
+    public static PlaylistChange AddImport(String nestedKey, String importedKey) {
+        PlaylistChange change = new PlaylistChange(Operation.ADD_IMPORT, nestedKey);
+        change.value = importedKey;
+        return change;
+    }
+
+    /**
+     * Change that removes an imported playlist from a nested playlist.
+     * @param nestedKey Key of the nested playlist.
+     * @param importedKey Key of the imported playlist.
+     * @return The change.
+     */
+    public static PlaylistChange RemoveImport(String nestedKey, String importedKey) {
+        PlaylistChange change = new PlaylistChange(Operation.REMOVE_IMPORT, nestedKey);
+        change.value = importedKey;
+        return change;
+    }
+}
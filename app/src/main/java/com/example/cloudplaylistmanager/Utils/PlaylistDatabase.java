@@ -0,0 +1,486 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relational store of all playlists. Every track is stored once in the tracks table and
+ * playlists refer to it by its title, so a track that belongs to many playlists is no
+ * longer duplicated. Changes are applied as batches of {@link PlaylistChange}
+ * inside a single transaction.
+ */
+public class PlaylistDatabase extends SQLiteOpenHelper {
+    private static final String LOG_TAG = "PlaylistDatabase";
+    private static final String DATABASE_NAME = "playlists.db";
+    private static final int DATABASE_VERSION = 1;
+
+    static final String TABLE_TRACKS = "tracks";
+    static final String TABLE_PLAYLISTS = "playlists";
+    static final String TABLE_PLAYLIST_TRACKS = "playlist_tracks";
+    static final String TABLE_PLAYLIST_ORDER = "playlist_order";
+    static final String TABLE_PLAYLIST_IMPORTS = "playlist_imports";
+
+    static final String COLUMN_TITLE = "title";
+    static final String COLUMN_ORIGIN = "origin";
+    static final String COLUMN_AUDIO_TYPE = "audio_type";
+    static final String COLUMN_AUDIO_SOURCE = "audio_source";
+    static final String COLUMN_THUMBNAIL_TYPE = "thumbnail_type";
+    static final String COLUMN_THUMBNAIL_SOURCE = "thumbnail_source";
+    static final String COLUMN_PLAYLIST_KEY = "playlist_key";
+    static final String COLUMN_LINK_SOURCE = "link_source";
+    static final String COLUMN_LAST_VIEWED = "last_viewed";
+    static final String COLUMN_IS_NESTED = "is_nested";
+    static final String COLUMN_TRACK_TITLE = "track_title";
+    static final String COLUMN_POSITION = "position";
+    static final String COLUMN_NESTED_KEY = "nested_key";
+    static final String COLUMN_IMPORTED_KEY = "imported_key";
+
+
+    /**
+     * Instantiates a new PlaylistDatabase object.
+     * @param context Context of the application.
+     */
+    public PlaylistDatabase(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_TRACKS + " ("
+                + COLUMN_TITLE + " TEXT PRIMARY KEY NOT NULL, "
+                + COLUMN_ORIGIN + " TEXT, "
+                + COLUMN_AUDIO_TYPE + " TEXT, "
+                + COLUMN_AUDIO_SOURCE + " TEXT, "
+                + COLUMN_THUMBNAIL_TYPE + " TEXT, "
+                + COLUMN_THUMBNAIL_SOURCE + " TEXT)");
+        db.execSQL("CREATE TABLE " + TABLE_PLAYLISTS + " ("
+                + COLUMN_PLAYLIST_KEY + " TEXT PRIMARY KEY NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_LINK_SOURCE + " TEXT, "
+                + COLUMN_LAST_VIEWED + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_IS_NESTED + " INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_PLAYLIST_TRACKS + " ("
+                + COLUMN_PLAYLIST_KEY + " TEXT NOT NULL REFERENCES " + TABLE_PLAYLISTS + "(" + COLUMN_PLAYLIST_KEY + ") ON DELETE CASCADE, "
+                + COLUMN_TRACK_TITLE + " TEXT NOT NULL REFERENCES " + TABLE_TRACKS + "(" + COLUMN_TITLE + ") ON DELETE CASCADE, "
+                + "PRIMARY KEY (" + COLUMN_PLAYLIST_KEY + ", " + COLUMN_TRACK_TITLE + "))");
+        //Order entries may refer to tracks of imported playlists, so the track title is not a foreign key.
+        db.execSQL("CREATE TABLE " + TABLE_PLAYLIST_ORDER + " ("
+                + COLUMN_PLAYLIST_KEY + " TEXT NOT NULL REFERENCES " + TABLE_PLAYLISTS + "(" + COLUMN_PLAYLIST_KEY + ") ON DELETE CASCADE, "
+                + COLUMN_TRACK_TITLE + " TEXT NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_PLAYLIST_KEY + ", " + COLUMN_TRACK_TITLE + "))");
+        db.execSQL("CREATE TABLE " + TABLE_PLAYLIST_IMPORTS + " ("
+                + COLUMN_NESTED_KEY + " TEXT NOT NULL REFERENCES " + TABLE_PLAYLISTS + "(" + COLUMN_PLAYLIST_KEY + ") ON DELETE CASCADE, "
+                + COLUMN_IMPORTED_KEY + " TEXT NOT NULL REFERENCES " + TABLE_PLAYLISTS + "(" + COLUMN_PLAYLIST_KEY + ") ON DELETE CASCADE, "
+                + "PRIMARY KEY (" + COLUMN_NESTED_KEY + ", " + COLUMN_IMPORTED_KEY + "))");
+        db.execSQL("CREATE INDEX playlist_tracks_by_track ON " + TABLE_PLAYLIST_TRACKS + "(" + COLUMN_TRACK_TITLE + ")");
+        db.execSQL("CREATE INDEX playlist_imports_by_imported ON " + TABLE_PLAYLIST_IMPORTS + "(" + COLUMN_IMPORTED_KEY + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+
+    /**
+     * Returns true if the database does not contain any playlist.
+     * @return True if the database is empty.
+     */
+    public boolean IsEmpty() {
+        try(Cursor cursor = getReadableDatabase().rawQuery("SELECT 1 FROM " + TABLE_PLAYLISTS + " LIMIT 1", null)) {
+            return !cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Loads the index of every playlist into the given maps. Each playlist only contains its
+     * title, link source, last viewed time and import keys, along with a summary of its track
+     * count and cover audio. The audio items are loaded later through {@link #LoadPlaylistBody}.
+     * @param nested Map that the nested playlists are loaded into.
+     * @param imported Map that the imported playlists are loaded into.
+     */
+    public void LoadIndex(HashMap<String, PlaylistInfo> nested, HashMap<String, PlaylistInfo> imported) {
+        SQLiteDatabase db = getReadableDatabase();
+        HashMap<String, PlaylistInfo> all = new HashMap<>();
+
+        db.beginTransactionNonExclusive();
+        try {
+            try(Cursor cursor = db.query(TABLE_PLAYLISTS, null, null, null, null, null, null)) {
+                int keyIndex = cursor.getColumnIndexOrThrow(COLUMN_PLAYLIST_KEY);
+                int titleIndex = cursor.getColumnIndexOrThrow(COLUMN_TITLE);
+                int linkIndex = cursor.getColumnIndexOrThrow(COLUMN_LINK_SOURCE);
+                int lastViewedIndex = cursor.getColumnIndexOrThrow(COLUMN_LAST_VIEWED);
+                int nestedIndex = cursor.getColumnIndexOrThrow(COLUMN_IS_NESTED);
+                while(cursor.moveToNext()) {
+                    PlaylistInfo playlist = new PlaylistInfo();
+                    playlist.setTitle(cursor.getString(titleIndex));
+                    playlist.setLinkSource(cursor.getString(linkIndex));
+                    playlist.setLastViewed(cursor.getLong(lastViewedIndex));
+                    playlist.SetIndexSummary(0, null);
+
+                    String key = cursor.getString(keyIndex);
+                    all.put(key, playlist);
+                    if(cursor.getInt(nestedIndex) != 0) {
+                        nested.put(key, playlist);
+                    }
+                    else {
+                        imported.put(key, playlist);
+                    }
+                }
+            }
+
+            try(Cursor cursor = db.query(TABLE_PLAYLIST_IMPORTS, null, null, null, null, null, null)) {
+                int nestedIndex = cursor.getColumnIndexOrThrow(COLUMN_NESTED_KEY);
+                int importedIndex = cursor.getColumnIndexOrThrow(COLUMN_IMPORTED_KEY);
+                while(cursor.moveToNext()) {
+                    PlaylistInfo playlist = all.get(cursor.getString(nestedIndex));
+                    if(playlist != null) {
+                        playlist.GetImportedPlaylistKeys().add(cursor.getString(importedIndex));
+                    }
+                }
+            }
+
+            //Counts the distinct tracks of every playlist, including the tracks of its imported playlists.
+            //The cover is the track with the lowest position, the same item that is sorted first once hydrated.
+            String membership = "SELECT " + COLUMN_PLAYLIST_KEY + " AS owner, " + COLUMN_TRACK_TITLE + " FROM " + TABLE_PLAYLIST_TRACKS
+                    + " UNION SELECT i." + COLUMN_NESTED_KEY + ", m." + COLUMN_TRACK_TITLE
+                    + " FROM " + TABLE_PLAYLIST_IMPORTS + " i JOIN " + TABLE_PLAYLIST_TRACKS + " m"
+                    + " ON m." + COLUMN_PLAYLIST_KEY + " = i." + COLUMN_IMPORTED_KEY;
+            String summary = "SELECT s.owner, s.track_count, t.* FROM ("
+                    + "SELECT m.owner, COUNT(*) AS track_count, m." + COLUMN_TRACK_TITLE + " AS cover,"
+                    + " MIN(IFNULL(o." + COLUMN_POSITION + ", " + Integer.MAX_VALUE + "))"
+                    + " FROM (" + membership + ") m LEFT JOIN " + TABLE_PLAYLIST_ORDER + " o"
+                    + " ON o." + COLUMN_PLAYLIST_KEY + " = m.owner AND o." + COLUMN_TRACK_TITLE + " = m." + COLUMN_TRACK_TITLE
+                    + " GROUP BY m.owner) s LEFT JOIN " + TABLE_TRACKS + " t ON t." + COLUMN_TITLE + " = s.cover";
+            try(Cursor cursor = db.rawQuery(summary, null)) {
+                int ownerIndex = cursor.getColumnIndexOrThrow("owner");
+                int countIndex = cursor.getColumnIndexOrThrow("track_count");
+                int titleIndex = cursor.getColumnIndexOrThrow(COLUMN_TITLE);
+                while(cursor.moveToNext()) {
+                    PlaylistInfo playlist = all.get(cursor.getString(ownerIndex));
+                    if(playlist != null) {
+                        PlaybackAudioInfo cover = (cursor.isNull(titleIndex)) ? null : ReadTrack(cursor);
+                        playlist.SetIndexSummary(cursor.getInt(countIndex), cover);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Loads the audio items and order of a single playlist. The tracks of imported
+     * playlists are not loaded, as they belong to the imported playlists themselves.
+     * @param key Key of the playlist.
+     * @param playlist Playlist that the items are loaded into.
+     */
+    public void LoadPlaylistBody(String key, PlaylistInfo playlist) {
+        SQLiteDatabase db = getReadableDatabase();
+        String[] keyArgs = new String[] {key};
+
+        db.beginTransactionNonExclusive();
+        try {
+            try(Cursor cursor = db.rawQuery("SELECT t.* FROM " + TABLE_PLAYLIST_TRACKS + " m JOIN " + TABLE_TRACKS + " t"
+                    + " ON t." + COLUMN_TITLE + " = m." + COLUMN_TRACK_TITLE
+                    + " WHERE m." + COLUMN_PLAYLIST_KEY + " = ?", keyArgs)) {
+                while(cursor.moveToNext()) {
+                    PlaybackAudioInfo audio = ReadTrack(cursor);
+                    playlist.getInsertedVideos().put(audio.getTitle(), audio);
+                }
+            }
+
+            try(Cursor cursor = db.query(TABLE_PLAYLIST_ORDER, new String[] {COLUMN_TRACK_TITLE, COLUMN_POSITION},
+                    COLUMN_PLAYLIST_KEY + " = ?", keyArgs, null, null, null)) {
+                while(cursor.moveToNext()) {
+                    playlist.GetItemsOrder().put(cursor.getString(0), cursor.getInt(1));
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Loads the membership of every track into an inverted index.
+     * @param index Index that the membership is added to.
+     */
+    public void LoadTrackIndex(TrackPlaylistIndex index) {
+        try(Cursor cursor = getReadableDatabase().query(TABLE_PLAYLIST_TRACKS, new String[] {COLUMN_TRACK_TITLE, COLUMN_PLAYLIST_KEY},
+                null, null, null, null, null)) {
+            while(cursor.moveToNext()) {
+                index.Add(cursor.getString(0), cursor.getString(1));
+            }
+        }
+    }
+
+    /**
+     * Writes every given playlist into the database in a single transaction.
+     * Used to migrate playlists from the older storage formats.
+     * @param nested Map of all nested playlists.
+     * @param imported Map of all imported playlists.
+     */
+    public void ImportAll(HashMap<String, PlaylistInfo> nested, HashMap<String, PlaylistInfo> imported) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            //Imported playlists are written first so that the import edges of the nested playlists are valid.
+            for(Map.Entry<String, PlaylistInfo> entry : imported.entrySet()) {
+                InsertPlaylist(db, entry.getKey(), entry.getValue(), false);
+            }
+            for(Map.Entry<String, PlaylistInfo> entry : nested.entrySet()) {
+                InsertPlaylist(db, entry.getKey(), entry.getValue(), true);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Applies a batch of changes in a single transaction.
+     * A change that violates a constraint is skipped without aborting the rest of the batch.
+     * @param records Changes that will be applied, in order.
+     */
+    public void Apply(List<PlaylistChange> records) {
+        if(records.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for(PlaylistChange record : records) {
+                try {
+                    ApplyRecord(db, record);
+                } catch(SQLException e) {
+                    Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to apply " + record.operation);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes every row of every table.
+     */
+    public void Clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_PLAYLIST_IMPORTS, null, null);
+            db.delete(TABLE_PLAYLIST_ORDER, null, null);
+            db.delete(TABLE_PLAYLIST_TRACKS, null, null);
+            db.delete(TABLE_PLAYLISTS, null, null);
+            db.delete(TABLE_TRACKS, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Applies a single change.
+     * @param db Writable database, inside a transaction.
+     * @param record Change that will be applied.
+     */
+    private static void ApplyRecord(SQLiteDatabase db, PlaylistChange record) {
+        String[] keyArgs = new String[] {record.key};
+        ContentValues values;
+        switch(record.operation) {
+            case CREATE:
+                if(record.playlist != null) {
+                    InsertPlaylist(db, record.key, record.playlist, record.nested);
+                }
+                break;
+            case REMOVE:
+                //Membership, order and import edges are removed by the cascade.
+                db.delete(TABLE_PLAYLISTS, COLUMN_PLAYLIST_KEY + " = ?", keyArgs);
+                break;
+            case RENAME:
+                values = new ContentValues();
+                values.put(COLUMN_TITLE, record.value);
+                db.update(TABLE_PLAYLISTS, values, COLUMN_PLAYLIST_KEY + " = ?", keyArgs);
+                break;
+            case LAST_VIEWED:
+                values = new ContentValues();
+                values.put(COLUMN_LAST_VIEWED, record.time);
+                db.update(TABLE_PLAYLISTS, values, COLUMN_PLAYLIST_KEY + " = ?", keyArgs);
+                break;
+            case ADD_AUDIO:
+                if(record.audio != null) {
+                    InsertMembership(db, record.key, record.audio);
+                    if(record.order != null) {
+                        InsertOrder(db, record.key, record.order);
+                    }
+                }
+                break;
+            case DELETE_TRACK:
+                //Membership is removed by the cascade.
+                db.delete(TABLE_TRACKS, COLUMN_TITLE + " = ?", new String[] {record.value});
+                break;
+            case REMOVE_AUDIO:
+                db.delete(TABLE_PLAYLIST_TRACKS, COLUMN_PLAYLIST_KEY + " = ? AND " + COLUMN_TRACK_TITLE + " = ?",
+                        new String[] {record.key, record.value});
+                break;
+            case ORDER:
+                if(record.order != null) {
+                    InsertOrder(db, record.key, record.order);
+                }
+                break;
+            case ADD_IMPORT:
+                InsertImport(db, record.key, record.value);
+                break;
+            case REMOVE_IMPORT:
+                db.delete(TABLE_PLAYLIST_IMPORTS, COLUMN_NESTED_KEY + " = ? AND " + COLUMN_IMPORTED_KEY + " = ?",
+                        new String[] {record.key, record.value});
+                break;
+        }
+    }
+
+    /**
+     * Inserts a playlist along with its tracks, order and import edges.
+     * @param db Writable database, inside a transaction.
+     * @param key Key of the playlist.
+     * @param playlist Playlist that will be inserted.
+     * @param isNested True if the playlist is a nested playlist.
+     */
+    private static void InsertPlaylist(SQLiteDatabase db, String key, PlaylistInfo playlist, boolean isNested) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PLAYLIST_KEY, key);
+        values.put(COLUMN_TITLE, playlist.getTitle());
+        values.put(COLUMN_LINK_SOURCE, playlist.getLinkSource());
+        values.put(COLUMN_LAST_VIEWED, playlist.getLastViewed());
+        values.put(COLUMN_IS_NESTED, isNested ? 1 : 0);
+        db.insertWithOnConflict(TABLE_PLAYLISTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        for(PlaybackAudioInfo audio : playlist.getInsertedVideos().values()) {
+            InsertMembership(db, key, audio);
+        }
+        InsertOrder(db, key, playlist.GetItemsOrder());
+        for(String importedKey : playlist.GetImportedPlaylistKeys()) {
+            try {
+                InsertImport(db, key, importedKey);
+            } catch(SQLException e) {
+                Log.e(LOG_TAG, "Skipped import of missing playlist " + importedKey);
+            }
+        }
+    }
+
+    /**
+     * Stores a track and adds it to a playlist.
+     * @param db Writable database, inside a transaction.
+     * @param key Key of the playlist.
+     * @param audio Track that will be added.
+     */
+    private static void InsertMembership(SQLiteDatabase db, String key, PlaybackAudioInfo audio) {
+        if(audio.getTitle() == null) {
+            return;
+        }
+        UpsertTrack(db, audio);
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PLAYLIST_KEY, key);
+        values.put(COLUMN_TRACK_TITLE, audio.getTitle());
+        db.insertWithOnConflict(TABLE_PLAYLIST_TRACKS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * Inserts or updates the order entries of a playlist.
+     * @param db Writable database, inside a transaction.
+     * @param key Key of the playlist.
+     * @param order Map of track title to position.
+     */
+    private static void InsertOrder(SQLiteDatabase db, String key, HashMap<String, Integer> order) {
+        for(Map.Entry<String, Integer> entry : order.entrySet()) {
+            if(entry.getValue() == null) {
+                continue;
+            }
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_PLAYLIST_KEY, key);
+            values.put(COLUMN_TRACK_TITLE, entry.getKey());
+            values.put(COLUMN_POSITION, entry.getValue());
+            db.insertWithOnConflict(TABLE_PLAYLIST_ORDER, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+    }
+
+    /**
+     * Inserts an import edge from a nested playlist to an imported playlist.
+     * @param db Writable database, inside a transaction.
+     * @param nestedKey Key of the nested playlist.
+     * @param importedKey Key of the imported playlist.
+     */
+    private static void InsertImport(SQLiteDatabase db, String nestedKey, String importedKey) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NESTED_KEY, nestedKey);
+        values.put(COLUMN_IMPORTED_KEY, importedKey);
+        db.insertWithOnConflict(TABLE_PLAYLIST_IMPORTS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * Inserts a track, or updates it if a track with the same title already exists.
+     * A REPLACE is not used since it would delete the row and cascade into the membership table.
+     * @param db Writable database, inside a transaction.
+     * @param audio Track that will be stored.
+     */
+    private static void UpsertTrack(SQLiteDatabase db, PlaybackAudioInfo audio) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ORIGIN, audio.getOrigin());
+        values.put(COLUMN_AUDIO_TYPE, audio.getAudioType().name());
+        values.put(COLUMN_AUDIO_SOURCE, audio.getAudioSource());
+        values.put(COLUMN_THUMBNAIL_TYPE, audio.getThumbnailType().name());
+        values.put(COLUMN_THUMBNAIL_SOURCE, audio.getThumbnailSource());
+        int updated = db.update(TABLE_TRACKS, values, COLUMN_TITLE + " = ?", new String[] {audio.getTitle()});
+        if(updated == 0) {
+            values.put(COLUMN_TITLE, audio.getTitle());
+            db.insertOrThrow(TABLE_TRACKS, null, values);
+        }
+    }
+
+    /**
+     * Reads a track from the current row of a cursor over the tracks table.
+     * @param cursor Cursor over the tracks table.
+     * @return Track of the current row.
+     */
+    static PlaybackAudioInfo ReadTrack(Cursor cursor) {
+        PlaybackAudioInfo audio = new PlaybackAudioInfo();
+        audio.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)));
+        audio.setOrigin(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ORIGIN)));
+        audio.setAudioType(ParseMediaType(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_AUDIO_TYPE))));
+        audio.setAudioSource(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_AUDIO_SOURCE)));
+        audio.setThumbnailType(ParseMediaType(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_THUMBNAIL_TYPE))));
+        audio.setThumbnailSource(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_THUMBNAIL_SOURCE)));
+        return audio;
+    }
+
+    /**
+     * Parses a stored playback media type.
+     * @param value Stored name of the type.
+     * @return Playback media type, UNKNOWN if it could not be parsed.
+     */
+    private static PlaybackAudioInfo.PlaybackMediaType ParseMediaType(String value) {
+        if(value == null) {
+            return PlaybackAudioInfo.PlaybackMediaType.UNKNOWN;
+        }
+        try {
+            return PlaybackAudioInfo.PlaybackMediaType.valueOf(value);
+        } catch(IllegalArgumentException e) {
+            return PlaybackAudioInfo.PlaybackMediaType.UNKNOWN;
+        }
+    }
+}
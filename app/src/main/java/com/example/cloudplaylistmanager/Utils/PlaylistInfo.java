@@ -4,10 +4,11 @@ import com.google.gson.annotations.Expose;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 /**
  * A class that represents a playlist object, containing all the necessary playlist
@@ -15,6 +16,8 @@ import java.util.HashSet;
  * Fields with @Expose indicate that the Gson serializable can touch those fields.
  */
 public class PlaylistInfo implements Serializable {
+    private static final int BULK_UPDATE_THRESHOLD = 16; //Larger changes are merged into allVideos in a single pass.
+
     @Expose
     private String title;
     @Expose
@@ -29,9 +32,14 @@ public class PlaylistInfo implements Serializable {
     private HashMap<String, Integer> audioOrder; //String is name of audio, integer is the index.
 
 
-    private ArrayList<PlaybackAudioInfo> allVideos;
+    private ArrayList<PlaybackAudioInfo> allVideos; //Kept sorted by CompareAudio.
+    private HashMap<String, Integer> allVideosReferences; //String is name of audio, integer is the number of sources containing it.
     private ArrayList<SerializablePair<String, PlaylistInfo>> importedPlaylists;
 
+    private boolean hydrated; //False if only the index summary of the playlist has been loaded.
+    private int indexedTrackCount;
+    private PlaybackAudioInfo indexedCoverAudio;
+
     /**
      * Instantiates a new PlaylistsInfo object.
      */
@@ -44,54 +52,254 @@ public class PlaylistInfo implements Serializable {
         this.lastViewed = 0;
         this.title = "Unnamed Playlist";
         this.allVideos = new ArrayList<>();
+        this.allVideosReferences = new HashMap<>();
+        this.hydrated = true;
+        this.indexedTrackCount = 0;
+        this.indexedCoverAudio = null;
     }
 
     /**
-     * Updates and populates the allVideos list with videos that were inserted into
+     * Creates a detached copy of the persisted fields of this playlist. The maps of the copy
+     * can be read while this playlist continues to be modified.
+     * The allVideos list and the imported playlist objects are not copied.
+     * @return Copy of the playlist.
+     */
+    public PlaylistInfo CopyPersistentData() {
+        PlaylistInfo copy = new PlaylistInfo();
+        copy.title = this.title;
+        copy.linkSource = this.linkSource;
+        copy.lastViewed = this.lastViewed;
+        copy.insertedVideos.putAll(this.insertedVideos);
+        copy.importedPlaylistsKeys.addAll(this.importedPlaylistsKeys);
+        copy.audioOrder.putAll(this.audioOrder);
+        return copy;
+    }
+
+    /**
+     * Rebuilds the allVideos list from scratch with videos that were inserted into
      * this playlist, and its children playlists.
+     * Every other operation on this playlist updates allVideos incrementally, so this is only
+     * needed after the persisted fields were modified directly.
      */
     public void UpdateAllVideos() {
-        HashSet<String> existing = new HashSet<>();
-
-        //Adds all unique audio entries from insertedVideos into allVideos.
         this.allVideos.clear();
+        this.allVideosReferences.clear();
+
+        //Adds all unique audio entries from insertedVideos and each imported playlist into allVideos.
         for(PlaybackAudioInfo audio : this.insertedVideos.values()) {
-            if(!existing.contains(audio.getTitle())) {
-                existing.add(audio.getTitle());
+            if(AddReference(audio)) {
                 this.allVideos.add(audio);
             }
         }
-
-        //Adds all unique audio entries from each imported playlist into allVideos.
-        for(SerializablePair<String, PlaylistInfo> pair : importedPlaylists) {
+        for(SerializablePair<String, PlaylistInfo> pair : this.importedPlaylists) {
             for(PlaybackAudioInfo audio : pair.second.getAllVideos()) {
-                if(!existing.contains(audio.getTitle())) {
-                    existing.add(audio.getTitle());
+                if(AddReference(audio)) {
                     this.allVideos.add(audio);
                 }
             }
         }
 
         //Sorts the entries.
-        Collections.sort(this.allVideos, new Comparator<PlaybackAudioInfo>() {
-            @Override
-            public int compare(PlaybackAudioInfo audioLeft, PlaybackAudioInfo audioRight) {
-                Integer positionLeft = audioOrder.get(audioLeft.getTitle());
-                Integer positionRight = audioOrder.get(audioRight.getTitle());
-                if(positionLeft != null && positionRight != null) {
-                    return Integer.compare(positionLeft,positionRight);
-                }
-                else if(positionLeft != null) {
-                    return -1;
-                }
-                else if(positionRight != null) {
-                    return 1;
-                }
-                else {
-                    return 0;
+        Collections.sort(this.allVideos, this::CompareAudio);
+    }
+
+    /**
+     * Compares two audio items using the loose ordering of the playlist. Items without a position
+     * are placed after every item with a position. Ties are broken by title, so that every item
+     * has exactly one place in the sorted allVideos list. Items without a title come first.
+     * @param audioLeft First audio item.
+     * @param audioRight Second audio item.
+     * @return Negative if the first item comes first, positive if the second item comes first.
+     */
+    private int CompareAudio(PlaybackAudioInfo audioLeft, PlaybackAudioInfo audioRight) {
+        Integer positionLeft = this.audioOrder.get(audioLeft.getTitle());
+        Integer positionRight = this.audioOrder.get(audioRight.getTitle());
+        int left = (positionLeft != null) ? positionLeft : Integer.MAX_VALUE;
+        int right = (positionRight != null) ? positionRight : Integer.MAX_VALUE;
+        if(left != right) {
+            return Integer.compare(left, right);
+        }
+
+        String titleLeft = audioLeft.getTitle();
+        String titleRight = audioRight.getTitle();
+        if(titleLeft == null || titleRight == null) {
+            if(titleLeft == titleRight) {
+                return 0;
+            }
+            return (titleLeft == null) ? -1 : 1;
+        }
+        return titleLeft.compareTo(titleRight);
+    }
+
+    /**
+     * Finds the index of an audio item in allVideos with a binary search.
+     * @param audio Audio item, only its title is used.
+     * @return Index of the item if it exists, otherwise (-(insertion point) - 1).
+     */
+    private int IndexOfAudio(PlaybackAudioInfo audio) {
+        return Collections.binarySearch(this.allVideos, audio, this::CompareAudio);
+    }
+
+    /**
+     * Finds the index of an audio item in allVideos with a binary search.
+     * @param audioTitle Title of the audio item.
+     * @return Index of the item if it exists, otherwise a negative value.
+     */
+    private int IndexOfTitle(String audioTitle) {
+        PlaybackAudioInfo probe = new PlaybackAudioInfo();
+        probe.setTitle(audioTitle);
+        return IndexOfAudio(probe);
+    }
+
+    /**
+     * Counts a new source that contains the audio item.
+     * @param audio Audio item.
+     * @return If this is the first source, meaning that the item is not in allVideos yet.
+     */
+    private boolean AddReference(PlaybackAudioInfo audio) {
+        Integer count = this.allVideosReferences.get(audio.getTitle());
+        this.allVideosReferences.put(audio.getTitle(), (count == null) ? 1 : count + 1);
+        return count == null;
+    }
+
+    /**
+     * Adds a source's audio items into allVideos. Items that are already contained by another source
+     * are only counted. A few items are inserted with a binary search, while many items are sorted
+     * and merged into allVideos in a single pass.
+     * @param audios Audio items of the source.
+     */
+    private void AddReferences(Collection<PlaybackAudioInfo> audios) {
+        ArrayList<PlaybackAudioInfo> added = new ArrayList<>();
+        for(PlaybackAudioInfo audio : audios) {
+            if(AddReference(audio)) {
+                added.add(audio);
+            }
+        }
+
+        if(added.size() <= BULK_UPDATE_THRESHOLD) {
+            for(PlaybackAudioInfo audio : added) {
+                int index = IndexOfAudio(audio);
+                this.allVideos.add((index < 0) ? -(index + 1) : index, audio);
+            }
+            return;
+        }
+        Collections.sort(added, this::CompareAudio);
+        ArrayList<PlaybackAudioInfo> merged = new ArrayList<>(this.allVideos.size() + added.size());
+        int left = 0;
+        int right = 0;
+        while(left < this.allVideos.size() && right < added.size()) {
+            if(CompareAudio(this.allVideos.get(left), added.get(right)) <= 0) {
+                merged.add(this.allVideos.get(left++));
+            }
+            else {
+                merged.add(added.get(right++));
+            }
+        }
+        merged.addAll(this.allVideos.subList(left, this.allVideos.size()));
+        merged.addAll(added.subList(right, added.size()));
+        this.allVideos.clear();
+        this.allVideos.addAll(merged);
+    }
+
+    /**
+     * Removes a source's audio items from allVideos. Items that are still contained by another source
+     * are kept. A few items are removed with a binary search, while many items are filtered out of
+     * allVideos in a single pass.
+     * @param audios Audio items of the source.
+     */
+    private void ReleaseReferences(Collection<PlaybackAudioInfo> audios) {
+        HashSet<String> removed = new HashSet<>();
+        for(PlaybackAudioInfo audio : audios) {
+            Integer count = this.allVideosReferences.get(audio.getTitle());
+            if(count == null) {
+                continue;
+            }
+            if(count <= 1) {
+                this.allVideosReferences.remove(audio.getTitle());
+                removed.add(audio.getTitle());
+            }
+            else {
+                this.allVideosReferences.put(audio.getTitle(), count - 1);
+            }
+        }
+
+        if(removed.size() <= BULK_UPDATE_THRESHOLD) {
+            for(String audioTitle : removed) {
+                int index = IndexOfTitle(audioTitle);
+                if(index >= 0) {
+                    this.allVideos.remove(index);
                 }
             }
-        });
+            return;
+        }
+        ArrayList<PlaybackAudioInfo> remaining = new ArrayList<>(this.allVideos.size());
+        for(PlaybackAudioInfo audio : this.allVideos) {
+            if(!removed.contains(audio.getTitle())) {
+                remaining.add(audio);
+            }
+        }
+        this.allVideos.clear();
+        this.allVideos.addAll(remaining);
+    }
+
+    /**
+     * Replaces the item in allVideos that has the same title as the given audio item.
+     * @param audio New audio item.
+     */
+    private void ReplaceAudio(PlaybackAudioInfo audio) {
+        int index = IndexOfAudio(audio);
+        if(index >= 0) {
+            this.allVideos.set(index, audio);
+        }
+    }
+
+    /**
+     * Marks this playlist as an index entry, whose audio items have not been loaded yet.
+     * Until the playlist is hydrated, the track count and cover audio are served from the summary.
+     * @param trackCount Number of audio items in the playlist, including imported playlists.
+     * @param coverAudio First audio item of the playlist. May be null.
+     */
+    public void SetIndexSummary(int trackCount, PlaybackAudioInfo coverAudio) {
+        this.hydrated = false;
+        this.indexedTrackCount = trackCount;
+        this.indexedCoverAudio = coverAudio;
+    }
+
+    /**
+     * Marks the audio items of this playlist as loaded.
+     */
+    public void MarkHydrated() {
+        this.hydrated = true;
+        this.indexedCoverAudio = null;
+    }
+
+    /**
+     * Checks to see if the audio items of this playlist have been loaded.
+     * @return If the playlist is hydrated.
+     */
+    public boolean IsHydrated() {
+        return this.hydrated;
+    }
+
+    /**
+     * Returns the number of audio items in the playlist, including imported playlists.
+     * Does not require the playlist to be hydrated.
+     * @return Number of audio items.
+     */
+    public int GetTrackCount() {
+        return (this.hydrated) ? this.allVideos.size() : this.indexedTrackCount;
+    }
+
+    /**
+     * Returns the first audio item of the playlist, which is used as its cover.
+     * Does not require the playlist to be hydrated.
+     * @return Cover audio. Null if the playlist is empty.
+     */
+    public PlaybackAudioInfo GetCoverAudio() {
+        if(!this.hydrated) {
+            return this.indexedCoverAudio;
+        }
+        return (this.allVideos.isEmpty()) ? null : this.allVideos.get(0);
     }
 
     /**
@@ -125,6 +333,14 @@ public class PlaylistInfo implements Serializable {
         this.lastViewed = System.currentTimeMillis();
     }
 
+    /**
+     * Sets the last viewed time in milliseconds.
+     * @param lastViewed Last viewed time in milliseconds.
+     */
+    public void setLastViewed(long lastViewed) {
+        this.lastViewed = lastViewed;
+    }
+
     /**
      * Returns the original URL link source of the playlist.
      * @return URL link source of the playlist.
@@ -174,6 +390,19 @@ public class PlaylistInfo implements Serializable {
         return this.importedPlaylistsKeys.contains(key);
     }
 
+    /**
+     * Returns the position of an audio in the list of all audio items.
+     * @param audioTitle Title of the audio.
+     * @return Position of the audio, or -1 if it is not in the playlist.
+     */
+    public int GetPositionOfAudio(String audioTitle) {
+        if(audioTitle == null) {
+            return -1;
+        }
+        int index = IndexOfTitle(audioTitle);
+        return (index >= 0) ? index : -1;
+    }
+
     /**
      * Checks to see if a particular audio is contained in this playlist.
      * @return If the audio exists.
@@ -189,7 +418,7 @@ public class PlaylistInfo implements Serializable {
     public boolean RemoveAudio(String audioTitle) {
         PlaybackAudioInfo audio = this.insertedVideos.remove(audioTitle);
         if(audio != null) {
-            UpdateAllVideos();
+            ReleaseReferences(Collections.singletonList(audio));
         }
         return audio != null;
     }
@@ -199,8 +428,54 @@ public class PlaylistInfo implements Serializable {
      * @param audio Audio information.
      */
     public void AddAudioToPlaylist(PlaybackAudioInfo audio) {
-        this.insertedVideos.put(audio.getTitle(),audio);
-        UpdateAllVideos();
+        PlaybackAudioInfo previous = this.insertedVideos.put(audio.getTitle(),audio);
+        if(previous == null) {
+            AddReferences(Collections.singletonList(audio));
+        }
+        else {
+            ReplaceAudio(audio);
+        }
+    }
+
+    /**
+     * Adds an audio into the playlist at the given position of the loose ordering. The audio is
+     * placed at its final position directly, rather than being added and then moved.
+     * @param audio Audio information.
+     * @param position Position of the audio.
+     */
+    public void AddAudioToPlaylist(PlaybackAudioInfo audio, int position) {
+        HashMap<String, Integer> order = new HashMap<>();
+        order.put(audio.getTitle(), position);
+        //Moves the audio if an imported playlist already contains it.
+        SetItemsOrder(order);
+        AddAudioToPlaylist(audio);
+    }
+
+    /**
+     * Adds many audios into the playlist at once. The allVideos list is updated in a single pass,
+     * rather than once per audio.
+     * @param audios Audio information of each audio.
+     */
+    public void AddAll(Collection<PlaybackAudioInfo> audios) {
+        ArrayList<PlaybackAudioInfo> added = new ArrayList<>();
+        for(PlaybackAudioInfo audio : audios) {
+            PlaybackAudioInfo previous = this.insertedVideos.put(audio.getTitle(),audio);
+            if(previous == null) {
+                added.add(audio);
+            }
+            else {
+                ReplaceAudio(audio);
+            }
+        }
+        AddReferences(added);
+    }
+
+    /**
+     * Returns the loose ordering map of the playlist.
+     * @return Map of audio names to their index.
+     */
+    public HashMap<String, Integer> GetItemsOrder() {
+        return this.audioOrder;
     }
 
     /**
@@ -211,20 +486,44 @@ public class PlaylistInfo implements Serializable {
         if(order == null || order.isEmpty()) {
             return null;
         }
+        HashMap<String, Integer> newOrder = new HashMap<>();
         for(int index = 0; index < order.size(); index++) {
-            this.audioOrder.put(order.get(index).getTitle(),index);
+            newOrder.put(order.get(index).getTitle(),index);
         }
-        UpdateAllVideos();
+        SetItemsOrder(newOrder);
         return this.audioOrder;
     }
 
     /**
      * Sets the audio items order in memory using an already existing order map.
+     * Items whose position changed are moved individually, unless there are many of them,
+     * in which case allVideos is sorted once.
      * @param order Order in which items should be placed.
      */
     public void SetItemsOrder(HashMap<String, Integer> order) {
-        this.audioOrder.putAll(order);
-        UpdateAllVideos();
+        ArrayList<Map.Entry<String, Integer>> changed = new ArrayList<>();
+        for(Map.Entry<String, Integer> entry : order.entrySet()) {
+            Integer previous = this.audioOrder.get(entry.getKey());
+            if(previous == null || !previous.equals(entry.getValue())) {
+                changed.add(entry);
+            }
+        }
+
+        if(changed.size() > BULK_UPDATE_THRESHOLD) {
+            this.audioOrder.putAll(order);
+            Collections.sort(this.allVideos, this::CompareAudio);
+            return;
+        }
+        for(Map.Entry<String, Integer> entry : changed) {
+            //The item must be removed before its position changes, since the list is searched by position.
+            int index = IndexOfTitle(entry.getKey());
+            PlaybackAudioInfo audio = (index >= 0) ? this.allVideos.remove(index) : null;
+            this.audioOrder.put(entry.getKey(), entry.getValue());
+            if(audio != null) {
+                int insertIndex = IndexOfAudio(audio);
+                this.allVideos.add((insertIndex < 0) ? -(insertIndex + 1) : insertIndex, audio);
+            }
+        }
     }
 
     /**
@@ -244,7 +543,7 @@ public class PlaylistInfo implements Serializable {
     public void ImportPlaylist(String key, PlaylistInfo playlistInfo) {
         this.importedPlaylists.add(new SerializablePair<>(key, playlistInfo));
         this.importedPlaylistsKeys.add(key);
-        UpdateAllVideos();
+        AddReferences(playlistInfo.getAllVideos());
     }
 
     /**
@@ -254,7 +553,7 @@ public class PlaylistInfo implements Serializable {
      */
     public void ImportPlaylistWithoutUpdatingKeys(String key, PlaylistInfo other) {
         this.importedPlaylists.add(new SerializablePair<>(key, other));
-        UpdateAllVideos();
+        AddReferences(other.getAllVideos());
     }
 
     /**
@@ -266,16 +565,33 @@ public class PlaylistInfo implements Serializable {
         //Iterates through the list of imported playlists and finds a playlist with the matching key.
         for(int index = 0; index < this.importedPlaylists.size(); index++) {
             if(this.importedPlaylists.get(index).first.equals(key)) {
-                this.importedPlaylists.remove(index);
-                UpdateAllVideos();
+                PlaylistInfo removed = this.importedPlaylists.remove(index).second;
+                ReleaseReferences(removed.getAllVideos());
                 break;
             }
         }
     }
 
+    /**
+     * Applies audios that were added to one of the imported playlists of this playlist.
+     * @param audios Audios that were added.
+     */
+    public void OnImportedAudiosAdded(Collection<PlaybackAudioInfo> audios) {
+        AddReferences(audios);
+    }
+
+    /**
+     * Applies audios that were removed from one of the imported playlists of this playlist.
+     * @param audios Audios that were removed.
+     */
+    public void OnImportedAudiosRemoved(Collection<PlaybackAudioInfo> audios) {
+        ReleaseReferences(audios);
+    }
+
     /**
      * Clears all imported playlist data from the playlist.
-     * Does not clear the keys.
+     * Does not clear the keys. The allVideos list is rebuilt from the inserted audios, since the
+     * imported playlists may have changed since they were imported.
      */
     public void ClearImportedPlaylists() {
         this.importedPlaylists.clear();
@@ -0,0 +1,10 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public interface ResponseParser<T> {
+    T parse(Reader reader) throws IOException, JSONException;
+}
@@ -14,12 +14,16 @@ public class SettingsHolder implements Serializable {
     public static final boolean DEFAULT_EMBED_THUMBNAIL = true;
     public static final boolean DEFAULT_DOWNLOAD_THUMBNAIL = true;
     public static final boolean DEFAULT_OVERRIDE_EXPORT = false;
+    public static final int DEFAULT_DOWNLOAD_CONCURRENCY = 3;
+    public static final int MIN_DOWNLOAD_CONCURRENCY = 1;
+    public static final int MAX_DOWNLOAD_CONCURRENCY = 6;
 
     public enum SettingsFields {
         EMBED_THUMBNAIL,
         DOWNLOAD_THUMBNAIL,
         EXTENSION,
-        OVERRIDE_EXPORT
+        OVERRIDE_EXPORT,
+        DOWNLOAD_CONCURRENCY
     }
 
     @Expose
@@ -30,6 +34,8 @@ public class SettingsHolder implements Serializable {
     public String extension;
     @Expose
     public boolean overrideExport;
+    @Expose
+    public int downloadConcurrency;
 
     /**
      * Instantiates a new SettingsHolder object.
@@ -39,6 +45,7 @@ public class SettingsHolder implements Serializable {
         this.downloadThumbnail = DEFAULT_DOWNLOAD_THUMBNAIL;
         this.extension = DEFAULT_EXTENSION;
         this.overrideExport = DEFAULT_OVERRIDE_EXPORT;
+        this.downloadConcurrency = DEFAULT_DOWNLOAD_CONCURRENCY;
     }
 
     /**
@@ -61,6 +68,9 @@ public class SettingsHolder implements Serializable {
                 case OVERRIDE_EXPORT:
                     this.overrideExport = (boolean) value;
                     break;
+                case DOWNLOAD_CONCURRENCY:
+                    this.downloadConcurrency = (int) value;
+                    break;
             }
         } catch(Exception e) {
             e.printStackTrace();
@@ -0,0 +1,192 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.util.Log;
+
+/**
+ * Decodes thumbnails directly at the size they are shown at. The bounds of the image are read
+ * first, then only the centered square of the image is decoded, subsampled by the largest power
+ * of two that keeps it at least as large as the requested size, and finally scaled to the
+ * exact size. A full resolution copy of the image is never held in memory.
+ */
+public class ThumbnailDecoder {
+    private static final String LOG_TAG = "ThumbnailDecoder";
+
+    /**
+     * The sizes that thumbnails are shown at. Each surface gets a bitmap of its own size.
+     */
+    public enum SizeBucket {
+        LIST_ICON(50),      //Items of the lists.
+        NOTIFICATION(64),   //Large icon of the media notification.
+        PLAYER_ART(200);    //Media player and playlist covers.
+
+        private final int sizeDp;
+
+        SizeBucket(int sizeDp) {
+            this.sizeDp = sizeDp;
+        }
+
+        /**
+         * Returns the size of the bucket in pixels on this device.
+         * @param resources Resources of the application.
+         * @return Width and height in pixels.
+         */
+        public int GetPixelSize(Resources resources) {
+            return Math.max(1, Math.round(this.sizeDp * resources.getDisplayMetrics().density));
+        }
+    }
+
+    /**
+     * Decodes the centered square of an image file at the given size.
+     * @param path Path of the image file.
+     * @param targetSize Width and height of the result in pixels.
+     * @return Square bitmap, null if the file is not a readable image.
+     */
+    @SuppressWarnings("deprecation") //The replacement of BitmapRegionDecoder.newInstance requires API 31.
+    public static Bitmap DecodeFile(String path, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if(options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        Rect square = GetCenteredSquare(options.outWidth, options.outHeight);
+        BitmapFactory.Options decodeOptions = GetDecodeOptions(square.width(), targetSize);
+        Bitmap bitmap = null;
+        try {
+            BitmapRegionDecoder regionDecoder = BitmapRegionDecoder.newInstance(path, false);
+            bitmap = regionDecoder.decodeRegion(square, decodeOptions);
+            regionDecoder.recycle();
+        } catch(Exception e) {
+            //The region decoder only supports some formats, the whole image is subsampled instead.
+            Log.d(LOG_TAG, "Region decoding is unsupported for: " + path);
+        }
+        if(bitmap == null) {
+            bitmap = CropToSquare(BitmapFactory.decodeFile(path, decodeOptions));
+        }
+        return ScaleToSize(bitmap, targetSize);
+    }
+
+    /**
+     * Decodes the centered square of an encoded image at the given size.
+     * @param data Encoded image.
+     * @param targetSize Width and height of the result in pixels.
+     * @return Square bitmap, null if the data is not a readable image.
+     */
+    @SuppressWarnings("deprecation") //The replacement of BitmapRegionDecoder.newInstance requires API 31.
+    public static Bitmap DecodeByteArray(byte[] data, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if(options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        Rect square = GetCenteredSquare(options.outWidth, options.outHeight);
+        BitmapFactory.Options decodeOptions = GetDecodeOptions(square.width(), targetSize);
+        Bitmap bitmap = null;
+        try {
+            BitmapRegionDecoder regionDecoder = BitmapRegionDecoder.newInstance(data, 0, data.length, false);
+            bitmap = regionDecoder.decodeRegion(square, decodeOptions);
+            regionDecoder.recycle();
+        } catch(Exception e) {
+            //The region decoder only supports some formats, the whole image is subsampled instead.
+            Log.d(LOG_TAG, "Region decoding is unsupported for embedded image.");
+        }
+        if(bitmap == null) {
+            bitmap = CropToSquare(BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions));
+        }
+        return ScaleToSize(bitmap, targetSize);
+    }
+
+    /**
+     * Decodes the centered square of a drawable resource at the given size.
+     * @param resources Resources of the application.
+     * @param id Id of the drawable.
+     * @param targetSize Width and height of the result in pixels.
+     * @return Square bitmap, null if the resource is not a readable image.
+     */
+    public static Bitmap DecodeResource(Resources resources, int id, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, id, options);
+        if(options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        //Resources are decoded without density scaling, the bitmap is scaled to the exact size instead.
+        BitmapFactory.Options decodeOptions = GetDecodeOptions(Math.min(options.outWidth, options.outHeight), targetSize);
+        decodeOptions.inScaled = false;
+        return ScaleToSize(CropToSquare(BitmapFactory.decodeResource(resources, id, decodeOptions)), targetSize);
+    }
+
+    /**
+     * Returns the largest centered square of an image.
+     * @param width Width of the image.
+     * @param height Height of the image.
+     * @return Square area of the image.
+     */
+    private static Rect GetCenteredSquare(int width, int height) {
+        int side = Math.min(width, height);
+        int left = (width - side) / 2;
+        int top = (height - side) / 2;
+        return new Rect(left, top, left + side, top + side);
+    }
+
+    /**
+     * Creates the options that subsample a square of the given size as much as possible while
+     * keeping it at least as large as the target size.
+     * @param sourceSize Side of the square in the source image, in pixels.
+     * @param targetSize Side of the result, in pixels.
+     * @return Decode options.
+     */
+    private static BitmapFactory.Options GetDecodeOptions(int sourceSize, int targetSize) {
+        int sampleSize = 1;
+        while(sourceSize / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        return options;
+    }
+
+    /**
+     * Crops a bitmap to its centered square.
+     * @param image Bitmap source. May be null.
+     * @return Cropped Bitmap. Null if the source is null.
+     */
+    private static Bitmap CropToSquare(Bitmap image) {
+        if(image == null || image.getWidth() == image.getHeight()) {
+            return image;
+        }
+        Rect square = GetCenteredSquare(image.getWidth(), image.getHeight());
+        Bitmap cropped = Bitmap.createBitmap(image, square.left, square.top, square.width(), square.height());
+        if(cropped != image) {
+            image.recycle();
+        }
+        return cropped;
+    }
+
+    /**
+     * Scales a square bitmap to the exact target size, if it is not already.
+     * @param image Square bitmap. May be null.
+     * @param targetSize Side of the result, in pixels.
+     * @return Scaled bitmap. Null if the source is null.
+     */
+    private static Bitmap ScaleToSize(Bitmap image, int targetSize) {
+        if(image == null || image.getWidth() <= targetSize) {
+            //Images smaller than the target are not enlarged, the view scales them when drawing.
+            return image;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(image, targetSize, targetSize, true);
+        if(scaled != image) {
+            image.recycle();
+        }
+        return scaled;
+    }
+}
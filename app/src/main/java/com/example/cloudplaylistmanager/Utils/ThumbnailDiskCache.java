@@ -0,0 +1,165 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * On-disk cache of thumbnails that are already cropped and scaled to a size bucket, so that a
+ * thumbnail is only decoded from its source image, or extracted from its audio file, once.
+ * Later loads are a read of a small WebP file. Entries are named after a hash of the track and
+ * the size bucket, along with the modification time of the source, so that a changed source
+ * is decoded again. The least recently used entries are removed once the cache grows past
+ * {@link #MAX_CACHE_BYTES}.
+ */
+public class ThumbnailDiskCache {
+    private static final String LOG_TAG = "ThumbnailDiskCache";
+    private static final String ENTRY_EXTENSION = ".webp";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int COMPRESS_QUALITY = 85;
+    private static final long MAX_CACHE_BYTES = 16L * 1024 * 1024; /*16 MB*/
+    private static final int WRITES_PER_TRIM = 64;
+
+    private final File directory;
+    private int writesSinceTrim;
+
+    /**
+     * Instantiates a new ThumbnailDiskCache object.
+     * @param directory Directory that the thumbnails are stored in. Created if missing.
+     */
+    public ThumbnailDiskCache(File directory) {
+        this.directory = directory;
+        this.writesSinceTrim = WRITES_PER_TRIM;
+    }
+
+    /**
+     * Returns the key of the thumbnail of an audio at a given size.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail is shown at.
+     * @return Key of the thumbnail.
+     */
+    public static String GetKey(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+        StringBuilder source = new StringBuilder();
+        source.append(audio.getTitle()).append('|').append(audio.getThumbnailSource()).append('|').append(audio.getAudioSource());
+        //The modification time of the source files invalidates the entry when a source is replaced.
+        if(audio.getThumbnailSource() != null) {
+            source.append('|').append(new File(audio.getThumbnailSource()).lastModified());
+        }
+        if(audio.getAudioSource() != null) {
+            source.append('|').append(new File(audio.getAudioSource()).lastModified());
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for(byte value : digest) {
+                key.append(String.format("%02x", value));
+            }
+            return key.append('-').append(sizeBucket.name().toLowerCase(Locale.ROOT)).toString();
+        } catch(NoSuchAlgorithmException e) {
+            //Every Android version provides SHA-1, this is only a fallback.
+            return Integer.toHexString(source.toString().hashCode()) + "-" + sizeBucket.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Reads a cached thumbnail.
+     * @param key Key of the thumbnail, see {@link #GetKey(PlaybackAudioInfo, ThumbnailDecoder.SizeBucket)}.
+     * @return Bitmap. Null if there is none or it is unreadable.
+     */
+    public Bitmap Get(String key) {
+        File entryFile = new File(this.directory, key + ENTRY_EXTENSION);
+        if(!entryFile.exists()) {
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(entryFile.getAbsolutePath());
+        if(bitmap == null) {
+            entryFile.delete();
+            return null;
+        }
+        //Keeps the entry from being trimmed while it is in use.
+        entryFile.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    /**
+     * Stores a thumbnail.
+     * @param key Key of the thumbnail, see {@link #GetKey(PlaybackAudioInfo, ThumbnailDecoder.SizeBucket)}.
+     * @param bitmap Cropped and scaled thumbnail.
+     */
+    public synchronized void Put(String key, Bitmap bitmap) {
+        if(bitmap == null || (!this.directory.exists() && !this.directory.mkdirs())) {
+            return;
+        }
+
+        File tempFile = new File(this.directory, key + TEMP_EXTENSION);
+        try(OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            if(!bitmap.compress(GetCompressFormat(), COMPRESS_QUALITY, outputStream)) {
+                throw new IOException("Failed to compress thumbnail.");
+            }
+        } catch(IOException e) {
+            Log.e(LOG_TAG, (e.getMessage() != null) ? e.getMessage() : "Failed to write cached thumbnail.");
+            e.printStackTrace();
+            tempFile.delete();
+            return;
+        }
+        if(!tempFile.renameTo(new File(this.directory, key + ENTRY_EXTENSION))) {
+            tempFile.delete();
+            return;
+        }
+
+        if(++this.writesSinceTrim >= WRITES_PER_TRIM) {
+            this.writesSinceTrim = 0;
+            Trim();
+        }
+    }
+
+    /**
+     * Returns the format that thumbnails are stored in.
+     * @return Lossy WebP.
+     */
+    @SuppressWarnings("deprecation") //WEBP is lossy below API 30, where WEBP_LOSSY does not exist.
+    private static Bitmap.CompressFormat GetCompressFormat() {
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        return Bitmap.CompressFormat.WEBP;
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits in {@link #MAX_CACHE_BYTES}.
+     */
+    private void Trim() {
+        File[] entryFiles = this.directory.listFiles();
+        if(entryFiles == null) {
+            return;
+        }
+        long totalBytes = 0;
+        for(File file : entryFiles) {
+            totalBytes += file.length();
+        }
+        if(totalBytes <= MAX_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(entryFiles, (left, right) -> Long.compare(left.lastModified(), right.lastModified()));
+        for(File file : entryFiles) {
+            if(totalBytes <= MAX_CACHE_BYTES) {
+                break;
+            }
+            totalBytes -= file.length();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.example.cloudplaylistmanager.R;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads thumbnails into image views, such as the icons of list rows and the covers of playlists
+ * and of the media player, without decoding on the main thread. A thumbnail that is already in
+ * the memory cache is shown right away, otherwise it is decoded in the background and shown
+ * once it is ready.
+ * Decodes run on a small pool of background threads, the most recently requested first, so
+ * the rows that just scrolled into view are shown before the ones that already left it.
+ * Each image view is bound to the decode it waits for through a view tag: binding the view
+ * again or calling {@link #Cancel(ImageView)} unbinds it, so a recycled row is never painted
+ * with the thumbnail of its previous item, and a decode that no view waits for anymore is
+ * dropped from the queue. Requests for the same thumbnail share a single decode.
+ * Thumbnails of rows that are about to be shown can be decoded ahead of time with
+ * {@link #Prefetch(PlaybackAudioInfo, ThumbnailDecoder.SizeBucket)}; prefetches only run once
+ * no visible row waits for a decode.
+ * Every method must be called from the main thread.
+ */
+public class ThumbnailLoader {
+    private static final String LOG_TAG = "ThumbnailLoader";
+    private static final int THREAD_COUNT = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final int MAX_TRACKED_PREFETCHES = 256;
+
+    private static ThumbnailLoader instance = null;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler;
+    private final HashMap<String, Decode> inFlightDecodes; //key is the audio name and size bucket
+    private final HashSet<String> prefetchedKeys; //Prefetched thumbnails that no row has shown yet.
+    private long nextSequence;
+    private int prefetchesCompleted;
+    private int prefetchHits;
+
+    /**
+     * Private Constructor for the instance of {@link ThumbnailLoader}.
+     */
+    private ThumbnailLoader() {
+        this.executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }, LOG_TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.inFlightDecodes = new HashMap<>();
+        this.prefetchedKeys = new HashSet<>();
+        this.nextSequence = 0;
+        this.prefetchesCompleted = 0;
+        this.prefetchHits = 0;
+    }
+
+    /**
+     * Gets the instance of the ThumbnailLoader, creating it if it doesn't exist.
+     * @return Instance of the ThumbnailLoader.
+     */
+    public static ThumbnailLoader getInstance() {
+        if(instance == null) {
+            instance = new ThumbnailLoader();
+        }
+        return instance;
+    }
+
+    /**
+     * Shows the thumbnail of an audio in an image view. A cached thumbnail is shown immediately,
+     * otherwise the default image is shown until the thumbnail is decoded.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail is shown at.
+     * @param view Image view that shows the thumbnail.
+     */
+    public void Load(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket, ImageView view) {
+        Cancel(view);
+        String key = GetKey(audio, sizeBucket);
+        Bitmap cached = DataManager.getInstance().GetThumbnailImageCache(audio, sizeBucket);
+        if(cached != null) {
+            if(this.prefetchedKeys.remove(key)) {
+                this.prefetchHits++;
+            }
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageResource(R.drawable.med_res);
+
+        Decode decode = this.inFlightDecodes.get(key);
+        if(decode == null) {
+            decode = new Decode(key, audio, sizeBucket);
+            decode.sequence = this.nextSequence++;
+            this.inFlightDecodes.put(key, decode);
+            this.executor.execute(decode);
+        }
+        else {
+            if(decode.prefetch) {
+                //The row is shown before the prefetch finished, which still saves part of the decode.
+                this.prefetchesCompleted++;
+                this.prefetchHits++;
+            }
+            boolean queued = this.executor.remove(decode);
+            decode.prefetch = false;
+            if(queued) {
+                //The decode is still queued, it is moved to the front as it was just requested again.
+                decode.sequence = this.nextSequence++;
+                this.executor.execute(decode);
+            }
+        }
+        decode.targets.add(view);
+        view.setTag(R.id.tag_thumbnail_request, decode);
+    }
+
+    /**
+     * Decodes the thumbnail of an audio ahead of time, so that it is cached once its row is shown.
+     * Prefetches run after every decode that a visible row waits for.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail will be shown at.
+     */
+    public void Prefetch(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+        String key = GetKey(audio, sizeBucket);
+        if(this.inFlightDecodes.containsKey(key) ||
+                DataManager.getInstance().GetThumbnailImageCache(audio, sizeBucket) != null) {
+            return;
+        }
+        Decode decode = new Decode(key, audio, sizeBucket);
+        decode.prefetch = true;
+        decode.sequence = this.nextSequence++;
+        this.inFlightDecodes.put(key, decode);
+        this.executor.execute(decode);
+    }
+
+    /**
+     * Drops every queued prefetch, such as during a fling when the prefetched rows would be
+     * skipped past anyway.
+     */
+    public void CancelPrefetches() {
+        Iterator<Decode> iterator = this.inFlightDecodes.values().iterator();
+        while(iterator.hasNext()) {
+            Decode decode = iterator.next();
+            if(decode.prefetch && this.executor.remove(decode)) {
+                decode.cancelled = true;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the fraction of finished prefetches whose thumbnail was shown by a row.
+     * @return Hit rate between 0 and 1. Zero if nothing was prefetched yet.
+     */
+    public float GetPrefetchHitRate() {
+        if(this.prefetchesCompleted == 0) {
+            return 0;
+        }
+        return (float) this.prefetchHits / this.prefetchesCompleted;
+    }
+
+    /**
+     * Logs the prefetch hit rate at debug level, such as once a scrolled list is destroyed.
+     */
+    public void LogPrefetchStats() {
+        Log.d(LOG_TAG, "Prefetch hit rate: " + Math.round(GetPrefetchHitRate() * 100) + "% ("
+                + this.prefetchHits + " of " + this.prefetchesCompleted + " prefetched thumbnails shown).");
+    }
+
+    /**
+     * Unbinds an image view from the thumbnail it waits for, such as when its row is recycled.
+     * The decode is dropped if no other view waits for it.
+     * @param view Image view.
+     */
+    public void Cancel(ImageView view) {
+        Object tag = view.getTag(R.id.tag_thumbnail_request);
+        if(!(tag instanceof Decode)) {
+            return;
+        }
+        view.setTag(R.id.tag_thumbnail_request, null);
+        Decode decode = (Decode) tag;
+        decode.targets.remove(view);
+        if(decode.targets.isEmpty() && !decode.prefetch) {
+            decode.cancelled = true;
+            this.executor.remove(decode);
+            this.inFlightDecodes.remove(decode.key);
+        }
+    }
+
+    /**
+     * Shows a decoded thumbnail in every view that still waits for it.
+     * @param decode Finished decode.
+     * @param bitmap Decoded thumbnail. May be null.
+     */
+    private void Deliver(Decode decode, Bitmap bitmap) {
+        if(this.inFlightDecodes.get(decode.key) == decode) {
+            this.inFlightDecodes.remove(decode.key);
+        }
+        if(decode.prefetch && bitmap != null) {
+            if(this.prefetchedKeys.size() >= MAX_TRACKED_PREFETCHES) {
+                this.prefetchedKeys.clear();
+            }
+            this.prefetchedKeys.add(decode.key);
+            this.prefetchesCompleted++;
+        }
+        for(ImageView view : decode.targets) {
+            if(view.getTag(R.id.tag_thumbnail_request) != decode) {
+                continue;
+            }
+            view.setTag(R.id.tag_thumbnail_request, null);
+            if(bitmap != null) {
+                view.setImageBitmap(bitmap);
+            }
+        }
+        decode.targets.clear();
+    }
+
+    /**
+     * Returns the key that decodes of a thumbnail are shared by.
+     * @param audio Audio source.
+     * @param sizeBucket Size that the thumbnail is shown at.
+     * @return Key of the thumbnail.
+     */
+    private static String GetKey(PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+        return audio.getTitle() + "#" + sizeBucket.name();
+    }
+
+    /**
+     * A single queued decode of a thumbnail, shared by every view that waits for it.
+     * Decodes that a view waits for run before prefetches, the most recently requested first.
+     * Prefetches run in the order they were requested, which is the order of the rows.
+     */
+    private class Decode implements Runnable, Comparable<Decode> {
+        private final String key;
+        private final PlaybackAudioInfo audio;
+        private final ThumbnailDecoder.SizeBucket sizeBucket;
+        private final ArrayList<ImageView> targets; //Only accessed from the main thread.
+        private long sequence;
+        private volatile boolean prefetch;
+        private volatile boolean cancelled;
+
+        public Decode(String key, PlaybackAudioInfo audio, ThumbnailDecoder.SizeBucket sizeBucket) {
+            this.key = key;
+            this.audio = audio;
+            this.sizeBucket = sizeBucket;
+            this.targets = new ArrayList<>();
+        }
+
+        @Override
+        public void run() {
+            if(this.cancelled) {
+                return;
+            }
+            Bitmap bitmap = DataManager.getInstance().GetThumbnailImage(this.audio, this.sizeBucket);
+            mainHandler.post(() -> Deliver(this, bitmap));
+        }
+
+        @Override
+        public int compareTo(Decode other) {
+            if(this.prefetch != other.prefetch) {
+                return this.prefetch ? 1 : -1;
+            }
+            if(this.prefetch) {
+                return Long.compare(this.sequence, other.sequence);
+            }
+            return Long.compare(other.sequence, this.sequence);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Memory cache of decoded thumbnails, bounded by the number of bytes of the cached bitmaps.
+ * The budget is a fraction of the memory class of the device, and the least recently used
+ * thumbnails are evicted first. The cache gives memory back when the system asks for it
+ * through {@link ComponentCallbacks2}. Every method is thread safe.
+ */
+public class ThumbnailMemoryCache implements ComponentCallbacks2 {
+    private static final String LOG_TAG = "ThumbnailMemoryCache";
+    private static final int MEMORY_CLASS_FRACTION = 8; //An eighth of the memory available to the app.
+
+    private final LruCache<String, Bitmap> cache;
+
+    /**
+     * Instantiates a new ThumbnailMemoryCache object and registers it for memory callbacks.
+     * @param context Context of the Application.
+     */
+    public ThumbnailMemoryCache(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager.getMemoryClass(); //In megabytes.
+        int budgetBytes = memoryClass * 1024 * 1024 / MEMORY_CLASS_FRACTION;
+        Log.d(LOG_TAG, "Thumbnail cache budget: " + (budgetBytes / 1024) + "KB");
+
+        this.cache = new LruCache<String, Bitmap>(budgetBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        context.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Gets a cached thumbnail.
+     * @param key Key of the thumbnail.
+     * @return Bitmap, returns null if it isn't cached.
+     */
+    public Bitmap Get(String key) {
+        return this.cache.get(key);
+    }
+
+    /**
+     * Caches a thumbnail, evicting the least recently used thumbnails if the budget is exceeded.
+     * @param key Key of the thumbnail.
+     * @param bitmap Thumbnail.
+     */
+    public void Put(String key, Bitmap bitmap) {
+        if(key == null || bitmap == null) {
+            return;
+        }
+        this.cache.put(key, bitmap);
+    }
+
+    /**
+     * Removes a cached thumbnail.
+     * @param key Key of the thumbnail.
+     */
+    public void Remove(String key) {
+        this.cache.remove(key);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            //The app is in the background and likely to be killed, nothing is worth keeping.
+            this.cache.evictAll();
+        }
+        else if(level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            this.cache.trimToSize(this.cache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        this.cache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration configuration) {}
+}
@@ -0,0 +1,106 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from the title of an audio to the keys of every playlist that directly
+ * contains it. Audios that a nested playlist only contains through an imported playlist are
+ * not indexed under the nested playlist.
+ * This class is not thread safe, {@link DataManager} guards it with its own lock.
+ */
+public class TrackPlaylistIndex {
+    private final HashMap<String, HashSet<String>> playlistsByTrack; //String is the name of the audio, set contains playlist keys.
+
+    /**
+     * Instantiates a new, empty TrackPlaylistIndex object.
+     */
+    public TrackPlaylistIndex() {
+        this.playlistsByTrack = new HashMap<>();
+    }
+
+    /**
+     * Records that a playlist contains an audio.
+     * @param audioTitle Title of the audio.
+     * @param playlistKey Key of the playlist.
+     */
+    public void Add(String audioTitle, String playlistKey) {
+        HashSet<String> keys = this.playlistsByTrack.get(audioTitle);
+        if(keys == null) {
+            keys = new HashSet<>();
+            this.playlistsByTrack.put(audioTitle, keys);
+        }
+        keys.add(playlistKey);
+    }
+
+    /**
+     * Records that a playlist contains every given audio.
+     * @param audioTitles Titles of the audios.
+     * @param playlistKey Key of the playlist.
+     */
+    public void AddAll(Collection<String> audioTitles, String playlistKey) {
+        for(String audioTitle : audioTitles) {
+            Add(audioTitle, playlistKey);
+        }
+    }
+
+    /**
+     * Records that a playlist no longer contains an audio.
+     * @param audioTitle Title of the audio.
+     * @param playlistKey Key of the playlist.
+     */
+    public void Remove(String audioTitle, String playlistKey) {
+        HashSet<String> keys = this.playlistsByTrack.get(audioTitle);
+        if(keys != null) {
+            keys.remove(playlistKey);
+            if(keys.isEmpty()) {
+                this.playlistsByTrack.remove(audioTitle);
+            }
+        }
+    }
+
+    /**
+     * Removes an audio from the index entirely.
+     * @param audioTitle Title of the audio.
+     */
+    public void RemoveTrack(String audioTitle) {
+        this.playlistsByTrack.remove(audioTitle);
+    }
+
+    /**
+     * Removes every entry of a playlist from the index.
+     * @param playlistKey Key of the playlist.
+     * @param audioTitles Titles of the audios in the playlist. If null, the whole index is searched.
+     */
+    public void RemovePlaylist(String playlistKey, Collection<String> audioTitles) {
+        if(audioTitles != null) {
+            for(String audioTitle : audioTitles) {
+                Remove(audioTitle, playlistKey);
+            }
+            return;
+        }
+        Iterator<Map.Entry<String, HashSet<String>>> iterator = this.playlistsByTrack.entrySet().iterator();
+        while(iterator.hasNext()) {
+            HashSet<String> keys = iterator.next().getValue();
+            keys.remove(playlistKey);
+            if(keys.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the keys of every playlist that directly contains an audio.
+     * @param audioTitle Title of the audio.
+     * @return Unmodifiable set of playlist keys.
+     */
+    public Set<String> GetPlaylists(String audioTitle) {
+        HashSet<String> keys = this.playlistsByTrack.get(audioTitle);
+        return (keys == null) ? Collections.emptySet() : Collections.unmodifiableSet(keys);
+    }
+}
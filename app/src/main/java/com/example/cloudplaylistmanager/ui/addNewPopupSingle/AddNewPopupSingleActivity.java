@@ -23,6 +23,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.view.View;
+import android.webkit.URLUtil;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -31,7 +32,6 @@ import com.example.cloudplaylistmanager.R;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Downloader.DownloadListener;
 import com.example.cloudplaylistmanager.Downloader.DownloadService;
-import com.example.cloudplaylistmanager.Utils.PlatformCompatUtility;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 
 /**
@@ -226,7 +226,8 @@ public class AddNewPopupSingleActivity extends AppCompatActivity {
      */
     private void DownloadPlaylist() {
         String urlInput = this.urlField.getText().toString();
-        if(urlInput.isEmpty() || PlatformCompatUtility.PlaylistUrlSource(urlInput) == PlatformCompatUtility.Platform.UNKNOWN) {
+        //Playlists of unknown platforms are listed by the downloader, so any web url is accepted.
+        if(urlInput.isEmpty() || !URLUtil.isNetworkUrl(urlInput)) {
             SendToast("Invalid Url.");
             return;
         }
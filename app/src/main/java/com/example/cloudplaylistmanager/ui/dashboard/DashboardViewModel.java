@@ -6,29 +6,42 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.cloudplaylistmanager.Utils.DataChangeEvent;
+import com.example.cloudplaylistmanager.Utils.DataChangeListener;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 
-public class DashboardViewModel extends ViewModel {
+public class DashboardViewModel extends ViewModel implements DataChangeListener {
 
     private MutableLiveData<ArrayList<Pair<String,PlaylistInfo>>> myPlaylists;
     private MutableLiveData<ArrayList<Pair<String,PlaylistInfo>>> importedPlaylists;
     private MutableLiveData<PlaylistInfo> localVideos;
 
-    private MutableLiveData<String> lastUpdate;
+    private long lastUpdate;
+    private final HashMap<String, Long> playlistVersions; //Version of every listed playlist, key is UUID.
 
     public DashboardViewModel() {
         this.myPlaylists = new MutableLiveData<>();
         this.importedPlaylists = new MutableLiveData<>();
         this.localVideos = new MutableLiveData<>();
 
-        this.lastUpdate = new MutableLiveData<>();
-        this.lastUpdate.postValue(null);
+        this.lastUpdate = -1;
+        this.playlistVersions = new HashMap<>();
 
         updateData();
+        DataManager.getInstance().AddDataChangeListener(this);
+    }
+
+    /**
+     * Unregisters from the change feed of {@link DataManager}.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        DataManager.getInstance().RemoveDataChangeListener(this);
     }
 
     /**
@@ -55,34 +68,181 @@ public class DashboardViewModel extends ViewModel {
         return this.localVideos;
     }
 
+    /**
+     * Applies a change of a single playlist to the list that contains it, by its key. The list is
+     * only re-fetched if the change cannot be applied on its own, which is when the contents of
+     * the playlist changed as a whole or when a change of the playlist was missed. Changes to an
+     * imported playlist that affect nested playlists are delivered as separate changes of the
+     * nested playlists.
+     * @param event Change that happened in {@link DataManager}.
+     */
+    @Override
+    public void onDataChanged(DataChangeEvent event) {
+        if(event.isLocalFileChange()) {
+            updateLocalVideos();
+        }
+        else if(event.isNested()) {
+            if(!applyPlaylistChange(event, this.myPlaylists)) {
+                updateMyPlaylists();
+            }
+        }
+        else {
+            if(!applyPlaylistChange(event, this.importedPlaylists)) {
+                updateImportedPlaylists();
+            }
+        }
+        this.lastUpdate = DataManager.getInstance().GetDataVersion();
+    }
+
+    /**
+     * Applies a change of a single playlist to a list of playlists without fetching the list.
+     * The listed playlists are the ones held by {@link DataManager}, so a renamed playlist or a
+     * playlist whose tracks changed is already up to date and only needs to be shown again.
+     * @param event Change of the playlist.
+     * @param playlists List that contains the playlist.
+     * @return If the change was applied, or was already part of the list. False if the list must be re-fetched.
+     */
+    private boolean applyPlaylistChange(DataChangeEvent event, MutableLiveData<ArrayList<Pair<String,PlaylistInfo>>> playlists) {
+        ArrayList<Pair<String,PlaylistInfo>> current = playlists.getValue();
+        if(current == null || event.getType() == DataChangeEvent.Type.PLAYLIST_CONTENTS_CHANGED) {
+            return false;
+        }
+        String key = event.getPlaylistKey();
+        Long listedVersion = this.playlistVersions.get(key);
+        if(listedVersion != null && event.getVersion() <= listedVersion) {
+            //The list was fetched after the change.
+            return true;
+        }
+        //A change can only be applied on top of the one before it, a new playlist starts at version 1.
+        if(event.getVersion() != ((listedVersion != null) ? listedVersion + 1 : 1)) {
+            return false;
+        }
+
+        int index = indexOfKey(current, key);
+        ArrayList<Pair<String,PlaylistInfo>> updated = new ArrayList<>(current);
+        switch(event.getType()) {
+            case PLAYLIST_ADDED:
+                PlaylistInfo playlist = DataManager.getInstance().GetPlaylistSummaryFromKey(key);
+                if(playlist == null) {
+                    return false;
+                }
+                if(index < 0) {
+                    insertByLastViewed(updated, new Pair<>(key, playlist));
+                }
+                break;
+            case PLAYLIST_REMOVED:
+                if(index >= 0) {
+                    updated.remove(index);
+                }
+                this.playlistVersions.remove(key);
+                playlists.setValue(updated);
+                return true;
+            case PLAYLIST_VIEWED:
+                if(index < 0) {
+                    return false;
+                }
+                insertByLastViewed(updated, updated.remove(index));
+                break;
+            case PLAYLIST_RENAMED:
+            case TRACKS_INSERTED:
+            case TRACKS_REMOVED:
+                if(index < 0) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+        }
+        this.playlistVersions.put(key, event.getVersion());
+        playlists.setValue(updated);
+        return true;
+    }
+
+    /**
+     * Finds a playlist in a list of playlists.
+     * @param playlists List of playlists.
+     * @param key Key of the playlist.
+     * @return Index of the playlist, -1 if it is not in the list.
+     */
+    private static int indexOfKey(ArrayList<Pair<String,PlaylistInfo>> playlists, String key) {
+        for(int index = 0; index < playlists.size(); index++) {
+            if(playlists.get(index).first.equals(key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts a playlist into a list of playlists that is sorted by last viewed, most recent first.
+     * @param playlists Sorted list of playlists.
+     * @param entry Key and playlist.
+     */
+    private static void insertByLastViewed(ArrayList<Pair<String,PlaylistInfo>> playlists, Pair<String,PlaylistInfo> entry) {
+        int index = 0;
+        while(index < playlists.size() && playlists.get(index).second.getLastViewed() >= entry.second.getLastViewed()) {
+            index++;
+        }
+        playlists.add(index, entry);
+    }
+
     /**
      * Updates the UI elements that rely on this viewmodel for data.
      */
     public void updateData() {
-        String recentUpdate = DataManager.getInstance().GetDataLastUpdate();
+        long recentUpdate = DataManager.getInstance().GetDataVersion();
         //Only induce an update on the UI if the data was actually updated in DataManager.
-        if(this.lastUpdate.getValue() == null ||
-                !recentUpdate.equals(this.lastUpdate.getValue())) {
+        if(recentUpdate != this.lastUpdate) {
+            updateImportedPlaylists();
+            updateMyPlaylists();
+            updateLocalVideos();
+            this.lastUpdate = recentUpdate;
+        }
+    }
 
-            //Retrieves all imported playlists.
-            ArrayList<Pair<String,PlaylistInfo>> fetchedImportsPlaylist = DataManager.getInstance().GetImportedPlaylists();
-            if(fetchedImportsPlaylist != null) {
-                this.importedPlaylists.postValue(fetchedImportsPlaylist);
-            }
+    /**
+     * Retrieves all imported playlists.
+     * The list is set directly rather than posted, since every call happens on the main thread,
+     * so that the next change is always applied to the latest list.
+     */
+    private void updateImportedPlaylists() {
+        ArrayList<Pair<String,PlaylistInfo>> fetchedImportsPlaylist = DataManager.getInstance().GetImportedPlaylists();
+        if(fetchedImportsPlaylist != null) {
+            recordVersions(fetchedImportsPlaylist);
+            this.importedPlaylists.setValue(fetchedImportsPlaylist);
+        }
+    }
 
-            //Retrieves all nested playlists.
-            ArrayList<Pair<String,PlaylistInfo>> fetchedMyPlaylists = DataManager.getInstance().GetNestedPlaylists();
-            if(fetchedMyPlaylists != null) {
-                this.myPlaylists.postValue(fetchedMyPlaylists);
-            }
+    /**
+     * Retrieves all nested playlists.
+     * The list is set directly rather than posted, since every call happens on the main thread,
+     * so that the next change is always applied to the latest list.
+     */
+    private void updateMyPlaylists() {
+        ArrayList<Pair<String,PlaylistInfo>> fetchedMyPlaylists = DataManager.getInstance().GetNestedPlaylists();
+        if(fetchedMyPlaylists != null) {
+            recordVersions(fetchedMyPlaylists);
+            this.myPlaylists.setValue(fetchedMyPlaylists);
+        }
+    }
 
-            //Retrieves all locally saved songs.
-            PlaylistInfo fetchedSavedSongs = DataManager.getInstance().ConstructPlaylistFromLocalFiles();
-            if(fetchedSavedSongs != null) {
-                this.localVideos.postValue(fetchedSavedSongs);
-            }
+    /**
+     * Stores the version of every playlist of a fetched list, which later changes are applied on top of.
+     * @param playlists Fetched list of playlists.
+     */
+    private void recordVersions(ArrayList<Pair<String,PlaylistInfo>> playlists) {
+        for(Pair<String,PlaylistInfo> entry : playlists) {
+            this.playlistVersions.put(entry.first, DataManager.getInstance().GetPlaylistVersion(entry.first));
+        }
+    }
 
-            this.lastUpdate.postValue(recentUpdate);
+    /**
+     * Retrieves all locally saved songs.
+     */
+    private void updateLocalVideos() {
+        PlaylistInfo fetchedSavedSongs = DataManager.getInstance().ConstructPlaylistFromLocalFiles();
+        if(fetchedSavedSongs != null) {
+            this.localVideos.postValue(fetchedSavedSongs);
         }
     }
 }
\ No newline at end of file
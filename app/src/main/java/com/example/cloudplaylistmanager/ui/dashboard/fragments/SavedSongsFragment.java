@@ -23,9 +23,12 @@ import com.example.cloudplaylistmanager.R;
 import com.example.cloudplaylistmanager.RecyclerAdapters.RecyclerViewOptionsListener;
 import com.example.cloudplaylistmanager.RecyclerAdapters.SongsOptionsRecyclerAdapter;
 import com.example.cloudplaylistmanager.RecyclerAdapters.SongsRecyclerAdapter;
+import com.example.cloudplaylistmanager.RecyclerAdapters.ThumbnailPrefetcher;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 import com.example.cloudplaylistmanager.ui.addNewPopupSingle.AddNewPopupSingleActivity;
 import com.example.cloudplaylistmanager.ui.dashboard.DashboardViewModel;
 
@@ -54,7 +57,8 @@ public class SavedSongsFragment extends Fragment {
         //Instantiates new Recycler View and sets the adapter.
         RecyclerView songRecyclerView = view.findViewById(R.id.recyclerView_saved_songs);
         songRecyclerView.setHasFixedSize(true);
-        songRecyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getActivity());
+        songRecyclerView.setLayoutManager(layoutManager);
 
         //Implement a listener to capture clicks on the recycler view items.
         this.songsAdapter = new SongsOptionsRecyclerAdapter(getContext(), this.savedSongs, true, R.menu.single_song_item_option, new RecyclerViewOptionsListener() {
@@ -126,6 +130,9 @@ public class SavedSongsFragment extends Fragment {
         });
         songRecyclerView.setAdapter(this.songsAdapter);
 
+        //Decodes the thumbnails of the rows ahead of the scroll.
+        songRecyclerView.addOnScrollListener(new ThumbnailPrefetcher(layoutManager, this.songsAdapter, ThumbnailDecoder.SizeBucket.LIST_ICON));
+
 
         //Fetches data from the ViewModel.
         this.viewModel = new ViewModelProvider(requireParentFragment()).get(DashboardViewModel.class);
@@ -148,4 +155,9 @@ public class SavedSongsFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        ThumbnailLoader.getInstance().LogPrefetchStats();
+    }
 }
\ No newline at end of file
@@ -10,7 +10,6 @@ import androidx.viewpager2.widget.ViewPager2;
 import android.app.Dialog;
 import android.app.ProgressDialog;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -33,6 +32,8 @@ import com.example.cloudplaylistmanager.Utils.PlatformCompatUtility;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
 import com.example.cloudplaylistmanager.Utils.SyncPlaylistListener;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 import com.google.android.material.tabs.TabLayout;
 
 public class PlaylistNestedActivity extends AppCompatActivity {
@@ -185,13 +186,12 @@ public class PlaylistNestedActivity extends AppCompatActivity {
         //Gets the icon of the first audio item.
         if(!this.playlistInfo.getAllVideos().isEmpty()) {
             PlaybackAudioInfo sourceAudio = this.playlistInfo.getAllVideos().iterator().next();
-            Bitmap bitmap = DataManager.getInstance().GetThumbnailImage(sourceAudio);
-            if(bitmap != null) {
-                this.icon.setImageBitmap(bitmap);
-            }
-            else {
-                this.icon.setImageResource(R.drawable.med_res);
-            }
+            ThumbnailLoader.getInstance().Load(sourceAudio, ThumbnailDecoder.SizeBucket.PLAYER_ART, this.icon);
+        }
+        else {
+            //The playlist was emptied, the icon of its former first audio is cleared.
+            ThumbnailLoader.getInstance().Cancel(this.icon);
+            this.icon.setImageResource(R.drawable.med_res);
         }
     }
 
@@ -6,17 +6,32 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.cloudplaylistmanager.Utils.DataChangeEvent;
+import com.example.cloudplaylistmanager.Utils.DataChangeListener;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
 
-public class PlaylistNestedViewModel extends ViewModel {
+public class PlaylistNestedViewModel extends ViewModel implements DataChangeListener {
     private MutableLiveData<Pair<String, PlaylistInfo>> playlistInfo;
-    private MutableLiveData<String> lastUpdated;
+    private MutableLiveData<DataChangeEvent> trackChanges;
+    private String playlistKey;
+    private long lastUpdated;
 
     public PlaylistNestedViewModel() {
         this.playlistInfo = new MutableLiveData<>();
-        this.lastUpdated = new MutableLiveData<>();
-        this.lastUpdated.postValue(null);
+        this.trackChanges = new MutableLiveData<>();
+        this.playlistKey = null;
+        this.lastUpdated = -1;
+        DataManager.getInstance().AddDataChangeListener(this);
+    }
+
+    /**
+     * Unregisters from the change feed of {@link DataManager}.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        DataManager.getInstance().RemoveDataChangeListener(this);
     }
 
     /**
@@ -24,10 +39,10 @@ public class PlaylistNestedViewModel extends ViewModel {
      * @param key Playlist key identifier
      */
     public void updateData(String key) {
-        String recentUpdate = DataManager.getInstance().GetDataLastUpdate();
-        //Only induce an update on the UI if the data was actually updated in DataManager.
-        if(this.lastUpdated == null ||
-                !recentUpdate.equals(this.lastUpdated.getValue())) {
+        long recentUpdate = DataManager.getInstance().GetPlaylistVersion(key);
+        //Only induce an update on the UI if the playlist was actually updated in DataManager.
+        if(!key.equals(this.playlistKey) || recentUpdate != this.lastUpdated) {
+            this.playlistKey = key;
 
             //Fetches the playlist associated with the given key.
             PlaylistInfo playlist = DataManager.getInstance().GetPlaylistFromKey(key);
@@ -35,7 +50,28 @@ public class PlaylistNestedViewModel extends ViewModel {
                 this.playlistInfo.postValue(new Pair<>(key,playlist));
             }
 
-            this.lastUpdated.postValue(recentUpdate);
+            this.lastUpdated = recentUpdate;
+        }
+    }
+
+    /**
+     * Single audio insertions and removals of the viewed playlist are forwarded as track changes,
+     * every other change of the viewed playlist re-fetches it.
+     * @param event Change that happened in {@link DataManager}.
+     */
+    @Override
+    public void onDataChanged(DataChangeEvent event) {
+        if(this.playlistKey == null || !this.playlistKey.equals(event.getPlaylistKey())) {
+            return;
+        }
+        boolean trackChange = event.getType() == DataChangeEvent.Type.TRACKS_INSERTED ||
+                event.getType() == DataChangeEvent.Type.TRACKS_REMOVED;
+        if(trackChange && event.getPosition() != DataChangeEvent.NO_POSITION) {
+            this.lastUpdated = event.getVersion();
+            this.trackChanges.setValue(event);
+        }
+        else {
+            updateData(this.playlistKey);
         }
     }
 
@@ -46,4 +82,13 @@ public class PlaylistNestedViewModel extends ViewModel {
     public LiveData<Pair<String, PlaylistInfo>> getPlaylistData() {
         return this.playlistInfo;
     }
-}
+
+    /**
+     * Allows UI elements to apply single audio insertions and removals of the playlist
+     * without re-binding the whole list.
+     * @return Latest track change of the playlist.
+     */
+    public LiveData<DataChangeEvent> getTrackChanges() {
+        return this.trackChanges;
+    }
+}
\ No newline at end of file
@@ -21,9 +21,13 @@ import com.example.cloudplaylistmanager.MusicPlayer.MediaPlayerActivity;
 import com.example.cloudplaylistmanager.R;
 import com.example.cloudplaylistmanager.RecyclerAdapters.RecyclerViewOptionsListener;
 import com.example.cloudplaylistmanager.RecyclerAdapters.SongsOptionsRecyclerAdapter;
+import com.example.cloudplaylistmanager.RecyclerAdapters.ThumbnailPrefetcher;
+import com.example.cloudplaylistmanager.Utils.DataChangeEvent;
 import com.example.cloudplaylistmanager.Utils.DataManager;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 import com.example.cloudplaylistmanager.ui.addExistingPopupSingle.AddExistingPopupSingleActivity;
 import com.example.cloudplaylistmanager.ui.playlistviewnested.PlaylistNestedViewModel;
 import com.example.cloudplaylistmanager.ui.playlistviewnormal.PlaylistImportActivity;
@@ -54,7 +58,8 @@ public class AllSongsFragment extends Fragment {
         //Gets the Recycler View and sets the adapter.
         this.recyclerView = view.findViewById(R.id.recyclerView_allSongs);
         this.recyclerView.setHasFixedSize(true);
-        this.recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getActivity());
+        this.recyclerView.setLayoutManager(layoutManager);
 
         this.adapter = new SongsOptionsRecyclerAdapter(getContext(), this.playlist, true, R.menu.song_item_options, new RecyclerViewOptionsListener() {
             @Override
@@ -113,6 +118,9 @@ public class AllSongsFragment extends Fragment {
         });
         this.recyclerView.setAdapter(this.adapter);
 
+        //Decodes the thumbnails of the rows ahead of the scroll.
+        this.recyclerView.addOnScrollListener(new ThumbnailPrefetcher(layoutManager, this.adapter, ThumbnailDecoder.SizeBucket.LIST_ICON));
+
 
         //Fetches data from the ViewModel.
         this.viewModel = new ViewModelProvider(requireActivity()).get(PlaylistNestedViewModel.class);
@@ -127,6 +135,15 @@ public class AllSongsFragment extends Fragment {
                 adapter.updateData(stringPlaylistInfoPair.second);
             }
         });
+        this.viewModel.getTrackChanges().observe(getViewLifecycleOwner(), new Observer<DataChangeEvent>() {
+            @Override
+            public void onChanged(DataChangeEvent dataChangeEvent) {
+                if(dataChangeEvent == null || playlist == null) {
+                    return;
+                }
+                adapter.applyTrackChange(dataChangeEvent, playlist);
+            }
+        });
 
         //Sets the callback for the item touch helper.
         ItemTouchHelper itemTouchHelper = new ItemTouchHelper(this.simpleCallback);
@@ -135,6 +152,12 @@ public class AllSongsFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        ThumbnailLoader.getInstance().LogPrefetchStats();
+    }
+
 
     //Handles dragging of items in the recycler view.
     private ItemTouchHelper.SimpleCallback simpleCallback = new ItemTouchHelper.SimpleCallback(ItemTouchHelper.UP | ItemTouchHelper.DOWN, 0) {
@@ -9,7 +9,6 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import android.app.ProgressDialog;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -33,6 +32,8 @@ import com.example.cloudplaylistmanager.Utils.PlatformCompatUtility;
 import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
 import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
 import com.example.cloudplaylistmanager.Utils.SyncPlaylistListener;
+import com.example.cloudplaylistmanager.Utils.ThumbnailDecoder;
+import com.example.cloudplaylistmanager.Utils.ThumbnailLoader;
 
 import java.util.HashMap;
 
@@ -280,13 +281,12 @@ public class PlaylistImportActivity extends AppCompatActivity {
         //Gets the icon of the first audio item.
         if(!this.playlistInfo.getAllVideos().isEmpty()) {
             PlaybackAudioInfo sourceAudio = this.playlistInfo.getAllVideos().iterator().next();
-            Bitmap bitmap = DataManager.getInstance().GetThumbnailImage(sourceAudio);
-            if(bitmap != null) {
-                this.icon.setImageBitmap(bitmap);
-            }
-            else {
-                this.icon.setImageResource(R.drawable.med_res);
-            }
+            ThumbnailLoader.getInstance().Load(sourceAudio, ThumbnailDecoder.SizeBucket.PLAYER_ART, this.icon);
+        }
+        else {
+            //The playlist was emptied, the icon of its former first audio is cleared.
+            ThumbnailLoader.getInstance().Cancel(this.icon);
+            this.icon.setImageResource(R.drawable.med_res);
         }
     }
 
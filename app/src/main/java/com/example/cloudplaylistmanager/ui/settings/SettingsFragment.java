@@ -25,6 +25,8 @@ public class SettingsFragment extends Fragment {
     private SwitchCompat overrideExportButton;
     private Spinner spinner;
     private ArrayAdapter<CharSequence> adapter;
+    private Spinner concurrencySpinner;
+    private ArrayAdapter<CharSequence> concurrencyAdapter;
 
     private FragmentSettingsBinding binding;
 
@@ -37,6 +39,7 @@ public class SettingsFragment extends Fragment {
         this.downloadButton = this.binding.switchDownload;
         this.overrideExportButton = this.binding.switchExportOverride;
         this.spinner = this.binding.spinner;
+        this.concurrencySpinner = this.binding.spinnerConcurrency;
 
 
         //Sets the click listener for the embed thumbnail switch.
@@ -76,6 +79,21 @@ public class SettingsFragment extends Fragment {
             public void onNothingSelected(AdapterView<?> adapterView) {}
         });
 
+        //Sets the adapter for the concurrency spinner (Concurrent Downloads Picker)
+        this.concurrencyAdapter = ArrayAdapter.createFromResource(getActivity(), R.array.valid_download_concurrency, R.layout.support_simple_spinner_dropdown_item);
+        this.concurrencyAdapter.setDropDownViewResource(R.layout.support_simple_spinner_dropdown_item);
+        this.concurrencySpinner.setAdapter(this.concurrencyAdapter);
+        this.concurrencySpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> adapterView, View view, int pos, long id) {
+                int concurrency = Integer.parseInt(adapterView.getItemAtPosition(pos).toString());
+                DataManager.getInstance().SetSettingsField(SettingsHolder.SettingsFields.DOWNLOAD_CONCURRENCY, concurrency);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> adapterView) {}
+        });
+
         //Populates the UI with the saved settings data.
         InitializeUI();
 
@@ -93,6 +111,9 @@ public class SettingsFragment extends Fragment {
 
         int position = this.adapter.getPosition(settings.extension);
         this.spinner.setSelection(Math.max(position, 0));
+
+        position = this.concurrencyAdapter.getPosition(String.valueOf(settings.downloadConcurrency));
+        this.concurrencySpinner.setSelection(Math.max(position, 0));
     }
 
     @Override
@@ -0,0 +1,184 @@
+package com.example.cloudplaylistmanager.Downloader;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static com.example.cloudplaylistmanager.Utils.AudioFixtures.Audio;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the state machine of the jobs and tracks of {@link DownloadQueue}, and that a queue
+ * loaded by a new instance, as after the process was killed, resumes where the log stopped.
+ */
+public class DownloadQueueTest {
+    private static final String LOG_FILE_NAME = "download-queue.log";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DownloadQueue Reload() {
+        return new DownloadQueue(this.folder.getRoot());
+    }
+
+    private static void AppendLine(File file, String line) throws IOException {
+        try(Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(line);
+        }
+    }
+
+    @Test
+    public void enqueue_sameRequestTwice_returnsQueuedJob() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job job = queue.Enqueue("https://a", false, null);
+
+        assertSame(job, queue.Enqueue("https://a", false, null));
+        assertNotSame(job, queue.Enqueue("https://a", false, "parent"));
+        assertNotSame(job, queue.Enqueue("https://a", true, null));
+        assertSame(job, queue.Peek());
+    }
+
+    @Test
+    public void remove_lastJob_deletesLog() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job first = queue.Enqueue("https://a", false, null);
+        DownloadQueue.Job second = queue.Enqueue("https://b", false, null);
+        File logFile = new File(this.folder.getRoot(), LOG_FILE_NAME);
+        assertTrue(logFile.exists());
+
+        queue.Remove(first);
+        assertSame(second, queue.Peek());
+        assertTrue(logFile.exists());
+
+        queue.Remove(second);
+        assertNull(queue.Peek());
+        assertFalse(logFile.exists());
+        assertNull(Reload().Peek());
+    }
+
+    @Test
+    public void addTracks_skipsTracksAlreadyInJob() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job job = queue.Enqueue("https://list", true, null);
+
+        ArrayList<DownloadQueue.Track> added = queue.AddTracks(job, Arrays.asList("https://1", "https://2"), Arrays.asList(0, 1));
+        assertEquals(2, added.size());
+        added = queue.AddTracks(job, Arrays.asList("https://2", "https://3"), Arrays.asList(1, 2));
+        assertEquals(1, added.size());
+        assertEquals("https://3", added.get(0).origin);
+        assertEquals(2, added.get(0).position);
+        assertEquals(3, queue.GetTracks(job, DownloadQueue.TrackState.PENDING).size());
+    }
+
+    @Test
+    public void trackAttempts_failAfterMaxAttempts() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job job = queue.Enqueue("https://list", true, null);
+        DownloadQueue.Track track = queue.AddTracks(job, Arrays.asList("https://1"), Arrays.asList(0)).get(0);
+
+        for(int attempt = 1; attempt < DownloadQueue.MAX_ATTEMPTS; attempt++) {
+            queue.FailTrackAttempt(job, track);
+            assertEquals(DownloadQueue.TrackState.PENDING, track.state);
+        }
+        queue.FailTrackAttempt(job, track);
+        assertEquals(DownloadQueue.TrackState.FAILED, track.state);
+        assertEquals(1, queue.GetTracks(job, DownloadQueue.TrackState.FAILED).size());
+    }
+
+    @Test
+    public void failTrack_failsImmediately() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job job = queue.Enqueue("https://list", true, null);
+        DownloadQueue.Track track = queue.AddTracks(job, Arrays.asList("https://1"), Arrays.asList(0)).get(0);
+
+        queue.FailTrack(job, track);
+        assertEquals(DownloadQueue.TrackState.FAILED, track.state);
+        assertEquals(0, track.attempts);
+    }
+
+    @Test
+    public void jobAttempts_allowRetriesUntilMaxAttempts() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job job = queue.Enqueue("https://a", false, null);
+
+        for(int attempt = 1; attempt < DownloadQueue.MAX_ATTEMPTS; attempt++) {
+            assertTrue(queue.FailJobAttempt(job));
+        }
+        assertFalse(queue.FailJobAttempt(job));
+    }
+
+    @Test
+    public void reload_resumesEveryChange() {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job single = queue.Enqueue("https://a", false, "parent");
+        queue.FailJobAttempt(single);
+        DownloadQueue.Job playlist = queue.Enqueue("https://list", true, null);
+        ArrayList<DownloadQueue.Track> tracks = queue.AddTracks(playlist,
+                Arrays.asList("https://1", "https://2", "https://3"), Arrays.asList(0, 1, 2));
+        queue.SetTracksComplete(playlist, "Title", "https://list");
+        queue.SetPlaylistKey(playlist, "key");
+        PlaybackAudioInfo audio = Audio("one");
+        audio.setAudioSource("/music/one.m4a");
+        queue.CompleteTrack(playlist, tracks.get(0), audio);
+        queue.FailTrackAttempt(playlist, tracks.get(1));
+        queue.FailTrack(playlist, tracks.get(2));
+
+        DownloadQueue reloaded = Reload();
+        DownloadQueue.Job reloadedSingle = reloaded.Peek();
+        assertEquals(single.id, reloadedSingle.id);
+        assertEquals("parent", reloadedSingle.parentKey);
+        assertEquals(1, reloadedSingle.attempts);
+
+        reloaded.Remove(reloadedSingle);
+        DownloadQueue.Job reloadedPlaylist = reloaded.Peek();
+        assertEquals(playlist.id, reloadedPlaylist.id);
+        assertTrue(reloadedPlaylist.isPlaylist);
+        assertTrue(reloadedPlaylist.tracksComplete);
+        assertEquals("Title", reloadedPlaylist.title);
+        assertEquals("https://list", reloadedPlaylist.linkSource);
+        assertEquals("key", reloadedPlaylist.playlistKey);
+
+        ArrayList<DownloadQueue.Track> completed = reloaded.GetTracks(reloadedPlaylist, DownloadQueue.TrackState.COMPLETED);
+        assertEquals(1, completed.size());
+        assertEquals("one", completed.get(0).audio.getTitle());
+        assertEquals("/music/one.m4a", completed.get(0).audio.getAudioSource());
+        ArrayList<DownloadQueue.Track> pending = reloaded.GetTracks(reloadedPlaylist, DownloadQueue.TrackState.PENDING);
+        assertEquals(1, pending.size());
+        assertEquals("https://2", pending.get(0).origin);
+        assertEquals(1, pending.get(0).position);
+        assertEquals(1, pending.get(0).attempts);
+        assertEquals(1, reloaded.GetTracks(reloadedPlaylist, DownloadQueue.TrackState.FAILED).size());
+
+        //The removal made after the reload is also persisted.
+        assertEquals(playlist.id, Reload().Peek().id);
+    }
+
+    @Test
+    public void reload_partiallyWrittenChange_isDropped() throws IOException {
+        DownloadQueue queue = Reload();
+        DownloadQueue.Job job = queue.Enqueue("https://list", true, null);
+        queue.AddTracks(job, Arrays.asList("https://1"), Arrays.asList(0));
+        AppendLine(new File(this.folder.getRoot(), LOG_FILE_NAME), "{\"type\":\"TRACK\",\"jobId\":\"" + job.id + "\",\"orig");
+
+        DownloadQueue reloaded = Reload();
+        DownloadQueue.Job reloadedJob = reloaded.Peek();
+        assertEquals(job.id, reloadedJob.id);
+        assertEquals(1, reloaded.GetTracks(reloadedJob, DownloadQueue.TrackState.PENDING).size());
+
+        //The compacted log is readable again once new changes are appended to it.
+        reloaded.FailTrack(reloadedJob, reloadedJob.tracks.get(0));
+        DownloadQueue.Job resumedJob = Reload().Peek();
+        assertEquals(DownloadQueue.TrackState.FAILED, resumedJob.tracks.get(0).state);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.cloudplaylistmanager.Platforms;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the streaming parser of the pages of Youtube's playlist items API.
+ */
+public class YoutubeUtilitiesTest {
+
+    private static String Item(String title, int position, String videoId, String owner) {
+        return "{\"kind\":\"youtube#playlistItem\",\"etag\":\"x\",\"snippet\":{" +
+                "\"publishedAt\":\"2020-01-01T00:00:00Z\"," +
+                "\"title\":\"" + title + "\"," +
+                "\"description\":\"Long description\\nwith \\\"escapes\\\"\"," +
+                "\"thumbnails\":{\"default\":{\"url\":\"https://i/default.jpg\",\"width\":120}," +
+                "\"medium\":{\"url\":\"https://i/" + videoId + ".jpg\",\"width\":320,\"height\":180}}," +
+                "\"position\":" + position + "," +
+                "\"resourceId\":{\"kind\":\"youtube#video\",\"videoId\":\"" + videoId + "\"}" +
+                ((owner != null) ? ",\"videoOwnerChannelTitle\":\"" + owner + "\"" : "") +
+                "}}";
+    }
+
+    private static YoutubeUtilities.YoutubePlaylistInfo Parse(String json) throws IOException {
+        return YoutubeUtilities.ParsePlaylistItems(new StringReader(json));
+    }
+
+    @Test
+    public void parsePlaylistItems_readsPageAndItems() throws IOException {
+        YoutubeUtilities.YoutubePlaylistInfo page = Parse("{\"kind\":\"youtube#playlistItemListResponse\"," +
+                "\"nextPageToken\":\"next\",\"pageInfo\":{\"totalResults\":120,\"resultsPerPage\":50}," +
+                "\"items\":[" + Item("Second", 1, "bbb", "Owner") + "," + Item("First", 0, "aaa", "Owner") + "]}");
+
+        assertEquals("next", page.GetNextPageToken());
+        assertEquals(120, page.GetTotalResults());
+        assertEquals(2, page.getAllVideos().size());
+
+        PlaybackAudioInfo first = page.getAllVideos().get(0);
+        assertEquals("First", first.getTitle());
+        assertEquals(YoutubeUtilities.GetVideoWithYoutubeID("aaa"), first.getOrigin());
+        assertEquals("https://i/aaa.jpg", first.getThumbnailSource());
+        assertEquals(PlaybackAudioInfo.PlaybackMediaType.STREAM, first.getThumbnailType());
+        assertEquals(PlaybackAudioInfo.PlaybackMediaType.UNKNOWN, first.getAudioType());
+        assertEquals(Integer.valueOf(0), page.GetItemsOrder().get("First"));
+        assertEquals(Integer.valueOf(1), page.GetItemsOrder().get("Second"));
+        assertEquals("Second", page.getAllVideos().get(1).getTitle());
+    }
+
+    @Test
+    public void parsePlaylistItems_lastPage_hasNoNextPageToken() throws IOException {
+        YoutubeUtilities.YoutubePlaylistInfo page = Parse("{\"nextPageToken\":null,\"items\":[]}");
+
+        assertNull(page.GetNextPageToken());
+        assertTrue(page.getAllVideos().isEmpty());
+    }
+
+    @Test
+    public void parsePlaylistItems_skipsItemsWithoutOwner() throws IOException {
+        YoutubeUtilities.YoutubePlaylistInfo page = Parse("{\"items\":[" +
+                Item("Private video", 0, "ppp", null) + "," +
+                Item("Public", 1, "aaa", "Owner") + "," +
+                "{\"snippet\":{\"title\":\"No video\",\"videoOwnerChannelTitle\":\"Owner\"}}]}");
+
+        assertEquals(1, page.getAllVideos().size());
+        assertEquals("Public", page.getAllVideos().get(0).getTitle());
+        assertFalse(page.GetItemsOrder().containsKey("Private video"));
+    }
+
+    @Test
+    public void parsePlaylistItems_missingThumbnailAndPosition() throws IOException {
+        YoutubeUtilities.YoutubePlaylistInfo page = Parse("{\"items\":[{\"snippet\":{\"title\":\"Bare\"," +
+                "\"thumbnails\":{},\"position\":null,\"resourceId\":{\"videoId\":\"aaa\"}," +
+                "\"videoOwnerChannelTitle\":\"Owner\"}}]}");
+
+        PlaybackAudioInfo audio = page.getAllVideos().get(0);
+        assertEquals("Bare", audio.getTitle());
+        assertNull(audio.getThumbnailSource());
+        assertTrue(page.GetItemsOrder().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void parsePlaylistItems_truncatedPage_throws() throws IOException {
+        Parse("{\"items\":[" + Item("First", 0, "aaa", "Owner").substring(0, 60));
+    }
+}
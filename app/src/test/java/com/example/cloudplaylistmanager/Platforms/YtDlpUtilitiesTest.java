@@ -0,0 +1,61 @@
+package com.example.cloudplaylistmanager.Platforms;
+
+import com.example.cloudplaylistmanager.Utils.PlaybackAudioInfo;
+import com.example.cloudplaylistmanager.Utils.PlaylistInfo;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the parser of the result of a yt-dlp flat-playlist run.
+ */
+public class YtDlpUtilitiesTest {
+
+    @Test
+    public void parseFlatPlaylist_readsEntriesInOrder() throws JSONException {
+        PlaylistInfo playlist = YtDlpUtilities.ParseFlatPlaylistJsonResult(new JSONObject("{" +
+                "\"id\":\"PL1\",\"title\":\"Mix\",\"entries\":[" +
+                "{\"ie_key\":\"Youtube\",\"id\":\"bbb\",\"title\":\"Zulu\",\"url\":\"https://www.youtube.com/watch?v=bbb\"," +
+                "\"thumbnails\":[{\"url\":\"https://i/small.jpg\"},{\"url\":\"https://i/large.jpg\"}]}," +
+                "{\"ie_key\":\"Generic\",\"id\":\"2\",\"title\":\"Alpha\",\"url\":\"https://example.com/2\"," +
+                "\"thumbnail\":\"https://example.com/2.jpg\"}]}"));
+
+        assertEquals("Mix", playlist.getTitle());
+        assertEquals(2, playlist.getAllVideos().size());
+
+        PlaybackAudioInfo first = playlist.getAllVideos().get(0);
+        assertEquals("Zulu", first.getTitle());
+        assertEquals(YoutubeUtilities.GetVideoWithYoutubeID("bbb"), first.getOrigin());
+        assertEquals("https://i/large.jpg", first.getThumbnailSource());
+        assertEquals(PlaybackAudioInfo.PlaybackMediaType.STREAM, first.getThumbnailType());
+
+        PlaybackAudioInfo second = playlist.getAllVideos().get(1);
+        assertEquals("Alpha", second.getTitle());
+        assertEquals("https://example.com/2", second.getOrigin());
+        assertEquals("https://example.com/2.jpg", second.getThumbnailSource());
+    }
+
+    @Test
+    public void parseFlatPlaylist_skipsUnavailableEntries() throws JSONException {
+        PlaylistInfo playlist = YtDlpUtilities.ParseFlatPlaylistJsonResult(new JSONObject("{" +
+                "\"id\":\"PL1\",\"title\":null,\"entries\":[" +
+                "{\"ie_key\":\"Youtube\",\"id\":\"ppp\",\"title\":\"[Private video]\"}," +
+                "{\"ie_key\":\"Youtube\",\"id\":\"ddd\",\"title\":\"[Deleted video]\"}," +
+                "{\"ie_key\":\"Generic\",\"title\":\"No url\",\"url\":\"relative/path\"}," +
+                "null," +
+                "{\"ie_key\":\"Generic\",\"title\":\"Fallback\",\"webpage_url\":\"https://example.com/page\"}]}"));
+
+        assertEquals("PL1", playlist.getTitle());
+        assertEquals(1, playlist.getAllVideos().size());
+        assertEquals("https://example.com/page", playlist.getAllVideos().get(0).getOrigin());
+        assertEquals(Integer.valueOf(4), playlist.GetItemsOrder().get("Fallback"));
+    }
+
+    @Test
+    public void parseFlatPlaylist_singleVideo_isNotAPlaylist() throws JSONException {
+        assertNull(YtDlpUtilities.ParseFlatPlaylistJsonResult(new JSONObject("{\"id\":\"aaa\",\"title\":\"Video\"}")));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the audio items that the unit tests fill playlists and download queues with.
+ */
+public class AudioFixtures {
+
+    /**
+     * Creates an audio item that only has a title.
+     * @param title Title of the audio.
+     * @return Audio item.
+     */
+    public static PlaybackAudioInfo Audio(String title) {
+        PlaybackAudioInfo audio = new PlaybackAudioInfo();
+        audio.setTitle(title);
+        return audio;
+    }
+
+    /**
+     * Creates audio items titled by a prefix and a three digit number, in a scrambled order so
+     * that they are not already sorted. Every number below the count is used once, as long as
+     * the count is not a multiple of 37.
+     * @param prefix Prefix of the titles.
+     * @param count Number of audio items.
+     * @return List of audio items.
+     */
+    public static List<PlaybackAudioInfo> Audios(String prefix, int count) {
+        ArrayList<PlaybackAudioInfo> audios = new ArrayList<>();
+        for(int index = 0; index < count; index++) {
+            audios.add(Audio(prefix + String.format("%03d", (index * 37) % count)));
+        }
+        return audios;
+    }
+}
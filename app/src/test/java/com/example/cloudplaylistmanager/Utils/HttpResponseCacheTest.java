@@ -0,0 +1,97 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the keys of requests and the entries stored by {@link HttpResponseCache}.
+ */
+public class HttpResponseCacheTest {
+    private static final String URL = "https://www.googleapis.com/youtube/v3/playlistItems";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void getKey_ignoresParameterOrder() {
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("part", "snippet");
+        params.put("playlistId", "PL1");
+        LinkedHashMap<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("playlistId", "PL1");
+        reversed.put("part", "snippet");
+
+        assertEquals(HttpResponseCache.GetKey(URL, params), HttpResponseCache.GetKey(URL, reversed));
+    }
+
+    @Test
+    public void getKey_differsByRequest() {
+        HashMap<String, String> params = new HashMap<>();
+        params.put("playlistId", "PL1");
+        HashMap<String, String> otherParams = new HashMap<>();
+        otherParams.put("playlistId", "PL2");
+
+        String key = HttpResponseCache.GetKey(URL, params);
+        assertNotEquals(key, HttpResponseCache.GetKey(URL, otherParams));
+        assertNotEquals(key, HttpResponseCache.GetKey(URL, null));
+        assertNotEquals(key, HttpResponseCache.GetKey(URL + "/other", params));
+    }
+
+    @Test
+    public void getKey_doesNotContainParameters() {
+        HashMap<String, String> params = new HashMap<>();
+        params.put("key", "secret-api-key");
+
+        String key = HttpResponseCache.GetKey(URL, params);
+        assertFalse(key.contains("secret"));
+        assertTrue(key.matches("[0-9a-f]{40}"));
+    }
+
+    @Test
+    public void put_thenGet_returnsEntry() {
+        HttpResponseCache cache = new HttpResponseCache(new File(this.folder.getRoot(), "cache"));
+        String key = HttpResponseCache.GetKey(URL, null);
+        assertNull(cache.Get(key));
+
+        cache.Put(key, "\"etag\"", "{\"items\":[\"ünïcode\"]}");
+        HttpResponseCache.Entry entry = new HttpResponseCache(new File(this.folder.getRoot(), "cache")).Get(key);
+        assertEquals("\"etag\"", entry.etag);
+        assertEquals("{\"items\":[\"ünïcode\"]}", entry.body);
+
+        cache.Put(key, "\"newer\"", "{}");
+        assertEquals("\"newer\"", cache.Get(key).etag);
+    }
+
+    @Test
+    public void remove_dropsEntry() {
+        HttpResponseCache cache = new HttpResponseCache(this.folder.getRoot());
+        String key = HttpResponseCache.GetKey(URL, null);
+        cache.Put(key, "\"etag\"", "{}");
+
+        cache.Remove(key);
+        assertNull(cache.Get(key));
+    }
+
+    @Test
+    public void get_unreadableEntry_isDeleted() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(this.folder.getRoot());
+        String key = HttpResponseCache.GetKey(URL, null);
+        File entryFile = new File(this.folder.getRoot(), key + ".json");
+        try(FileOutputStream outputStream = new FileOutputStream(entryFile)) {
+            outputStream.write("{\"etag\":\"x\",\"bo".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertNull(cache.Get(key));
+        assertFalse(entryFile.exists());
+    }
+}
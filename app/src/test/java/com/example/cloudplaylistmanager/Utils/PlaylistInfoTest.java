@@ -0,0 +1,246 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.example.cloudplaylistmanager.Utils.AudioFixtures.Audio;
+import static com.example.cloudplaylistmanager.Utils.AudioFixtures.Audios;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the incremental updates of {@link PlaylistInfo} keep allVideos in the same order
+ * as a full rebuild, and that audios shared by several sources are reference counted.
+ */
+public class PlaylistInfoTest {
+
+    private static List<String> Titles(PlaylistInfo playlist) {
+        ArrayList<String> titles = new ArrayList<>();
+        for(PlaybackAudioInfo audio : playlist.getAllVideos()) {
+            titles.add(audio.getTitle());
+        }
+        return titles;
+    }
+
+    /**
+     * Rebuilds the playlist from scratch and checks that the incremental order matched it.
+     * @param playlist Playlist that was updated incrementally.
+     */
+    private static void AssertMatchesRebuild(PlaylistInfo playlist) {
+        List<String> incremental = Titles(playlist);
+        playlist.UpdateAllVideos();
+        assertEquals(Titles(playlist), incremental);
+    }
+
+    private static HashMap<String, Integer> Order(String title, int position) {
+        HashMap<String, Integer> order = new HashMap<>();
+        order.put(title, position);
+        return order;
+    }
+
+    @Test
+    public void addAudio_withoutOrder_sortsByTitle() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("c"));
+        playlist.AddAudioToPlaylist(Audio("a"));
+        playlist.AddAudioToPlaylist(Audio("b"));
+
+        assertEquals(Arrays.asList("a", "b", "c"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void addAudio_orderedItemsComeBeforeUnorderedItems() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("a"));
+        playlist.SetItemsOrder(Order("z", 1));
+        playlist.AddAudioToPlaylist(Audio("z"));
+        playlist.SetItemsOrder(Order("y", 0));
+        playlist.AddAudioToPlaylist(Audio("y"));
+
+        assertEquals(Arrays.asList("y", "z", "a"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void addAudio_withoutTitle_sortsFirst() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("b"));
+        playlist.AddAudioToPlaylist(Audio(null));
+        playlist.AddAudioToPlaylist(Audio("a"));
+
+        assertEquals(Arrays.asList(null, "a", "b"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void addAll_bulkMerge_matchesRebuild() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.SetItemsOrder(Order("m", 5));
+        playlist.AddAudioToPlaylist(Audio("m"));
+        playlist.AddAudioToPlaylist(Audio("n"));
+        playlist.AddAll(Audios("track", 50));
+
+        assertEquals(52, playlist.getAllVideos().size());
+        assertEquals("m", playlist.getAllVideos().get(0).getTitle());
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void setItemsOrder_fewChanges_movesItems() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAll(Arrays.asList(Audio("a"), Audio("b"), Audio("c"), Audio("d")));
+
+        HashMap<String, Integer> order = new HashMap<>();
+        order.put("d", 0);
+        order.put("b", 1);
+        playlist.SetItemsOrder(order);
+
+        assertEquals(Arrays.asList("d", "b", "a", "c"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void setItemsOrder_manyChanges_matchesRebuild() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAll(Audios("track", 40));
+
+        ArrayList<PlaybackAudioInfo> reversed = new ArrayList<>(playlist.getAllVideos());
+        Collections.reverse(reversed);
+        playlist.SetItemsOrder(reversed);
+
+        assertEquals("track039", playlist.getAllVideos().get(0).getTitle());
+        assertEquals("track000", playlist.getAllVideos().get(39).getTitle());
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void removeAudio_keepsOrder() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAll(Arrays.asList(Audio("a"), Audio("b"), Audio("c")));
+
+        assertTrue(playlist.RemoveAudio("b"));
+        assertFalse(playlist.RemoveAudio("b"));
+
+        assertEquals(Arrays.asList("a", "c"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void addAudio_existingTitle_replacesItem() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("a"));
+        PlaybackAudioInfo replacement = Audio("a");
+        replacement.setAudioSource("replaced");
+        playlist.AddAudioToPlaylist(replacement);
+
+        assertEquals(1, playlist.getAllVideos().size());
+        assertEquals("replaced", playlist.getAllVideos().get(0).getAudioSource());
+    }
+
+    @Test
+    public void importedAudio_sharedWithInsertedAudio_isCountedOnce() {
+        PlaylistInfo imported = new PlaylistInfo();
+        imported.AddAll(Arrays.asList(Audio("a"), Audio("b")));
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("b"));
+        playlist.ImportPlaylist("imported", imported);
+
+        assertEquals(Arrays.asList("a", "b"), Titles(playlist));
+
+        //The inserted copy keeps the audio after the import is removed.
+        playlist.RemoveImportedPlaylist("imported");
+        assertEquals(Arrays.asList("b"), Titles(playlist));
+        assertFalse(playlist.ContainsImportedKey("imported"));
+
+        //The imported copy keeps the audio after the inserted one is removed.
+        playlist.ImportPlaylist("imported", imported);
+        playlist.RemoveAudio("b");
+        assertEquals(Arrays.asList("a", "b"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void importedAudios_addedAndRemoved_updateReferences() {
+        PlaylistInfo first = new PlaylistInfo();
+        first.AddAll(Audios("first", 20));
+        PlaylistInfo second = new PlaylistInfo();
+        second.AddAll(Audios("first", 20));
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.ImportPlaylist("first", first);
+        playlist.ImportPlaylist("second", second);
+        assertEquals(20, playlist.getAllVideos().size());
+
+        List<PlaybackAudioInfo> added = Arrays.asList(Audio("extra"));
+        first.AddAll(added);
+        playlist.OnImportedAudiosAdded(added);
+        assertEquals(21, playlist.getAllVideos().size());
+
+        //Every audio of the second playlist is still referenced by the first one.
+        playlist.RemoveImportedPlaylist("second");
+        assertEquals(21, playlist.getAllVideos().size());
+
+        playlist.OnImportedAudiosRemoved(added);
+        assertFalse(Titles(playlist).contains("extra"));
+        playlist.RemoveImportedPlaylist("first");
+        assertTrue(playlist.getAllVideos().isEmpty());
+    }
+
+    @Test
+    public void getPositionOfAudio_followsOrder() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAll(Arrays.asList(Audio("a"), Audio("b"), Audio("c")));
+        playlist.SetItemsOrder(Order("c", 0));
+
+        assertEquals(0, playlist.GetPositionOfAudio("c"));
+        assertEquals(2, playlist.GetPositionOfAudio("b"));
+        playlist.RemoveAudio("b");
+        assertEquals(-1, playlist.GetPositionOfAudio("b"));
+        assertEquals(-1, playlist.GetPositionOfAudio(null));
+    }
+
+    @Test
+    public void addAudio_atPosition_isPlacedDirectly() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("a"));
+        playlist.AddAudioToPlaylist(Audio("z"), 1);
+        playlist.AddAudioToPlaylist(Audio("y"), 0);
+
+        assertEquals(Arrays.asList("y", "z", "a"), Titles(playlist));
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void addAudio_atPosition_movesImportedAudio() {
+        PlaylistInfo imported = new PlaylistInfo();
+        imported.AddAll(Arrays.asList(Audio("b"), Audio("c")));
+        PlaylistInfo playlist = new PlaylistInfo();
+        playlist.AddAudioToPlaylist(Audio("a"));
+        playlist.ImportPlaylist("imported", imported);
+
+        playlist.AddAudioToPlaylist(Audio("c"), 0);
+        assertEquals(Arrays.asList("c", "a", "b"), Titles(playlist));
+        assertEquals(3, playlist.getAllVideos().size());
+        AssertMatchesRebuild(playlist);
+    }
+
+    @Test
+    public void indexSummary_isServedUntilHydrated() {
+        PlaylistInfo playlist = new PlaylistInfo();
+        PlaybackAudioInfo cover = Audio("cover");
+        playlist.SetIndexSummary(12, cover);
+
+        assertFalse(playlist.IsHydrated());
+        assertEquals(12, playlist.GetTrackCount());
+        assertSame(cover, playlist.GetCoverAudio());
+
+        playlist.AddAudioToPlaylist(Audio("a"));
+        playlist.MarkHydrated();
+        assertEquals(1, playlist.GetTrackCount());
+        assertEquals("a", playlist.GetCoverAudio().getTitle());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.cloudplaylistmanager.Utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link TrackPlaylistIndex} maps each audio to every playlist that contains it.
+ */
+public class TrackPlaylistIndexTest {
+
+    @Test
+    public void add_indexesEveryPlaylistOfAnAudio() {
+        TrackPlaylistIndex index = new TrackPlaylistIndex();
+        index.AddAll(Arrays.asList("a", "b"), "first");
+        index.Add("a", "second");
+        index.Add("a", "second");
+
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), index.GetPlaylists("a"));
+        assertEquals(new HashSet<>(Arrays.asList("first")), index.GetPlaylists("b"));
+        assertTrue(index.GetPlaylists("missing").isEmpty());
+    }
+
+    @Test
+    public void remove_keepsOtherPlaylists() {
+        TrackPlaylistIndex index = new TrackPlaylistIndex();
+        index.Add("a", "first");
+        index.Add("a", "second");
+
+        index.Remove("a", "first");
+        assertEquals(new HashSet<>(Arrays.asList("second")), index.GetPlaylists("a"));
+        index.Remove("a", "second");
+        assertTrue(index.GetPlaylists("a").isEmpty());
+        index.Remove("a", "second");
+    }
+
+    @Test
+    public void removeTrack_dropsEveryPlaylist() {
+        TrackPlaylistIndex index = new TrackPlaylistIndex();
+        index.Add("a", "first");
+        index.Add("a", "second");
+
+        index.RemoveTrack("a");
+        assertTrue(index.GetPlaylists("a").isEmpty());
+    }
+
+    @Test
+    public void removePlaylist_withAndWithoutTitles() {
+        TrackPlaylistIndex index = new TrackPlaylistIndex();
+        index.AddAll(Arrays.asList("a", "b", "c"), "first");
+        index.AddAll(Arrays.asList("a", "c"), "second");
+
+        index.RemovePlaylist("first", Arrays.asList("a", "b"));
+        assertEquals(new HashSet<>(Arrays.asList("second")), index.GetPlaylists("a"));
+        assertTrue(index.GetPlaylists("b").isEmpty());
+        //Only the given titles are removed.
+        assertTrue(index.GetPlaylists("c").contains("first"));
+
+        index.RemovePlaylist("first", null);
+        assertEquals(new HashSet<>(Arrays.asList("second")), index.GetPlaylists("c"));
+        index.RemovePlaylist("second", null);
+        assertTrue(index.GetPlaylists("a").isEmpty());
+        assertTrue(index.GetPlaylists("c").isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getPlaylists_isUnmodifiable() {
+        TrackPlaylistIndex index = new TrackPlaylistIndex();
+        index.Add("a", "first");
+        index.GetPlaylists("a").add("second");
+    }
+}